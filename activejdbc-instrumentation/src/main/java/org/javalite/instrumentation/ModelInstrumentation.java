@@ -38,10 +38,6 @@ public class ModelInstrumentation{
 
         try {
             addDelegates(modelClass);
-            CtMethod m = CtNewMethod.make("public static String getClassName() { return \"" + modelClass.getName() + "\"; }", modelClass);
-            CtMethod getClassNameMethod = modelClass.getDeclaredMethod("getClassName");
-            modelClass.removeMethod(getClassNameMethod);
-            modelClass.addMethod(m);
             String out = getOutputDirectory(modelClass);
             //addSerializationSupport(modelClass);
             System.out.println("Instrumented class: " + modelClass.getName() + " in directory: " + out);
@@ -62,23 +58,55 @@ public class ModelInstrumentation{
         return fp.substring(0, fp.indexOf(className));
     }
 
+    /**
+     * Adds methods of <code>Model</code> to a target model class. Instance methods are added as delegators.
+     * Static methods are copied into the target, and calls to <code>Model.modelClass()</code> inside them are
+     * redirected to a copy of that method which returns the target class literal. This way static finders
+     * like <code>Person.where(...)</code> know their model class without inspecting the call stack.
+     *
+     * @param target model class to instrument.
+     */
     private void addDelegates(CtClass target) throws NotFoundException, CannotCompileException {
         CtMethod[] modelMethods = modelClass.getDeclaredMethods();
         CtMethod[] targetMethods = target.getDeclaredMethods();
-        for (CtMethod method : modelMethods) {
 
-            if(Modifier.PRIVATE == method.getModifiers()){
-                continue;
-            }
-            CtMethod newMethod = CtNewMethod.delegator(method, target);
+        CtMethod modelGetClass = modelClass.getDeclaredMethod("modelClass");
+        CtMethod newGetClass = CtNewMethod.copy(modelGetClass, target, null);
+        newGetClass.setBody("{ return " + target.getName() + ".class; }");
 
-			// Include the generic signature
-			for (Object attr : method.getMethodInfo().getAttributes()) {
-				if (attr instanceof javassist.bytecode.SignatureAttribute) {
-					javassist.bytecode.SignatureAttribute signatureAttribute = (javassist.bytecode.SignatureAttribute) attr;
-					newMethod.getMethodInfo().addAttribute(signatureAttribute);
-				}
-			}
+        //do not let javassist replace references to Model with references to the target class
+        ClassMap classMap = new ClassMap();
+        classMap.fix(modelClass);
+
+        CodeConverter conv = new CodeConverter();
+        conv.redirectMethodCall(modelGetClass, newGetClass);
+
+        for (CtMethod method : modelMethods) {
+            int modifiers = method.getModifiers();
+            CtMethod newMethod;
+            if (Modifier.isStatic(modifiers)) {
+                if (method.equals(modelGetClass)) {
+                    newMethod = newGetClass;
+                } else if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)) {
+                    newMethod = CtNewMethod.copy(method, target, classMap);
+                    newMethod.instrument(conv);
+                } else {
+                    continue;
+                }
+            } else {
+                if (Modifier.isPrivate(modifiers)) {
+                    continue;
+                }
+                newMethod = CtNewMethod.delegator(method, target);
+
+                // Include the generic signature
+                for (Object attr : method.getMethodInfo().getAttributes()) {
+                    if (attr instanceof javassist.bytecode.SignatureAttribute) {
+                        javassist.bytecode.SignatureAttribute signatureAttribute = (javassist.bytecode.SignatureAttribute) attr;
+                        newMethod.getMethodInfo().addAttribute(signatureAttribute);
+                    }
+                }
+            }
 
             if (!targetHasMethod(targetMethods, newMethod)) {
                 target.addMethod(newMethod);
@@ -87,7 +115,6 @@ public class ModelInstrumentation{
                 System.out.println("Detected method: " + newMethod.getName() + ", skipping delegate.");
             }
         }
-
     }
 
     //TODO: remove unused methods later
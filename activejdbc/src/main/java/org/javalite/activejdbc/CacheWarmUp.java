@@ -0,0 +1,317 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.QueryCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills caches of {@link org.javalite.activejdbc.annotations.Cached} models at startup, so that first requests
+ * after a restart do not hit the database. Queries to preload are added as lists, the same way the application
+ * builds them, so that they produce the same cache keys:
+ * <pre>
+ * CacheWarmUp warmUp = new CacheWarmUp(new ConnectionSpec("jdbc/main"))
+ *         .add(Country.findAll().orderBy("name"))
+ *         .add(Currency.where("active = ?", true));
+ * warmUp.warmUp(new File("/var/cache/app/cache.snapshot"), executor);
+ * ...
+ * //on shutdown
+ * warmUp.save(new File("/var/cache/app/cache.snapshot"));
+ * </pre>
+ * Tables are loaded in parallel, each with its own connection. {@link #save(File)} writes cached results of the
+ * queries to a snapshot file, together with a change marker of each table. On start, results of a table are
+ * taken from the snapshot if its marker did not change, otherwise they are loaded from the database.
+ * <p/>
+ * The default marker of a table is its number of rows and maximum ID, and maximum <code>updated_at</code> if
+ * the table has it. It does not notice updates of tables without <code>updated_at</code>, use
+ * {@link #marker(Class, String)} to set a better marker for such tables. Queries with includes are always loaded
+ * from the database, because changes of included tables are not checked.
+ *
+ * @author Igor Polevoy
+ */
+public class CacheWarmUp {
+    private final static Logger logger = LoggerFactory.getLogger(CacheWarmUp.class);
+
+    private static final int VERSION = 1;
+
+    private final String dbName;
+    private final ConnectionSpec connectionSpec;
+    //table -> queries, in order of addition
+    private final Map<String, List<LazyList<? extends Model>>> queries = new LinkedHashMap<String, List<LazyList<? extends Model>>>();
+    private final Map<String, String> markerQueries = new HashMap<String, String>();
+    private final AtomicInteger restoredCount = new AtomicInteger(), loadedCount = new AtomicInteger();
+
+    /**
+     * Warms up caches of models of the default database.
+     *
+     * @param connectionSpec specification of connections used to load tables.
+     */
+    public CacheWarmUp(ConnectionSpec connectionSpec) {
+        this("default", connectionSpec);
+    }
+
+    /**
+     * @param dbName name of database of models.
+     * @param connectionSpec specification of connections used to load tables.
+     */
+    public CacheWarmUp(String dbName, ConnectionSpec connectionSpec) {
+        if (dbName == null || connectionSpec == null) {
+            throw new IllegalArgumentException("database name and connection spec cannot be null");
+        }
+        this.dbName = dbName;
+        this.connectionSpec = connectionSpec;
+    }
+
+    /**
+     * Adds a query to preload. The list is not loaded by this method.
+     *
+     * @param query list of a cached model.
+     * @return this instance, for chaining.
+     */
+    public CacheWarmUp add(LazyList<? extends Model> query) {
+        MetaModel metaModel = query.getMetaModel();
+        if (metaModel == null || query instanceof SuperLazyList) {
+            throw new IllegalArgumentException("only lists created by finders of models can be preloaded");
+        }
+        if (!metaModel.cached()) {
+            throw new IllegalArgumentException("model " + metaModel.getModelClass().getName() + " is not cached");
+        }
+        if (!metaModel.getDbName().equals(dbName)) {
+            throw new IllegalArgumentException("model " + metaModel.getModelClass().getName() + " is not of database: " + dbName);
+        }
+        String table = metaModel.getTableName();
+        if (!queries.containsKey(table)) {
+            queries.put(table, new ArrayList<LazyList<? extends Model>>());
+        }
+        queries.get(table).add(query);
+        return this;
+    }
+
+    /**
+     * Sets a query which returns values that change whenever a table changes, such as a version from a table
+     * maintained by triggers. Results of the table are restored from a snapshot only if the query returns
+     * the same values.
+     *
+     * @param modelClass model of a table.
+     * @param query SQL query.
+     * @return this instance, for chaining.
+     */
+    public CacheWarmUp marker(Class<? extends Model> modelClass, String query) {
+        markerQueries.put(Registry.instance().getMetaModel(modelClass).getTableName(), query);
+        return this;
+    }
+
+    /**
+     * Loads all queries into cache, tables in parallel. Waits until all tables are loaded.
+     *
+     * @param snapshot snapshot written by {@link #save(File)}, can be null or not exist. Results of tables which
+     *                 did not change since the snapshot was written are taken from it.
+     * @param executor executor to load tables.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void warmUp(File snapshot, ExecutorService executor) throws InterruptedException {
+        final Map<String, TableSnapshot> snapshots = snapshot == null ? new HashMap<String, TableSnapshot>() : read(snapshot);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final Map.Entry<String, List<LazyList<? extends Model>>> entry : queries.entrySet()) {
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    warmUp(entry.getKey(), entry.getValue(), snapshots.get(entry.getKey()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.warn("failed to warm up cache", e.getCause());
+            }
+        }
+    }
+
+    private void warmUp(String table, List<LazyList<? extends Model>> tableQueries, TableSnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        int restored = 0, loaded = 0;
+        DB db = new DB(dbName);
+        db.open(connectionSpec);
+        try {
+            if (snapshot != null && !snapshot.marker.equals(marker(db, table))) {
+                LogFilter.log(logger, "Table changed since cache snapshot was written: " + table);
+                snapshot = null;
+            }
+            for (LazyList<? extends Model> query : tableQueries) {
+                String sql = query.toSql(false);
+                Object cached = snapshot == null || !query.dependencies().isEmpty() ? null
+                        : snapshot.items.get(key(sql, query.getParams()));
+                if (cached != null) {
+                    QueryCache.instance().addItem(table, sql, query.getParams(), cached, query.dependencies());
+                    restored++;
+                } else {
+                    query.copy().size();
+                    loaded++;
+                }
+            }
+        } finally {
+            db.close();
+        }
+        restoredCount.addAndGet(restored);
+        loadedCount.addAndGet(loaded);
+        LogFilter.log(logger, "Warmed up cache of table: " + table + ", restored from snapshot: " + restored
+                + ", loaded: " + loaded + ", time: " + (System.currentTimeMillis() - start) + " milliseconds");
+    }
+
+    /**
+     * Writes cached results of all queries to a snapshot file. Queries which are not in cache at the moment
+     * are skipped. The file is replaced atomically where the file system allows it.
+     *
+     * @param snapshot file to write.
+     */
+    public void save(File snapshot) throws IOException {
+        DB db = new DB(dbName);
+        boolean opened = !db.hasConnection();
+        if (opened) {
+            db.open(connectionSpec);
+        }
+        File temp = new File(snapshot.getPath() + ".tmp");
+        ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(queries.size());
+            for (Map.Entry<String, List<LazyList<? extends Model>>> entry : queries.entrySet()) {
+                String table = entry.getKey();
+                out.writeUTF(table);
+                //marker is read before items: items purged after it was read are not in cache any more
+                out.writeUTF(marker(db, table));
+                List<Object[]> items = new ArrayList<Object[]>();
+                for (LazyList<? extends Model> query : entry.getValue()) {
+                    if (!query.dependencies().isEmpty()) {
+                        continue;
+                    }
+                    String sql = query.toSql(false);
+                    Object item = QueryCache.instance().getItem(table, sql, query.getParams(), query.dependencies());
+                    if (item != null) {
+                        items.add(new Object[]{key(sql, query.getParams()), item});
+                    }
+                }
+                out.writeInt(items.size());
+                for (Object[] item : items) {
+                    out.writeUTF((String) item[0]);
+                    out.writeObject(item[1]);
+                }
+                out.reset();
+            }
+        } finally {
+            out.close();
+            if (opened) {
+                db.close();
+            }
+        }
+        if (!temp.renameTo(snapshot)) {
+            //some file systems do not replace existing files
+            snapshot.delete();
+            if (!temp.renameTo(snapshot)) {
+                throw new IOException("failed to rename " + temp + " to " + snapshot);
+            }
+        }
+    }
+
+    private Map<String, TableSnapshot> read(File snapshot) {
+        Map<String, TableSnapshot> snapshots = new HashMap<String, TableSnapshot>();
+        if (!snapshot.exists()) {
+            return snapshots;
+        }
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshot)));
+            if (in.readInt() != VERSION) {
+                logger.warn("ignored cache snapshot of unknown version: " + snapshot);
+                return snapshots;
+            }
+            int tables = in.readInt();
+            for (int i = 0; i < tables; i++) {
+                String table = in.readUTF();
+                TableSnapshot tableSnapshot = new TableSnapshot(in.readUTF());
+                int items = in.readInt();
+                for (int j = 0; j < items; j++) {
+                    tableSnapshot.items.put(in.readUTF(), in.readObject());
+                }
+                snapshots.put(table, tableSnapshot);
+            }
+        } catch (Exception e) {
+            logger.warn("failed to read cache snapshot: " + snapshot + ", loading all tables from database", e);
+            snapshots.clear();
+        } finally {
+            closeQuietly(in);
+        }
+        return snapshots;
+    }
+
+    private String marker(DB db, String table) {
+        String query = markerQueries.get(table);
+        if (query == null) {
+            MetaModel metaModel = Registry.instance().getMetaModel(table);
+            query = "SELECT COUNT(*), MAX(" + metaModel.getIdName() + ")"
+                    + (metaModel.hasAttribute("updated_at") ? ", MAX(updated_at)" : "") + " FROM " + table;
+        }
+        StringBuilder marker = new StringBuilder();
+        for (Map row : db.findAll(query)) {
+            marker.append(new TreeMap(row)).append(';');
+        }
+        return marker.toString();
+    }
+
+    private static String key(String sql, Object[] params) {
+        return params == null || params.length == 0 ? sql : sql + Arrays.deepToString(params);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {}
+        }
+    }
+
+    /**
+     * @return number of queries restored from a snapshot by {@link #warmUp(File, ExecutorService)}.
+     */
+    public int getRestoredCount() {
+        return restoredCount.get();
+    }
+
+    /**
+     * @return number of queries loaded from database by {@link #warmUp(File, ExecutorService)}.
+     */
+    public int getLoadedCount() {
+        return loadedCount.get();
+    }
+
+    private static final class TableSnapshot {
+        private final String marker;
+        private final Map<String, Object> items = new HashMap<String, Object>();
+
+        private TableSnapshot(String marker) {
+            this.marker = marker;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a query with an <code>IN (?, ?, ...)</code> condition for any number of keys. Keys are split into chunks
+ * of at most {@link Configuration#getIncludeChunkSize()} bind parameters, so queries stay within limits of databases,
+ * such as 1000 elements in an Oracle IN list. The number of placeholders is rounded up to a power of two by repeating
+ * the last key, so that only a few distinct SQL statements are ever produced for any number of keys, and the database
+ * can reuse their plans.
+ * <p/>
+ * If an executor and a connection spec are provided, chunks are loaded concurrently, each on its own connection
+ * opened by a worker thread. Keep in mind that these connections do not see uncommitted changes of the current one.
+ * A worker which already has a connection of the database attached uses it and leaves it open.
+ *
+ * @author Igor Polevoy
+ */
+class ChunkedInLoader {
+
+    /**
+     * Query for one chunk of keys.
+     */
+    interface ChunkQuery<R> {
+        /**
+         * @param in placeholders for keys, such as: <code>(?, ?, ?, ?)</code>.
+         * @param keys values for placeholders.
+         * @return results for these keys, fully loaded.
+         */
+        List<R> run(String in, Object[] keys);
+    }
+
+    private final String dbName;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final ConnectionSpec connectionSpec;
+
+    ChunkedInLoader(String dbName, int chunkSize, ExecutorService executor, ConnectionSpec connectionSpec) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        this.dbName = dbName;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.connectionSpec = connectionSpec;
+    }
+
+    /**
+     * Runs a query for every chunk of keys and merges results in order of chunks.
+     *
+     * @param keys keys to load, nulls and duplicates are ignored.
+     * @param query query to run for every chunk.
+     * @return results of all chunks.
+     */
+    <R> List<R> load(Collection keys, final ChunkQuery<R> query) {
+        List<Object[]> chunks = chunks(keys, chunkSize);
+        List<R> results = new ArrayList<R>();
+        if (executor == null || connectionSpec == null || chunks.size() < 2) {
+            for (Object[] chunk : chunks) {
+                results.addAll(query.run(placeholders(chunk.length), chunk));
+            }
+            return results;
+        }
+
+        List<Future<List<R>>> futures = new ArrayList<Future<List<R>>>(chunks.size());
+        for (final Object[] chunk : chunks) {
+            futures.add(executor.submit(new Callable<List<R>>() {
+                public List<R> call() {
+                    DB db = new DB(dbName);
+                    //a pooled thread can already have a connection of this database attached
+                    boolean opened = !db.hasConnection();
+                    if (opened) {
+                        db.open(connectionSpec);
+                    }
+                    try {
+                        return query.run(placeholders(chunk.length), chunk);
+                    } finally {
+                        if (opened) {
+                            db.close();
+                        }
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<List<R>> future : futures) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DBException(e.getCause());
+        } finally {
+            for (Future<List<R>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    static List<Object[]> chunks(Collection keys, int chunkSize) {
+        List<Object> unique = new ArrayList<Object>(new LinkedHashSet<Object>(keys));
+        unique.remove(null);
+        List<Object[]> chunks = new ArrayList<Object[]>();
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            int size = Math.min(chunkSize, unique.size() - from);
+            Object[] chunk = new Object[arity(size, chunkSize)];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = unique.get(from + Math.min(i, size - 1));
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * @return smallest power of two not less than size, but not more than chunk size.
+     */
+    static int arity(int size, int chunkSize) {
+        int arity = 1;
+        while (arity < size) {
+            arity <<= 1;
+        }
+        return Math.min(arity, chunkSize);
+    }
+
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3 + 1).append('(');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.*;
+
+/**
+ * Compact storage of attributes of a model loaded from DB. Values are kept in an array, positions of attributes
+ * in this array are defined by an immutable {@link Layout} shared by all models of the same type. Attributes
+ * not known to the layout are kept in an additional map, created only when needed.
+ * Behaves exactly like a <code>HashMap</code>, including keys whose values are null.
+ *
+ * @author Igor Polevoy
+ */
+class CompactAttributes extends AbstractMap<String, Object> {
+
+    //marks positions of attributes that were never set or were removed
+    private static final Object ABSENT = new Object();
+
+    private final Layout layout;
+    private final Object[] values;
+    private Map<String, Object> extra;
+    private int size;
+
+    CompactAttributes(Layout layout) {
+        this.layout = layout;
+        this.values = new Object[layout.names.length];
+        Arrays.fill(values, ABSENT);
+    }
+
+    boolean hasLayout(Layout layout) {
+        return this.layout == layout;
+    }
+
+    Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Sets a value by position in the layout.
+     *
+     * @param index position of attribute in the layout.
+     * @param value value of attribute.
+     */
+    void set(int index, Object value) {
+        if (values[index] == ABSENT) {
+            size++;
+        }
+        values[index] = value;
+    }
+
+    @Override
+    public int size() {
+        return extra == null ? size : size + extra.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = layout.indexOf(key);
+        if (index != -1) {
+            return values[index] != ABSENT;
+        }
+        return extra != null && extra.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = layout.indexOf(key);
+        if (index != -1) {
+            Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+        return extra == null ? null : extra.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = layout.indexOf(key);
+        if (index != -1) {
+            Object old = values[index];
+            set(index, value);
+            return old == ABSENT ? null : old;
+        }
+        if (extra == null) {
+            extra = new HashMap<String, Object>();
+        }
+        return extra.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = layout.indexOf(key);
+        if (index != -1) {
+            Object old = values[index];
+            if (old == ABSENT) {
+                return null;
+            }
+            values[index] = ABSENT;
+            size--;
+            return old;
+        }
+        return extra == null ? null : extra.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, ABSENT);
+        size = 0;
+        extra = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactAttributes.this.size();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int next = advance(0);
+        private int current = -1;
+        private Iterator<Entry<String, Object>> extraIterator;
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == ABSENT) {
+                from++;
+            }
+            return from;
+        }
+
+        public boolean hasNext() {
+            if (next < values.length) {
+                return true;
+            }
+            if (extraIterator == null && extra != null) {
+                extraIterator = extra.entrySet().iterator();
+            }
+            return extraIterator != null && extraIterator.hasNext();
+        }
+
+        public Entry<String, Object> next() {
+            if (next < values.length) {
+                current = next;
+                next = advance(next + 1);
+                return new SlotEntry(current);
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = -1;
+            return extraIterator.next();
+        }
+
+        public void remove() {
+            if (current != -1) {
+                if (values[current] == ABSENT) {
+                    throw new IllegalStateException();
+                }
+                values[current] = ABSENT;
+                size--;
+            } else if (extraIterator != null) {
+                extraIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private class SlotEntry implements Entry<String, Object> {
+        private final int index;
+
+        SlotEntry(int index) {
+            this.index = index;
+        }
+
+        public String getKey() {
+            return layout.names[index];
+        }
+
+        public Object getValue() {
+            Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+
+        public Object setValue(Object value) {
+            Object old = getValue();
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry e = (Entry) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * Positions of attributes of a model in {@link CompactAttributes}. Immutable, one instance per {@link MetaModel}.
+     */
+    static final class Layout {
+        private final String[] names;
+        private final Map<String, Integer> indexes;
+
+        Layout(Collection<String> names) {
+            this.names = names.toArray(new String[names.size()]);
+            Map<String, Integer> map = new HashMap<String, Integer>();
+            for (int i = 0; i < this.names.length; i++) {
+                map.put(this.names[i], i);
+            }
+            this.indexes = map;
+        }
+
+        /**
+         * @return number of attributes in this layout.
+         */
+        int size() {
+            return names.length;
+        }
+
+        /**
+         * @param index position of attribute.
+         * @return name of attribute at the position.
+         */
+        String name(int index) {
+            return names[index];
+        }
+
+        /**
+         * @param name name of attribute, case sensitive.
+         * @return position of attribute, or -1 if this layout does not have it.
+         */
+        int indexOf(Object name) {
+            Integer index = indexes.get(name);
+            return index == null ? -1 : index;
+        }
+    }
+}
@@ -114,33 +114,118 @@ public class Configuration {
         return properties.getProperty("collectStatisticsOnHold", "false").equals("true");
     }
 
+    /**
+     * Fetch size for queries that stream results, such as {@link DB#find(String, Object...)}, configured
+     * with property <code>fetchSize</code>. If not configured, each dialect uses its own default.
+     *
+     * @return configured fetch size, 0 if not configured.
+     */
+    public int getFetchSize() {
+        String fetchSize = properties.getProperty("fetchSize");
+        try {
+            return fetchSize == null ? 0 : Integer.parseInt(fetchSize.trim());
+        } catch (NumberFormatException e) {
+            throw new InitException("property 'fetchSize' must be an integer, got: " + fetchSize);
+        }
+    }
+
+    /**
+     * Maximum number of keys in one <code>IN (...)</code> query generated to load includes, configured with property
+     * <code>includeChunkSize</code>. Default is 500, which is below limits of all supported databases.
+     *
+     * @return maximum number of keys in one query for includes.
+     */
+    public int getIncludeChunkSize() {
+        String chunkSize = properties.getProperty("includeChunkSize");
+        try {
+            int size = chunkSize == null ? 500 : Integer.parseInt(chunkSize.trim());
+            if (size < 1) {
+                throw new InitException("property 'includeChunkSize' must be positive, got: " + chunkSize);
+            }
+            return size;
+        } catch (NumberFormatException e) {
+            throw new InitException("property 'includeChunkSize' must be an integer, got: " + chunkSize);
+        }
+    }
+
+    /**
+     * Maximum time in milliseconds a thread waits for another thread which is already loading the same
+     * missing cache item, configured with property <code>cacheLoadTimeout</code>. Default is 10000. After that
+     * the waiting thread runs the query itself.
+     *
+     * @return maximum time to wait for a cache item loaded by another thread.
+     */
+    public long getCacheLoadTimeout() {
+        String timeout = properties.getProperty("cacheLoadTimeout");
+        try {
+            long millis = timeout == null ? 10000 : Long.parseLong(timeout.trim());
+            if (millis < 0) {
+                throw new InitException("property 'cacheLoadTimeout' must not be negative, got: " + timeout);
+            }
+            return millis;
+        } catch (NumberFormatException e) {
+            throw new InitException("property 'cacheLoadTimeout' must be an integer, got: " + timeout);
+        }
+    }
+
+    /**
+     * Configured with property <code>cacheMBeans</code>, default is false.
+     *
+     * @return true if statistics of caches of tables are registered as JMX MBeans, see
+     * {@link org.javalite.activejdbc.cache.QueryCache#registerMBeans()}.
+     */
+    public boolean cacheMBeansEnabled() {
+        return properties.getProperty("cacheMBeans", "false").equals("true");
+    }
+
     public boolean cacheEnabled(){
         return cacheManager != null;
     }
 
     DefaultDialect getDialect(MetaModel mm){
-        if(dialects.get(mm.getDbType()) == null){
-            if(mm.getDbType().equalsIgnoreCase("Oracle")){
-                dialects.put(mm.getDbType(), new OracleDialect());
+        return getDialect(mm.getDbType());
+    }
+
+    /**
+     * @param dbType name of a DBMS as returned by JDBC driver, such as Oracle, MySQL, etc.
+     * @return dialect for this DBMS.
+     */
+    DefaultDialect getDialect(String dbType){
+        if(dialects.get(dbType) == null){
+            if(dbType.equalsIgnoreCase("Oracle")){
+                dialects.put(dbType, new OracleDialect());
             }
-            else if(mm.getDbType().equalsIgnoreCase("MySQL")){
-                dialects.put(mm.getDbType(), new MySQLDialect());
+            else if(dbType.equalsIgnoreCase("MySQL")){
+                dialects.put(dbType, new MySQLDialect());
             }
-            else if(mm.getDbType().equalsIgnoreCase("PostgreSQL")){
-                dialects.put(mm.getDbType(), new PostgreSQLDialect());
+            else if(dbType.equalsIgnoreCase("PostgreSQL")){
+                dialects.put(dbType, new PostgreSQLDialect());
             }
-            else if(mm.getDbType().equalsIgnoreCase("h2")){
-                dialects.put(mm.getDbType(), new H2Dialect());
+            else if(dbType.equalsIgnoreCase("h2")){
+                dialects.put(dbType, new H2Dialect());
             }
-            else if(mm.getDbType().equalsIgnoreCase("Microsoft SQL Server")){
-                dialects.put(mm.getDbType(), new MSSQLDialect());
+            else if(dbType.equalsIgnoreCase("Microsoft SQL Server")){
+                dialects.put(dbType, new MSSQLDialect());
             }
             else{
-                dialects.put(mm.getDbType(), new DefaultDialect());
+                dialects.put(dbType, new DefaultDialect());
             }
         }
 
-        return dialects.get(mm.getDbType());
+        return dialects.get(dbType);
+    }
+
+    /**
+     * Replaces a dialect used for a DBMS.
+     *
+     * @param dbType name of a DBMS as returned by JDBC driver.
+     * @param dialect new dialect.
+     * @return previous dialect.
+     */
+    DefaultDialect setDialect(String dbType, DefaultDialect dialect){
+        DefaultDialect previous = getDialect(dbType);
+        dialects.put(dbType, dialect);
+        return previous;
     }
 
 
@@ -17,6 +17,8 @@ limitations under the License.
 
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.dialects.DefaultDialect;
 import org.javalite.common.Convert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +28,8 @@ import javax.naming.InitialContext;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class provides a number of convenience methods for opening/closing database connections, running various 
@@ -39,6 +43,8 @@ public class DB {
     
     private String dbName;
     final static Logger logger = LoggerFactory.getLogger(DB.class);
+    //logical database name -> name of its DBMS, which is the same for all its connections, just like in metamodels
+    private final static ConcurrentMap<String, String> databaseProductNames = new ConcurrentHashMap<String, String>();
 
     /**
      * Creates a new DB object representing a connection to a DB.
@@ -224,6 +230,7 @@ public class DB {
             logger.warn("Could not close connection! MUST INVESTIGATE POTENTIAL CONNECTION LEAK!", e);
         }finally{
             ConnectionsAccess.detach(dbName);// lets free the thread from connection
+            QueryCache.instance().rollbackTransaction(dbName);//unfinished transaction did not change cache
         }
     }
 
@@ -274,14 +281,22 @@ public class DB {
      */
     public Object firstCell(String query, Object... params) {
 
-        List<Map> list = findAll(query, params);
-        if(list.size() == 0) return null;
+        //first element is the value, second is the number of columns
+        final Object[] result = new Object[2];
+        long start = System.currentTimeMillis();
+        find(query, params).with(new IndexedRowListener() {
+            public boolean next(IndexedRow row) {
+                result[0] = row.get(0);
+                result[1] = row.size();
+                return false;
+            }
+        });
+        LogFilter.logQuery(logger, query, params, start);
 
-        Map map = list.get(0);
-        if(map.size() > 1)
+        if(result[1] != null && (Integer) result[1] > 1)
             throw new IllegalArgumentException("query: " + query + " selects more than one column");
 
-        return map.get(map.keySet().toArray()[0]);
+        return result[0];
     }
 
 
@@ -341,11 +356,12 @@ public class DB {
 
         final List results = new ArrayList();
         long start = System.currentTimeMillis();
-        find(query, params).with(new RowListenerAdapter() {
-            public void onNext(Map<String, Object> row) {
+        find(query, params).with(new IndexedRowListener() {
+            public boolean next(IndexedRow row) {
                 if(row.size() > 1) throw new IllegalArgumentException("Query selects more than one column");
 
-                results.add(row.get(row.keySet().toArray()[0]));
+                results.add(row.get(0));
+                return true;
             }
         });
 
@@ -422,14 +438,22 @@ public class DB {
 
     private PreparedStatement createStreamingPreparedStatement(String query) throws SQLException {
         Connection conn = connection();
-        PreparedStatement res;
-        if ("mysql".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName())) {
-            res = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-            res.setFetchSize(Integer.MIN_VALUE);
-        } else {
-            res = conn.prepareStatement(query);
+        return dialect(conn).createStreamingPreparedStatement(conn, query, Registry.instance().getConfiguration().getFetchSize());
+    }
+
+    /**
+     * Finds a dialect by name of DBMS of a connection. Name is retrieved from a connection only once per database.
+     *
+     * @param conn connection.
+     * @return dialect for connection.
+     */
+    private DefaultDialect dialect(Connection conn) throws SQLException {
+        String dbType = databaseProductNames.get(dbName);
+        if (dbType == null) {
+            dbType = conn.getMetaData().getDatabaseProductName();
+            databaseProductNames.put(dbName, dbType);
         }
-        return res;
+        return Registry.instance().getConfiguration().getDialect(dbType);
     }
 
     /**
@@ -458,14 +482,7 @@ public class DB {
 
     private Statement createStreamingStatement() throws SQLException {
         Connection conn = connection();
-        Statement res;
-        if ("mysql".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName())) {
-            res = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-            res.setFetchSize(Integer.MIN_VALUE);
-        } else {
-            res = conn.createStatement();
-        }
-        return res;
+        return dialect(conn).createStreamingStatement(conn, Registry.instance().getConfiguration().getFetchSize());
     }
 
     /**
@@ -605,6 +622,7 @@ public class DB {
                 throw new DBException("Cannot open transaction, connection '" + dbName + "' not available");
             }
             c.setAutoCommit(false);
+            QueryCache.instance().openTransaction(dbName);
             LogFilter.log(logger, "Transaction opened");
         } catch (SQLException ex) {
             throw new DBException(ex.getMessage(), ex);
@@ -622,6 +640,7 @@ public class DB {
                 throw new DBException("Cannot commit transaction, connection '" + dbName + "' not available");
             }
             c.commit();
+            QueryCache.instance().commitTransaction(dbName);
             LogFilter.log(logger, "Transaction committed");
         } catch (SQLException ex) {
             throw new DBException(ex.getMessage(), ex);
@@ -638,6 +657,7 @@ public class DB {
                 throw new DBException("Cannot rollback transaction, connection '" + dbName + "' not available");
             }
             c.rollback();
+            QueryCache.instance().rollbackTransaction(dbName);
             LogFilter.log(logger, "Transaction rolled back");
         } catch (SQLException ex) {
             throw new DBException(ex.getMessage(), ex);
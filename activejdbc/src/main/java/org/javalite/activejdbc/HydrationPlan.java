@@ -0,0 +1,143 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.common.Convert;
+
+import java.sql.Clob;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps columns of a result set directly to attributes of a model. A plan is computed once for every combination
+ * of a model and column labels of a result set, and is then used for every row, so loading a model needs neither
+ * an intermediate map of a row, nor lookups of attributes by name.
+ *
+ * @author Igor Polevoy
+ */
+class HydrationPlan {
+    private final MetaModel metaModel;
+    private final String idName;
+    private final int idColumn;
+    private final String[] attributeNames;
+    private final int[] columns;
+    private final CompactAttributes.Layout layout;
+    private final int idSlot;
+    private final int[] slots;
+
+    /**
+     * @param metaModel metamodel of models to hydrate.
+     * @param labels lower case labels of columns of a result set.
+     */
+    HydrationPlan(MetaModel metaModel, String[] labels) {
+        this.metaModel = metaModel;
+        this.idName = metaModel.getIdName();
+        this.idColumn = indexOf(labels, idName);
+
+        List<String> names = new ArrayList<String>();
+        for (Object name : metaModel.getAttributeNamesSkipId()) {
+            if (!((String) name).equalsIgnoreCase(idName)) {
+                names.add((String) name);
+            }
+        }
+        attributeNames = names.toArray(new String[names.size()]);
+        columns = new int[attributeNames.length];
+        for (int i = 0; i < attributeNames.length; i++) {
+            columns[i] = indexOf(labels, attributeNames[i].toLowerCase());
+        }
+
+        layout = metaModel.getAttributeLayout();
+        idSlot = layout.indexOf(idName);
+        slots = new int[attributeNames.length];
+        for (int i = 0; i < attributeNames.length; i++) {
+            slots[i] = layout.indexOf(attributeNames[i]);
+        }
+    }
+
+    private static int indexOf(String[] labels, String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a new model and sets its attributes from values of a current row. Attributes that are not
+     * selected are set to null. Produces the same result as {@link Model#instance(Map, MetaModel)}.
+     *
+     * @param row current row of a result set.
+     * @return new model populated with values of a row.
+     */
+    <T extends Model> T newModel(IndexedRow row) {
+        return this.<T>newModel(row, false);
+    }
+
+    /**
+     * Creates a new model and sets its attributes from values of a current row.
+     *
+     * @param row current row of a result set.
+     * @param partial true if the query selected some of the columns only, see {@link LazyList#select(String...)}.
+     *                Attributes that are not selected are then left absent, so that they are loaded on first access
+     *                and are not written by {@link Model#saveIt()}. Otherwise they are set to null.
+     * @return new model populated with values of a row.
+     */
+    <T extends Model> T newModel(IndexedRow row, boolean partial) {
+        T model = Model.<T>newInstance(metaModel);
+        if (partial) {
+            model.markPartial();
+        }
+        Map<String, Object> attributes = model.getAttributes();
+        CompactAttributes compact = attributes instanceof CompactAttributes
+                && ((CompactAttributes) attributes).hasLayout(layout) ? (CompactAttributes) attributes : null;
+
+        if (idColumn != -1) {
+            Object id = row.get(idColumn);
+            if (id != null) {
+                put(attributes, compact, idSlot, idName, id);
+            }
+        }
+
+        DefaultDialect dialect = metaModel.getDialect();
+        boolean cached = metaModel.cached();
+        for (int i = 0; i < attributeNames.length; i++) {
+            if (partial && columns[i] == -1) {
+                continue;
+            }
+            Object value = columns[i] == -1 ? null : row.get(columns[i]);
+            //see Model#hydrate(Map) on why contents of clobs are read for cached models
+            if (value instanceof Clob && cached) {
+                attributes.put(attributeNames[i].toLowerCase(), Convert.toString(value));
+            } else {
+                put(attributes, compact, slots[i], attributeNames[i], dialect.overrideDriverTypeConversion(metaModel, attributeNames[i], value));
+            }
+        }
+        return model;
+    }
+
+    private static void put(Map<String, Object> attributes, CompactAttributes compact, int slot, String name, Object value) {
+        if (compact != null && slot != -1) {
+            compact.set(slot, value);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+}
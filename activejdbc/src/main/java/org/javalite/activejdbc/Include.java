@@ -0,0 +1,92 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Specification of a nested include for {@link LazyList#include(Include...)}. For instance, if an
+ * <code>Order</code> has many <code>Item</code>s, and an <code>Item</code> belongs to a <code>Product</code>
+ * which belongs to a <code>Vendor</code>, then this query:
+ * <pre>
+ * List&lt;Order&gt; orders = Order.where("placed_at &gt; ?", yesterday)
+ *         .include(Include.model(Item.class).with(Include.model(Product.class).with(Vendor.class)));
+ * </pre>
+ * will load orders, items, products and vendors in four queries - one per level (unless there are so many keys
+ * that a level needs to be split into chunks).
+ *
+ * @author Igor Polevoy
+ */
+public class Include {
+    private final Class<? extends Model> modelClass;
+    private final List<Include> nested = new ArrayList<Include>();
+
+    private Include(Class<? extends Model> modelClass) {
+        if (modelClass == null) throw new IllegalArgumentException("model class cannot be null");
+        this.modelClass = modelClass;
+    }
+
+    /**
+     * Starts a specification of an include.
+     *
+     * @param modelClass class of a model associated with a model of a list, or with a model of an enclosing include.
+     * @return new include of the model.
+     */
+    public static Include model(Class<? extends Model> modelClass) {
+        return new Include(modelClass);
+    }
+
+    /**
+     * Adds models to include for every model of this include.
+     *
+     * @param classes classes of models associated with the model of this include.
+     * @return this include.
+     */
+    public Include with(Class<? extends Model>... classes) {
+        for (Class<? extends Model> clazz : classes) {
+            nested.add(new Include(clazz));
+        }
+        return this;
+    }
+
+    /**
+     * Adds includes to load for every model of this include, each can have includes of its own.
+     *
+     * @param includes includes of models associated with the model of this include.
+     * @return this include.
+     */
+    public Include with(Include... includes) {
+        Collections.addAll(nested, includes);
+        return this;
+    }
+
+    public Class<? extends Model> getModelClass() {
+        return modelClass;
+    }
+
+    List<Include> getNested() {
+        return nested;
+    }
+
+    @Override
+    public String toString() {
+        return nested.isEmpty() ? modelClass.getSimpleName() : modelClass.getSimpleName() + " with " + nested;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Row of a result set with values accessed by column index. The same instance is reused for all rows of a
+ * result set, so it is only valid during a call to {@link IndexedRowListener#next(IndexedRow)}. Call
+ * {@link #toMap()} to keep values of a row after that.
+ *
+ * @author Igor Polevoy
+ */
+public class IndexedRow {
+    private final String[] labels;
+    private final boolean[] duplicates;
+    private final Object[] values;
+
+    /**
+     * @param labels lower case column labels, in order of columns in a result set.
+     */
+    IndexedRow(String[] labels) {
+        this.labels = labels;
+        this.values = new Object[labels.length];
+        this.duplicates = new boolean[labels.length];
+        for (int i = 1; i < labels.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (labels[i].equals(labels[j])) {
+                    duplicates[i] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return lower case labels of all columns, do not modify.
+     */
+    String[] getLabels() {
+        return labels;
+    }
+
+    void read(ResultSet rs) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+    }
+
+    /**
+     * @return number of columns in this row.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param index zero-based index of a column.
+     * @return lower case label of a column.
+     */
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @param index zero-based index of a column.
+     * @return value of a column.
+     */
+    public Object get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns value of a column by its label. This is slower than {@link #get(int)}.
+     *
+     * @param label label of a column, case insensitive.
+     * @return value of a first column with this label, null if not found.
+     */
+    public Object get(String label) {
+        int index = indexOf(label);
+        return index == -1 ? null : values[index];
+    }
+
+    /**
+     * @param label label of a column, case insensitive.
+     * @return zero-based index of a first column with this label, -1 if not found.
+     */
+    public int indexOf(String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies values of this row to a new map. Keys are lower case labels of columns. If a result set has more
+     * than one column with the same label, the value of the first of these columns is used.
+     *
+     * @return new map with values of this row.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> row = new HashMap<String, Object>(values.length * 4 / 3 + 1);
+        for (int i = 0; i < values.length; i++) {
+            if (!duplicates[i]) {
+                row.put(labels[i], values[i]);
+            }
+        }
+        return row;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Key columns of keyset pagination and conversion of their values to opaque cursor tokens and back.
+ * Tokens contain types and values of key columns of a last row of a page, and a checksum of column names
+ * to reject tokens generated for a different order.
+ *
+ * @author Igor Polevoy
+ */
+class Keyset {
+    private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+    private static final String VERSION = "1";
+
+    private final String[] columns;
+    private final boolean[] descending;
+    private final String[] attributes;
+
+    /**
+     * @param orderBys order by clause, such as: <code>"category, created_at desc"</code>, can be null.
+     * @param idName name of primary key, it is appended to key columns if missing to make order unique.
+     */
+    Keyset(String orderBys, String idName) {
+        List<String> columnList = new ArrayList<String>();
+        List<Boolean> descendingList = new ArrayList<Boolean>();
+        boolean hasId = false;
+        if (orderBys != null) {
+            for (String orderBy : orderBys.split(",")) {
+                String[] parts = orderBy.trim().split("\\s+");
+                if (parts.length > 2 || !COLUMN.matcher(parts[0]).matches()
+                        || (parts.length == 2 && !parts[1].equalsIgnoreCase("asc") && !parts[1].equalsIgnoreCase("desc"))) {
+                    throw new IllegalArgumentException("keyset pagination supports only columns followed by optional ASC or DESC, got: '" + orderBy.trim() + "'");
+                }
+                columnList.add(parts[0]);
+                descendingList.add(parts.length == 2 && parts[1].equalsIgnoreCase("desc"));
+                hasId |= attributeName(parts[0]).equalsIgnoreCase(idName);
+            }
+        }
+        if (!hasId) {
+            columnList.add(idName);
+            descendingList.add(false);
+        }
+        columns = columnList.toArray(new String[columnList.size()]);
+        descending = new boolean[columns.length];
+        attributes = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            descending[i] = descendingList.get(i);
+            attributes[i] = attributeName(columns[i]).toLowerCase();
+        }
+    }
+
+    private static String attributeName(String column) {
+        return column.substring(column.indexOf('.') + 1);
+    }
+
+    String[] getColumns() {
+        return columns;
+    }
+
+    boolean[] getDescending() {
+        return descending;
+    }
+
+    /**
+     * @return order bys for a list, such as: <code>["category", "created_at DESC", "id"]</code>.
+     */
+    List<String> getOrderBys() {
+        List<String> orderBys = new ArrayList<String>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            orderBys.add(descending[i] ? columns[i] + " DESC" : columns[i]);
+        }
+        return orderBys;
+    }
+
+    /**
+     * Generates a token for values of key columns of a model.
+     *
+     * @param model last model of a page.
+     * @return opaque URL-safe token.
+     */
+    String encode(Model model) {
+        StringBuilder sb = new StringBuilder(VERSION).append(':').append(checksum());
+        for (String attribute : attributes) {
+            Object value = model.get(attribute);
+            String type, text;
+            if (value == null) {
+                throw new IllegalArgumentException("attribute '" + attribute + "' is null, keyset pagination requires non-null key columns");
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                    || value instanceof Byte) {
+                type = "L";
+                text = value.toString();
+            } else if (value instanceof Number) {
+                type = "N";
+                text = new BigDecimal(value.toString()).toPlainString();
+            } else if (value instanceof String) {
+                type = "S";
+                text = (String) value;
+            } else if (value instanceof java.sql.Date) {
+                type = "D";
+                text = value.toString();
+            } else if (value instanceof java.util.Date) {
+                Timestamp timestamp = value instanceof Timestamp ? (Timestamp) value : new Timestamp(((java.util.Date) value).getTime());
+                type = "T";
+                text = timestamp.toString();
+            } else if (value instanceof Boolean) {
+                type = "B";
+                text = value.toString();
+            } else {
+                throw new IllegalArgumentException("keyset pagination does not support values of type " + value.getClass().getName()
+                        + " in attribute '" + attribute + "'");
+            }
+            sb.append(',').append(type).append(text.length()).append(':').append(text);
+        }
+        try {
+            return toBase64(sb.toString().getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    /**
+     * Reads values of key columns from a token generated by {@link #encode(Model)}.
+     *
+     * @param token token.
+     * @return values of key columns.
+     * @throws IllegalArgumentException if token is malformed or was generated for different key columns.
+     */
+    Object[] decode(String token) {
+        String text;
+        try {
+            text = new String(fromBase64(token), "UTF-8");
+        } catch (Exception e) {
+            throw new IllegalArgumentException("malformed cursor: " + token);
+        }
+        String prefix = VERSION + ":" + checksum();
+        if (!text.startsWith(prefix)) {
+            throw new IllegalArgumentException("cursor was not generated for this order: " + token);
+        }
+        Object[] values = new Object[attributes.length];
+        int position = prefix.length();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (text.charAt(position) != ',') {
+                    throw new IllegalArgumentException("malformed cursor: " + token);
+                }
+                char type = text.charAt(position + 1);
+                int colon = text.indexOf(':', position + 2);
+                int length = Integer.parseInt(text.substring(position + 2, colon));
+                String value = text.substring(colon + 1, colon + 1 + length);
+                position = colon + 1 + length;
+                switch (type) {
+                    case 'L': values[i] = Long.valueOf(value); break;
+                    case 'N': values[i] = new BigDecimal(value); break;
+                    case 'S': values[i] = value; break;
+                    case 'D': values[i] = java.sql.Date.valueOf(value); break;
+                    case 'T': values[i] = Timestamp.valueOf(value); break;
+                    case 'B': values[i] = Boolean.valueOf(value); break;
+                    default: throw new IllegalArgumentException("malformed cursor: " + token);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("malformed cursor: " + token);
+        }
+        if (position != text.length()) {
+            throw new IllegalArgumentException("malformed cursor: " + token);
+        }
+        return values;
+    }
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    /**
+     * URL safe Base64 without padding. javax.xml.bind is not available on all runtimes, hence own implementation.
+     */
+    static String toBase64(byte[] bytes) {
+        StringBuilder sb = new StringBuilder((bytes.length * 4 + 2) / 3);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int n = (bytes[i] & 0xff) << 16;
+            if (i + 1 < bytes.length) {
+                n |= (bytes[i + 1] & 0xff) << 8;
+            }
+            if (i + 2 < bytes.length) {
+                n |= bytes[i + 2] & 0xff;
+            }
+            int chars = Math.min(4, (bytes.length - i) * 4 / 3 + 1);
+            for (int j = 0; j < chars; j++) {
+                sb.append(BASE64[(n >> (18 - 6 * j)) & 0x3f]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if text is not URL safe Base64 without padding.
+     */
+    static byte[] fromBase64(String text) {
+        if (text.length() % 4 == 1) {
+            throw new IllegalArgumentException("malformed Base64: " + text);
+        }
+        byte[] bytes = new byte[text.length() * 3 / 4];
+        int n = 0, bits = 0, index = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int value = c >= 'A' && c <= 'Z' ? c - 'A' : c >= 'a' && c <= 'z' ? c - 'a' + 26
+                    : c >= '0' && c <= '9' ? c - '0' + 52 : c == '-' ? 62 : c == '_' ? 63 : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("malformed Base64: " + text);
+            }
+            n = (n << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                bytes[index++] = (byte) (n >> bits);
+            }
+        }
+        return bytes;
+    }
+
+    private String checksum() {
+        int hash = 0;
+        for (int i = 0; i < columns.length; i++) {
+            hash = 31 * hash + attributes[i].hashCode();
+            hash = 31 * hash + (descending[i] ? 1 : 0);
+        }
+        return Integer.toHexString(hash);
+    }
+}
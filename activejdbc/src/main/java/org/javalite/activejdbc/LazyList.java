@@ -18,16 +18,18 @@ limitations under the License.
 package org.javalite.activejdbc;
 
 import org.javalite.activejdbc.associations.*;
+import org.javalite.activejdbc.cache.ItemLoader;
 import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.common.Convert;
 import org.javalite.common.Inflector;
 import org.javalite.common.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static org.javalite.common.Collections.list;
 
@@ -37,7 +39,7 @@ import static org.javalite.common.Collections.list;
  *
  * @author Igor Polevoy
  */
-public class LazyList<T extends Model> extends AbstractList<T>{
+public class LazyList<T extends Model> extends AbstractList<T> implements Serializable {
 
     final static Logger logger = LoggerFactory.getLogger(LazyList.class);
     protected List<T> delegate = new ArrayList<T>();
@@ -49,7 +51,15 @@ public class LazyList<T extends Model> extends AbstractList<T>{
     private Object[] params;
     private long limit = -1, offset = -1;
     private Map<Class<T>, Association> includes = new HashMap<Class<T>, Association>();
+    private Map<Class, List<Include>> nestedIncludes = new HashMap<Class, List<Include>>();
     private boolean forPaginator;
+    private ExecutorService includeExecutor;
+    private String[] columns;
+    private boolean batchParents;
+    private Set<String> dependencies = new HashSet<String>();
+    private ConnectionSpec includeConnectionSpec;
+    private String capturedColumn;
+    private Object capturedValue;
     
     protected LazyList(String subQuery, Object[] params, MetaModel metaModel){
         if(subQuery != null)
@@ -130,6 +140,76 @@ public class LazyList<T extends Model> extends AbstractList<T>{
     }
 
 
+    /**
+     * Selects only some columns of a table, for instance:
+     * <pre>
+     * List&lt;Person&gt; people = Person.where("last_name = ?", "Smith").select("first_name", "email");
+     * </pre>
+     * Use this to avoid loading large columns a page does not need. The primary key, and foreign keys of included
+     * parents are always selected. Columns that were not selected are loaded with one more query the first time
+     * any of them is read from a model. Lists with different columns are cached separately.
+     *
+     * @param columns names of columns to select.
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model>  LazyList<E> select(String... columns){
+        if(fullQuery != null) throw new IllegalArgumentException("Cannot use .select() if using free form SQL");
+        if(hydrated) throw new IllegalArgumentException("select() must be called before the list is loaded");
+        if(columns.length == 0) throw new IllegalArgumentException("must provide at least one column");
+
+        for (String column : columns) {
+            if(!metaModel.hasAttribute(column.toLowerCase())) throw new IllegalArgumentException("Attribute: '" + column + "' is not defined in model: " + metaModel.getModelClass().getName());
+        }
+        this.columns = columns;
+        return (LazyList<E>) this;
+    }
+
+    /**
+     * @return columns to select including keys required by includes, or null to select all columns.
+     */
+    private String[] selectedColumns(){
+        if(columns == null) return null;
+
+        Map<String, String> selected = new LinkedHashMap<String, String>();
+        selected.put(metaModel.getIdName().toLowerCase(), metaModel.getIdName());
+        for (String column : columns) {
+            selected.put(column.toLowerCase(), column);
+        }
+        for (Association association : includes.values()) {
+            if(association instanceof BelongsToAssociation){
+                String fkName = ((BelongsToAssociation) association).getFkName();
+                selected.put(fkName.toLowerCase(), fkName);
+            }else if(association instanceof BelongsToPolymorphicAssociation){
+                selected.put("parent_id", "parent_id");
+                selected.put("parent_type", "parent_type");
+            }
+        }
+        return selected.values().toArray(new String[selected.size()]);
+    }
+
+    boolean isPartial(){
+        return columns != null;
+    }
+
+    /**
+     * Makes this list read a value of a column which is not an attribute of models, such as a total count selected
+     * with a page. The value is read from rows when this list is loaded from the database, not from the cache.
+     *
+     * @param label label of a column.
+     */
+    void captureColumn(String label){
+        capturedColumn = label;
+    }
+
+    /**
+     * @return value of a column set by {@link #captureColumn(String)} in the last loaded row, null if no rows were
+     * loaded, or this list came from the cache.
+     */
+    Object getCapturedValue(){
+        hydrate();
+        return capturedValue;
+    }
+
     /**
      * Use this method includes associated objects. This method will eagerly load associated models of
      * models selected by the query. For instance, if there are models <code>Author</code>, <code>Post</code>
@@ -146,7 +226,7 @@ public class LazyList<T extends Model> extends AbstractList<T>{
      * <p/>
      *
      * This method will not follow relationships of related models, but rather only relationships of the current
-     * one.  
+     * one. Use {@link #include(Include...)} to load relationships of related models.
      *
      * @param classes list of dependent classes. These classes represent models with which a current model has a
      * relationship.
@@ -172,6 +252,143 @@ public class LazyList<T extends Model> extends AbstractList<T>{
         return (LazyList<E>)this;
     }
 
+    /**
+     * Same as {@link #include(Class[])}, but also follows relationships of related models. For instance:
+     * <pre>
+     * List&lt;Order&gt; orders = Order.findAll().include(Include.model(Item.class).with(Product.class), Include.model(Customer.class));
+     * </pre>
+     * will load orders with their items and customers, and also products of all items. Every level is loaded
+     * in one pass after the previous level, so the whole graph takes one query per included model, rather than one
+     * query per row of a previous level.
+     *
+     * @param includes specifications of included models, see {@link Include}.
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model>  LazyList<E>  include(Include... includes){
+        Class<? extends Model>[] classes = new Class[includes.length];
+        for (int i = 0; i < includes.length; i++) {
+            classes[i] = includes[i].getModelClass();
+            checkNestedIncludes(includes[i]);
+        }
+        include(classes);
+
+        for (Include include : includes) {
+            if(!include.getNested().isEmpty()){
+                nestedIncludes.put(include.getModelClass(), include.getNested());
+            }
+        }
+        return (LazyList<E>)this;
+    }
+
+    private static void checkNestedIncludes(Include include){
+        MetaModel mm = Registry.instance().getMetaModel(include.getModelClass());
+        for (Include nested : include.getNested()) {
+            if(!mm.isAssociatedTo(nested.getModelClass())) throw new IllegalArgumentException("Model: " + nested.getModelClass().getName() + " is not associated with: " + include.getModelClass().getName());
+            checkNestedIncludes(nested);
+        }
+    }
+
+    /**
+     * Makes parents of models of this list load in batches: the first time {@link Model#parent(Class)} is called on
+     * any model of this list, parents of this class are loaded for all models of the list with one query. This
+     * gives performance of {@link #include(Class[])} in code that cannot know up front which parents it will need:
+     * <pre>
+     * for (Employee e : Employee.where("salary > ?", 1000).batchParents()) {
+     *     e.parent(Department.class); //one query on the first iteration, none after
+     * }
+     * </pre>
+     *
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model>  LazyList<E> batchParents(){
+        this.batchParents = true;
+        return (LazyList<E>) this;
+    }
+
+    /**
+     * Declares other tables read by the query of this list, so that results cached for a
+     * {@link org.javalite.activejdbc.annotations.Cached} model are purged when these tables are written.
+     * Tables of includes are added automatically, use this method for joins in free form queries:
+     * <pre>
+     * List&lt;Book&gt; books = Book.findBySql("SELECT books.* FROM books, readers WHERE ...").dependsOn("readers");
+     * </pre>
+     *
+     * @param tables names of tables read by the query besides the table of this list.
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model>  LazyList<E> dependsOn(String... tables){
+        for (String table : tables) {
+            dependencies.add(table.toLowerCase());
+        }
+        return (LazyList<E>) this;
+    }
+
+    /**
+     * @return tables read by this list besides its own: tables added by {@link #dependsOn(String...)},
+     * tables of includes and join tables of included many to many associations.
+     */
+    Set<String> dependencies(){
+        if(includes.isEmpty()){
+            return dependencies;
+        }
+        Set<String> tables = new HashSet<String>(dependencies);
+        for (Association association : includes.values()) {
+            addDependency(association, tables);
+        }
+        for (Map.Entry<Class, List<Include>> entry : nestedIncludes.entrySet()) {
+            addDependencies(Registry.instance().getMetaModel(entry.getKey()), entry.getValue(), tables);
+        }
+        return tables;
+    }
+
+    private static void addDependencies(MetaModel parent, List<Include> includes, Set<String> tables){
+        for (Include include : includes) {
+            MetaModel mm = Registry.instance().getMetaModel(include.getModelClass());
+            addDependency((Association) parent.getAssociationForTarget(mm.getTableName()), tables);
+            addDependencies(mm, include.getNested(), tables);
+        }
+    }
+
+    private static void addDependency(Association association, Set<String> tables){
+        tables.add(association.getTarget().toLowerCase());
+        if(association instanceof Many2ManyAssociation){
+            tables.add(((Many2ManyAssociation) association).getJoin().toLowerCase());
+        }
+    }
+
+    /**
+     * Loads includes into models that are already in memory.
+     *
+     * @param metaModel metamodel of models.
+     * @param models models to load includes for.
+     * @param classes classes of models to include.
+     */
+    static void includeInto(MetaModel metaModel, List<? extends Model> models, Class<? extends Model>... classes){
+        LazyList<Model> list = new LazyList<Model>(null, null, metaModel);
+        list.include(classes);
+        list.delegate = (List<Model>) models;
+        list.hydrated = true;
+        list.processIncludes();
+    }
+
+    /**
+     * Loads includes concurrently. Keys of included models are split into chunks (see
+     * {@link Configuration#getIncludeChunkSize()}), and if there is more than one chunk, each chunk is loaded by
+     * the executor on a new connection opened with the connection spec. These connections do not see uncommitted
+     * changes made on the current connection, so do not use this inside a transaction that modifies included tables.
+     *
+     * @param executor executor to load chunks of includes.
+     * @param connectionSpec specification of connections for worker threads, usually pointing to a pool.
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model>  LazyList<E> loadIncludesConcurrently(ExecutorService executor, ConnectionSpec connectionSpec){
+        if(executor == null || connectionSpec == null) throw new IllegalArgumentException("executor and connection spec are required");
+
+        this.includeExecutor = executor;
+        this.includeConnectionSpec = connectionSpec;
+        return (LazyList<E>) this;
+    }
+
     /**
      * Converts the resultset to list of maps, where each map represents a row in the resultset keyed off column names.
      *
@@ -195,22 +412,50 @@ public class LazyList<T extends Model> extends AbstractList<T>{
      * @return generated XML.
      */
     public String toXml(int spaces, boolean declaration, String ... attrs){
-        String topNode = Inflector.pluralize(Inflector.underscore(metaModel.getModelClass().getSimpleName()));
-
         hydrate();
-
         StringWriter sw = new StringWriter();
-        if(declaration)
-            sw.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>" + (spaces > 0?"\n":""));
-
-        sw.write("<"  + topNode + ">" + (spaces > 0 ? "\n":""));
-        for (T t : delegate) {
-            sw.write(t.toXml(spaces, false, attrs));
+        try {
+            toXml(sw, spaces, declaration, attrs);
+        } catch (IOException e) {
+            throw new InternalException(e);
         }
-        sw.write("</"  + topNode + ">" + (spaces > 0 ? "\n":""));
         return sw.toString();
     }
 
+    /**
+     * Writes a XML document from content of this list to a writer. If this list is not loaded yet, models are read
+     * with a {@link #cursor()} and written one at a time, so that the size of a document is not limited by memory.
+     * Lists with includes are loaded first on databases where a cursor cannot load includes.
+     *
+     * @param writer writer to write XML to.
+     * @param spaces by how many spaces to indent.
+     * @param declaration true to include XML declaration at the top
+     * @param attrs list of attributes to include. No arguments == include all attributes.
+     * @throws IOException if writer fails.
+     */
+    public void toXml(Writer writer, int spaces, boolean declaration, String ... attrs) throws IOException {
+        String topNode = Inflector.pluralize(Inflector.underscore(metaModel.getModelClass().getSimpleName()));
+        String newLine = spaces > 0 ? "\n" : "";
+
+        ModelCursor<T> cursor = streamable() ? this.<T>cursor() : null;
+        Iterable<T> models = cursor == null ? this : cursor;
+        try {
+            if(declaration){
+                writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
+                writer.write(newLine);
+            }
+            writer.write("<" + topNode + ">");
+            writer.write(newLine);
+            for (T t : models) {
+                t.toXml(writer, spaces, false, attrs);
+            }
+            writer.write("</" + topNode + ">");
+            writer.write(newLine);
+        } finally {
+            if(cursor != null) cursor.close();
+        }
+    }
+
     /**
      * Generates JSON from content of this list
      *
@@ -221,16 +466,63 @@ public class LazyList<T extends Model> extends AbstractList<T>{
     public String toJson(boolean pretty, String ... attrs) {
         hydrate();
         StringWriter sw = new StringWriter();
-        sw.write("[" + (pretty? "\n":""));
-        List<String> items = new ArrayList<String>();
-        for (T t : delegate) {
-            items.add(t.toJsonP(pretty, (pretty?"  ":""), attrs));
+        try {
+            toJson(sw, pretty, attrs);
+        } catch (IOException e) {
+            throw new InternalException(e);
         }
-        sw.write(Util.join(items, "," + (pretty?"\n":"")));
-        sw.write((pretty? "\n":"") + "]" );
         return sw.toString();
     }
 
+    /**
+     * Writes JSON from content of this list to a writer. If this list is not loaded yet, models are read
+     * with a {@link #cursor()} and written one at a time, so that exports of any size need neither the whole
+     * list nor the whole document in memory. Lists with includes are loaded first on databases where a cursor cannot
+     * load includes.
+     *
+     * @param writer writer to write JSON to.
+     * @param pretty true if you want pretty format, false if not
+     * @param attrs attributes to include, not providing any will include all.
+     * @throws IOException if writer fails.
+     */
+    public void toJson(Writer writer, boolean pretty, String ... attrs) throws IOException {
+        ModelCursor<T> cursor = streamable() ? this.<T>cursor() : null;
+        Iterable<T> models = cursor == null ? this : cursor;
+        try {
+            writer.write(pretty ? "[\n" : "[");
+            boolean first = true;
+            for (T t : models) {
+                if(!first) writer.write(pretty ? ",\n" : ",");
+                first = false;
+                t.writeJson(writer, pretty, pretty ? "  " : "", attrs);
+            }
+            writer.write(pretty ? "\n]" : "]");
+        } finally {
+            if(cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * Same as {@link #toJson(Writer, boolean, String...)}, writes JSON encoded in UTF-8. The stream is flushed,
+     * but not closed.
+     *
+     * @param out stream to write JSON to.
+     * @param pretty true if you want pretty format, false if not
+     * @param attrs attributes to include, not providing any will include all.
+     * @throws IOException if stream fails.
+     */
+    public void toJson(OutputStream out, boolean pretty, String ... attrs) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        toJson(writer, pretty, attrs);
+        writer.flush();
+    }
+
+    /**
+     * @return true if models of this list are in memory.
+     */
+    boolean isLoaded(){
+        return hydrated;
+    }
 
     /**
      * This method exists to force immediate load from DB. Example;
@@ -277,8 +569,8 @@ public class LazyList<T extends Model> extends AbstractList<T>{
                         orderBys, limit, offset);
         }else{
             sql = fullQuery != null ? fullQuery :
-                Registry.instance().getConfiguration().getDialect(metaModel).formSelect(metaModel.getTableName(), subQuery,
-                        orderBys, limit, offset);
+                Registry.instance().getConfiguration().getDialect(metaModel).formSelect(metaModel.getTableName(), selectedColumns(),
+                        subQuery, orderBys, limit, offset);
         }
 
         sql += showParameters ? ", with parameters: " + list(params) : "";
@@ -291,54 +583,179 @@ public class LazyList<T extends Model> extends AbstractList<T>{
 
         if(hydrated) return;
 
-        String sql= toSql(false);
+        final String sql= toSql(false);
 
-        if(metaModel.cached()){        
-            List<T> cached = (List<T>) QueryCache.instance().getItem(metaModel.getTableName(), sql, params);
-            if(cached != null){
-                delegate = cached;
-                return;
-            }
+        if(metaModel.cached()){
+            //concurrent misses of the same query wait for one thread to load it
+            delegate = (List<T>) QueryCache.instance().getItem(metaModel.getTableName(), sql, params, dependencies(), new ItemLoader() {
+                public Object load() {
+                    //a copy, because stale results are refreshed in background while this list is used
+                    return copy().loadModels(sql);
+                }
+            });
+            hydrated = true;
+        }else{
+            loadModels(sql);
         }
+    }
+
+    MetaModel getMetaModel(){
+        return metaModel;
+    }
+
+    Object[] getParams(){
+        return params;
+    }
+
+    /**
+     * @return unloaded list with the same query, columns and includes.
+     */
+    LazyList<T> copy(){
+        LazyList<T> copy = new LazyList<T>(forPaginator, metaModel, fullQuery, params);
+        copy.subQueries = subQueries;
+        copy.orderBys = orderBys;
+        copy.limit = limit;
+        copy.offset = offset;
+        copy.columns = columns;
+        copy.includes = includes;
+        copy.nestedIncludes = nestedIncludes;
+        copy.includeExecutor = includeExecutor;
+        copy.includeConnectionSpec = includeConnectionSpec;
+        copy.batchParents = batchParents;
+        copy.dependencies = dependencies;
+        return copy;
+    }
 
+    private List<T> loadModels(String sql){
+        final List<T> models = new ArrayList<T>();
         long start = System.currentTimeMillis();
-        new DB(metaModel.getDbName()).find(sql, params).with(new RowListenerAdapter() {
-            public void onNext(Map<String, Object> rowMap) {
-                delegate.add((T) Model.instance(rowMap, metaModel));
-            }
-        });
-        LogFilter.logQuery(logger, sql, params, start);
-        if(metaModel.cached()){
-            delegate = Collections.unmodifiableList(delegate);
-            QueryCache.instance().addItem(metaModel.getTableName(), sql, params, delegate);
+        RowProcessor processor = new DB(metaModel.getDbName()).find(sql, params);
+        if(capturedColumn == null){
+            processor.with(metaModel, isPartial(), new ModelListener<T>() {
+                public void onModel(T model) {
+                    models.add(model);
+                }
+            });
+        }else{
+            processor.with(new IndexedRowListener() {
+                private HydrationPlan plan;
+                private int index;
+                public boolean next(IndexedRow row) {
+                    if (plan == null) {
+                        plan = metaModel.getHydrationPlan(row.getLabels());
+                        index = row.indexOf(capturedColumn);
+                    }
+                    models.add(plan.<T>newModel(row, isPartial()));
+                    if (index != -1) {
+                        capturedValue = row.get(index);
+                    }
+                    return true;
+                }
+            });
         }
+        LogFilter.logQuery(logger, sql, params, start);
+        delegate = metaModel.cached() ? Collections.unmodifiableList(models) : models;
         hydrated = true;
-        processIncludes();        
+        if(batchParents && delegate.size() > 1){
+            ParentBatch batch = new ParentBatch(metaModel, delegate);
+            for (T model : delegate) {
+                ((Model) model).setParentBatch(batch);
+            }
+        }
+        processIncludes();
+        return delegate;
+    }
+
+    /**
+     * @return true if this list is not loaded yet and can be read with a {@link #cursor()}.
+     */
+    private boolean streamable(){
+        return !isLoaded() && (includes.isEmpty() || metaModel.getDialect().supportsQueriesWhileStreaming());
+    }
+
+    /**
+     * Executes the query and returns a cursor which creates models one at a time while it is iterated over,
+     * without loading the whole result into this list. Use it to process very large result sets with constant memory.
+     * Conditions, order, limit, offset and includes of this list are respected, the cache is not used.
+     * See {@link ModelCursor} for an example. This method is not named <code>stream()</code> because that name is
+     * taken by <code>java.util.Collection</code> in Java 8.
+     *
+     * @return cursor over models selected by this list. Close it if you do not read it to the end.
+     * @throws DBException if this list has includes, and the database cannot execute their queries while a result
+     * set is streamed, see {@link DefaultDialect#supportsQueriesWhileStreaming()}.
+     */
+    public <E extends Model> ModelCursor<E> cursor(){
+        if(hydrated) throw new DBException("cursor() cannot be used after this list was loaded");
+        if(!includes.isEmpty() && !metaModel.getDialect().supportsQueriesWhileStreaming()){
+            throw new DBException("cursor() cannot load includes on " + metaModel.getDbType()
+                    + ", because includes are queried while the result set is still open, use a loaded list instead");
+        }
+
+        String sql = toSql(false);
+        long start = System.currentTimeMillis();
+        RowProcessor processor = new DB(metaModel.getDbName()).find(sql, params);
+        LogFilter.logQuery(logger, sql, params, start);
+        return (ModelCursor<E>) processor.cursor(this, metaModel, !includes.isEmpty());
+    }
+
+    /**
+     * Loads includes for a batch of models read by a {@link ModelCursor}.
+     *
+     * @param models models read from DB.
+     */
+    void processIncludes(List<T> models){
+        LazyList<T> batch = new LazyList<T>(null, params, metaModel);
+        batch.includes = includes;
+        batch.nestedIncludes = nestedIncludes;
+        batch.includeExecutor = includeExecutor;
+        batch.includeConnectionSpec = includeConnectionSpec;
+        batch.delegate = models;
+        batch.hydrated = true;
+        batch.processIncludes();
     }
 
     private void processIncludes(){
         for(Class includedClass: includes.keySet()){            
             Association association = includes.get(includedClass);
+            List<Model> included = Collections.emptyList();
             if(association instanceof BelongsToAssociation){
-                processParent((BelongsToAssociation)association, includedClass);
+                included = processParent((BelongsToAssociation)association, includedClass);
             }else if(association instanceof OneToManyAssociation){
-                processChildren((OneToManyAssociation)association, includedClass);
+                included = processChildren((OneToManyAssociation)association, includedClass);
             }else if(association instanceof Many2ManyAssociation){
-                processOther((Many2ManyAssociation)association, includedClass);
+                included = processOther((Many2ManyAssociation)association, includedClass);
             }else if(association instanceof OneToManyPolymorphicAssociation){
-                processPolymorphicChildren((OneToManyPolymorphicAssociation) association, includedClass);
+                included = processPolymorphicChildren((OneToManyPolymorphicAssociation) association, includedClass);
             }else if(association instanceof BelongsToPolymorphicAssociation){
-                processPolymorphicParent((BelongsToPolymorphicAssociation)association, includedClass);
+                included = processPolymorphicParent((BelongsToPolymorphicAssociation)association, includedClass);
+            }
+
+            List<Include> nested = nestedIncludes.get(includedClass);
+            if(nested != null && !included.isEmpty()){
+                processNestedIncludes(includedClass, included, nested);
             }
         }        
     }
 
+    /**
+     * Loads includes of included models, all models of one level are processed as a single batch.
+     */
+    private void processNestedIncludes(Class<? extends Model> includedClass, List<Model> included, List<Include> nested){
+        LazyList<Model> level = new LazyList<Model>(null, null, Registry.instance().getMetaModel(includedClass));
+        level.include(nested.toArray(new Include[nested.size()]));
+        level.includeExecutor = includeExecutor;
+        level.includeConnectionSpec = includeConnectionSpec;
+        level.delegate = included;
+        level.hydrated = true;
+        level.processIncludes();
+    }
+
     /**
      * @author Evan Leonard
      */
-    private void processPolymorphicParent(BelongsToPolymorphicAssociation association, Class parentClass) {
+    private List<Model> processPolymorphicParent(BelongsToPolymorphicAssociation association, Class parentClass) {
         if(delegate.size() == 0){//no need to process children if no models selected.
-            return;
+            return Collections.emptyList();
         }
 
         final MetaModel parentMM = Registry.instance().getMetaModel(parentClass);
@@ -346,11 +763,10 @@ public class LazyList<T extends Model> extends AbstractList<T>{
 
         String parentClassName = association.getParentClassName();
 
-        //need to remove duplicates because more than one child can belong to the same parent.
+        //duplicates are removed by findIn() because more than one child can belong to the same parent.
         List parentIds = collect("parent_id", "parent_type", parentClassName);
-        ArrayList noDuplicateList = new ArrayList(new HashSet(parentIds));
 
-        for(Model parent: new LazyList<Model>(parentMM.getIdName() + " IN (" + Util.join(noDuplicateList, ", ") + ")", null, parentMM)){
+        for(Model parent: findIn(parentMM, parentMM.getIdName(), parentIds, null, null)){
             parentsHasByIds.put(parentClassName+":"+parent.getId(), parent);
         }
 
@@ -361,12 +777,13 @@ public class LazyList<T extends Model> extends AbstractList<T>{
             Model parent = parentsHasByIds.get(parentClassName+":"+fk);
             child.setCachedParent(parent); //this could be null, which is fine
         }
+        return new ArrayList<Model>(parentsHasByIds.values());
     }
 
-    private void processParent(BelongsToAssociation association, Class parentClass) {
+    private List<Model> processParent(BelongsToAssociation association, Class parentClass) {
 
         if(delegate.size() == 0){//no need to process parents if no models selected.
-            return;
+            return Collections.emptyList();
         }
 
         final MetaModel parentMM = Registry.instance().getMetaModel(parentClass);
@@ -374,11 +791,10 @@ public class LazyList<T extends Model> extends AbstractList<T>{
 
         String fkName = association.getFkName();
 
-        //need to remove duplicates because more than one child can belong to the same parent. 
+        //duplicates are removed by findIn() because more than one child can belong to the same parent.
         List parentIds = collect(fkName);
-        ArrayList noDuplicateList = new ArrayList(new HashSet(parentIds));
 
-        for(Model parent: new LazyList<Model>(parentMM.getIdName() + " IN (" + Util.join(noDuplicateList, ", ") + ")", null, parentMM)){
+        for(Model parent: findIn(parentMM, parentMM.getIdName(), parentIds, null, null)){
                parentsHasByIds.put(parent.getId(), parent);
         }
 
@@ -389,6 +805,7 @@ public class LazyList<T extends Model> extends AbstractList<T>{
             Model parent = parentsHasByIds.get(fk);
             child.setCachedParent(parent); //this could be null, which is fine
         }
+        return new ArrayList<Model>(parentsHasByIds.values());
     }
 
     /**
@@ -430,11 +847,163 @@ public class LazyList<T extends Model> extends AbstractList<T>{
         return results;
     }
 
+    /**
+     * Counts records matching this list with a <code>SELECT COUNT(*)</code> query, without loading models.
+     * Limit and offset are respected. If the list is already loaded, returns its size.
+     *
+     * @return number of records in this list.
+     */
+    public Long count(){
+        if(hydrated) return (long) delegate.size();
+
+        Object count = aggregate("COUNT(*)", null);
+        return count == null ? 0L : Convert.toLong(count);
+    }
+
+    /**
+     * Calculates a sum of a column in the database, without loading models.
+     *
+     * @param column name of a numeric column.
+     * @return sum of values of the column, null if there are no records.
+     */
+    public Object sum(String column){
+        return aggregate("SUM(" + checkColumn(column) + ")", column);
+    }
 
+    /**
+     * Calculates an average of a column in the database, without loading models.
+     *
+     * @param column name of a numeric column.
+     * @return average of values of the column, null if there are no records.
+     */
+    public Object avg(String column){
+        return aggregate("AVG(" + checkColumn(column) + ")", column);
+    }
 
-    private void processPolymorphicChildren(OneToManyPolymorphicAssociation association, Class childClass) {
+    /**
+     * Finds a minimum value of a column in the database, without loading models.
+     *
+     * @param column name of column.
+     * @return minimum value of the column, null if there are no records.
+     */
+    public Object min(String column){
+        return aggregate("MIN(" + checkColumn(column) + ")", column);
+    }
+
+    /**
+     * Finds a maximum value of a column in the database, without loading models.
+     *
+     * @param column name of column.
+     * @return maximum value of the column, null if there are no records.
+     */
+    public Object max(String column){
+        return aggregate("MAX(" + checkColumn(column) + ")", column);
+    }
+
+    /**
+     * Same as {@link #collect(String)}, but selects only this column from the database, and does not create models.
+     * Order, limit and offset are respected.
+     *
+     * @param column name of column.
+     * @return values of the column in order of this list.
+     */
+    public List pluck(String column){
+        checkColumn(column);
+        DefaultDialect dialect = Registry.instance().getConfiguration().getDialect(metaModel);
+        String sql;
+        if(forPaginator){
+            sql = dialect.formSelect(null, fullQuery, orderBys, limit, offset);
+        }else if(fullQuery != null){
+            sql = fullQuery;
+        }else{
+            sql = dialect.formSelect(metaModel.getTableName(), new String[]{column}, subQuery(), orderBys, limit, offset);
+        }
+        return readColumn(sql, column);
+    }
+
+    /**
+     * Selects distinct values of a column from the database, without loading models.
+     *
+     * @param column name of column.
+     * @return distinct values of the column, in no particular order.
+     */
+    public List distinct(String column){
+        checkColumn(column);
+        return readColumn(aggregateQuery("DISTINCT " + column, column), column);
+    }
+
+    private String checkColumn(String column){
+        if(column == null || !metaModel.hasAttribute(column.toLowerCase())){
+            throw new IllegalArgumentException("Attribute: '" + column + "' is not defined in model: " + metaModel.getModelClass().getName());
+        }
+        return column;
+    }
+
+    private String subQuery(){
+        return Util.join(subQueries.toArray(new String[subQueries.size()]), " ");
+    }
+
+    private Object aggregate(String expression, String column){
+        final String sql = aggregateQuery(expression, column);
+        ItemLoader loader = new ItemLoader() {
+            public Object load() {
+                long start = System.currentTimeMillis();
+                Object result = new DB(metaModel.getDbName()).firstCell(sql, params);
+                LogFilter.logQuery(logger, sql, params, start);
+                return result;
+            }
+        };
+        return metaModel.cached() ? QueryCache.instance().getItem(metaModel.getTableName(), sql, params, dependencies, loader)
+                : loader.load();
+    }
+
+    /**
+     * Builds a query selecting an expression over records of this list. Free form SQL, and lists with limit or
+     * offset become sub-queries, otherwise the condition of this list is used directly.
+     *
+     * @param expression expression to select, such as <code>SUM(salary)</code>.
+     * @param column column used by expression, null if none.
+     * @return query in the dialect of this list.
+     */
+    private String aggregateQuery(String expression, String column){
+        DefaultDialect dialect = Registry.instance().getConfiguration().getDialect(metaModel);
+        String inner;
+        if(forPaginator){
+            inner = dialect.formSelect(null, fullQuery, orderBys, limit, offset);
+        }else if(fullQuery != null){
+            inner = fullQuery;
+        }else if(limit != -1 || offset != -1){
+            inner = dialect.formSelect(metaModel.getTableName(), column == null ? new String[]{metaModel.getIdName()} : new String[]{column},
+                    subQuery(), orderBys, limit, offset);
+        }else{
+            return dialect.formSelect(metaModel.getTableName(), new String[]{expression}, subQuery(), new ArrayList<String>(), -1, -1);
+        }
+        return "SELECT " + expression + " FROM (" + inner + ") lazy_list_query";
+    }
+
+    private List readColumn(String sql, final String column){
+        final List values = new ArrayList();
+        long start = System.currentTimeMillis();
+        new DB(metaModel.getDbName()).find(sql, params).with(new IndexedRowListener() {
+            private int index = -2;
+            public boolean next(IndexedRow row) {
+                if(index == -2){
+                    index = row.indexOf(column);
+                    if(index == -1) throw new DBException("column '" + column + "' is not selected by query");
+                }
+                values.add(row.get(index));
+                return true;
+            }
+        });
+        LogFilter.logQuery(logger, sql, params, start);
+        return values;
+    }
+
+
+
+    private List<Model> processPolymorphicChildren(OneToManyPolymorphicAssociation association, Class childClass) {
         if (delegate.size() == 0) {//no need to process children if no models selected.
-            return;
+            return Collections.emptyList();
         }
 
         MetaModel childMM = Registry.instance().getMetaModel(childClass);
@@ -445,7 +1014,8 @@ public class LazyList<T extends Model> extends AbstractList<T>{
         List ids = collect(metaModel.getIdName());
 
 
-        for (Model child : new LazyList<Model>("parent_id IN (" + Util.join(ids, ", ") + ") AND parent_type = '" + association.getTypeLabel() + "'", null, childMM).orderBy(childMM.getIdName())) {
+        List<Model> allChildren = findIn(childMM, "parent_id", ids, "parent_type = ?", childMM.getIdName(), association.getTypeLabel());
+        for (Model child : allChildren) {
             if (childrenByParentId.get(child.get("parent_id")) == null) {
                 childrenByParentId.put(child.get("parent_id"), new SuperLazyList<Model>());
             }
@@ -458,13 +1028,14 @@ public class LazyList<T extends Model> extends AbstractList<T>{
                 parent.setChildren(childClass, children);
             }
         }
+        return allChildren;
     }
 
 
-    private void processChildren(OneToManyAssociation association, Class childClass) {
+    private List<Model> processChildren(OneToManyAssociation association, Class childClass) {
 
         if(delegate.size() == 0){//no need to process children if no models selected.
-            return;
+            return Collections.emptyList();
         }
 
         final MetaModel childMM = Registry.instance().getMetaModel(childClass);
@@ -474,7 +1045,8 @@ public class LazyList<T extends Model> extends AbstractList<T>{
 
         List ids = collect(metaModel.getIdName());
 
-        for(Model child: new LazyList<Model>(fkName + " IN (" + Util.join(ids, ", ") + ")" , null, childMM).orderBy(childMM.getIdName())){
+        List<Model> allChildren = findIn(childMM, fkName, ids, null, childMM.getIdName());
+        for(Model child: allChildren){
              if(childrenByParentId.get(child.get(fkName)) == null){
                     childrenByParentId.put(child.get(fkName), new SuperLazyList<Model>());
              }
@@ -487,11 +1059,12 @@ public class LazyList<T extends Model> extends AbstractList<T>{
                 parent.setChildren(childClass, children);
             }
         }
+        return allChildren;
     }
 
-    private void processOther(Many2ManyAssociation association, Class childClass) {
+    private List<Model> processOther(Many2ManyAssociation association, Class childClass) {
         if(delegate.size() == 0){//no need to process other if no models selected.
-            return;
+            return Collections.emptyList();
         }
 
         final MetaModel childMM = Registry.instance().getMetaModel(childClass);
@@ -499,15 +1072,20 @@ public class LazyList<T extends Model> extends AbstractList<T>{
 
         List ids = collect(metaModel.getIdName());
         
-        String sql =  "SELECT " + association.getTarget() + ".*, t." + association.getSourceFkName() + " AS the_parent_record_id FROM " + association.getTarget() +
+        final String sql =  "SELECT " + association.getTarget() + ".*, t." + association.getSourceFkName() + " AS the_parent_record_id FROM " + association.getTarget() +
         " INNER JOIN " + association.getJoin() + " t ON " + association.getTarget() + "." + association.getTargetPk() + " = t." + association.getTargetFkName() + " WHERE (t." + association.getSourceFkName()
-                + "  IN (" + Util.join(ids, ", ") + "))";
+                + "  IN ";
 
+        List<Map> childResults = includeLoader(childMM).load(ids, new ChunkedInLoader.ChunkQuery<Map>() {
+            public List<Map> run(String in, Object[] keys) {
+                return new DB(childMM.getDbName()).findAll(sql + in + ")", keys);
+            }
+        });
 
-        List<Map> childResults = new DB(childMM.getDbName()).findAll(sql);
-
+        List<Model> allChildren = new ArrayList<Model>(childResults.size());
         for(Map res: childResults){
             Model child = Model.instance(res, childMM);
+            allChildren.add(child);
             Object parentId = res.get("the_parent_record_id");
             if(childrenByParentId.get(parentId) == null){
                     childrenByParentId.put(parentId, new SuperLazyList<Model>());
@@ -521,6 +1099,40 @@ public class LazyList<T extends Model> extends AbstractList<T>{
                 parent.setChildren(childClass, children);
             }
         }
+        return allChildren;
+    }
+
+    /**
+     * Finds models whose column matches any of the keys, in chunks of bind parameters.
+     *
+     * @param mm metamodel of models to find.
+     * @param column column to match keys.
+     * @param keys keys to find, nulls and duplicates are ignored.
+     * @param condition additional condition, can be null.
+     * @param orderBy order of models within a chunk, can be null.
+     * @param conditionParams parameters of additional condition.
+     * @return all models found.
+     */
+    private List<Model> findIn(final MetaModel mm, final String column, Collection keys, final String condition,
+                               final String orderBy, final Object... conditionParams) {
+        return includeLoader(mm).load(keys, new ChunkedInLoader.ChunkQuery<Model>() {
+            public List<Model> run(String in, Object[] chunk) {
+                Object[] allParams = new Object[chunk.length + conditionParams.length];
+                System.arraycopy(chunk, 0, allParams, 0, chunk.length);
+                System.arraycopy(conditionParams, 0, allParams, chunk.length, conditionParams.length);
+
+                LazyList<Model> models = new LazyList<Model>(column + " IN " + in + (condition == null ? "" : " AND " + condition), allParams, mm);
+                if(orderBy != null){
+                    models.orderBy(orderBy);
+                }
+                return new ArrayList<Model>(models);
+            }
+        });
+    }
+
+    private ChunkedInLoader includeLoader(MetaModel mm){
+        return new ChunkedInLoader(mm.getDbName(), Registry.instance().getConfiguration().getIncludeChunkSize(),
+                includeExecutor, includeConnectionSpec);
     }
 
     public T get(int index) {
@@ -662,4 +1274,13 @@ public class LazyList<T extends Model> extends AbstractList<T>{
         }
         p.flush();
     }
+
+    /**
+     * Java serialization writes only models of this list, in a compact format, and reads them back
+     * as a loaded list.
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        hydrate();
+        return new ModelCodec.SerializedList(delegate);
+    }
 }
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.javalite.common.Inflector.*;
 import static org.javalite.activejdbc.LogFilter.*;
@@ -34,6 +35,7 @@ import static org.javalite.activejdbc.LogFilter.*;
 public class MetaModel<T extends Model, E extends Association> implements Serializable {
 
     private final static Logger logger = LoggerFactory.getLogger(MetaModel.class);
+    private final static int MAX_HYDRATION_PLANS = 64;
     private Map<String, ColumnMetadata> columnMetadata;
     private List<Association> associations = new ArrayList<Association>();
     private String idName;
@@ -42,6 +44,9 @@ public class MetaModel<T extends Model, E extends Association> implements Serial
     private boolean cached;
     private String idGeneratorCode;
     private List<String> attributeNamesNoId;
+    private transient volatile CompactAttributes.Layout attributeLayout;
+    //keyed by column labels of a result set
+    private transient volatile Map<List<String>, HydrationPlan> hydrationPlans;
 
     protected MetaModel(String dbName, String tableName, String idName, Class<T> modelClass, String dbType, boolean cached, String idGeneratorCode) {
         this.idName = idName.toLowerCase();
@@ -53,6 +58,43 @@ public class MetaModel<T extends Model, E extends Association> implements Serial
         this.idGeneratorCode = idGeneratorCode;
     }
 
+    /**
+     * @return positions of attributes used by compact storage of attributes of models of this type.
+     */
+    CompactAttributes.Layout getAttributeLayout() {
+        CompactAttributes.Layout layout = attributeLayout;
+        if (layout == null) {
+            layout = new CompactAttributes.Layout(getAttributeNames());
+            attributeLayout = layout;
+        }
+        return layout;
+    }
+
+    /**
+     * Returns a plan to load models of this type from result sets with given columns. Plans are cached, so that
+     * the same plan is used for all result sets of the same query.
+     *
+     * @param labels lower case column labels of a result set.
+     * @return plan to load models from a result set with given columns.
+     */
+    HydrationPlan getHydrationPlan(String[] labels) {
+        Map<List<String>, HydrationPlan> plans = hydrationPlans;
+        if (plans == null) {
+            plans = new ConcurrentHashMap<List<String>, HydrationPlan>();
+            hydrationPlans = plans;
+        }
+        List<String> key = Arrays.asList(labels);
+        HydrationPlan plan = plans.get(key);
+        if (plan == null) {
+            if (plans.size() >= MAX_HYDRATION_PLANS) {
+                plans.clear();
+            }
+            plan = new HydrationPlan(this, labels);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
     public String getIdGeneratorCode(){
         return idGeneratorCode;
     }
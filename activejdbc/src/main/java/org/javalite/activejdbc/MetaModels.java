@@ -35,6 +35,33 @@ public class MetaModels {
     Map<String, MetaModel> metaModelsByClassName = new HashMap<String, MetaModel>();
     //these are all many to many associations across all models.
     private List<Many2ManyAssociation> many2ManyAssociations = new ArrayList<Many2ManyAssociation>();
+    //names of databases whose models were completely registered, only set on snapshots
+    private Set<String> initializedDbs = Collections.emptySet();
+
+    /**
+     * Creates a copy of this instance that is never modified afterwards, so it can be safely read by many threads
+     * without locking once it is published through a volatile field.
+     *
+     * @param initializedDbs names of databases that were completely initialized in this instance.
+     * @return immutable copy of this instance.
+     */
+    MetaModels snapshot(Set<String> initializedDbs) {
+        MetaModels snapshot = new MetaModels();
+        snapshot.metaModelsByTableName = Collections.unmodifiableMap(new HashMap<String, MetaModel>(metaModelsByTableName));
+        snapshot.metaModelsByClass = Collections.unmodifiableMap(new HashMap<Class<? extends Model>, MetaModel>(metaModelsByClass));
+        snapshot.metaModelsByClassName = Collections.unmodifiableMap(new HashMap<String, MetaModel>(metaModelsByClassName));
+        snapshot.many2ManyAssociations = Collections.unmodifiableList(new ArrayList<Many2ManyAssociation>(many2ManyAssociations));
+        snapshot.initializedDbs = Collections.unmodifiableSet(new HashSet<String>(initializedDbs));
+        return snapshot;
+    }
+
+    boolean isInitialized(String dbName) {
+        return initializedDbs.contains(dbName);
+    }
+
+    boolean hasInitializedDbs() {
+        return !initializedDbs.isEmpty();
+    }
 
     void addMetaModel(MetaModel<?, ?> mm, String tableName, Class<? extends Model> modelClass) {
         Object o = metaModelsByClass.put(modelClass, mm);
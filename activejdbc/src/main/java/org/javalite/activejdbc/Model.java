@@ -32,6 +32,7 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.javalite.common.Inflector.*;
 import static org.javalite.common.Util.blank;
@@ -44,11 +45,16 @@ import static org.javalite.common.Util.blank;
 public abstract class Model extends CallbackSupport implements Externalizable {
 
     private final static Logger logger = LoggerFactory.getLogger(Model.class);
-    private Map<String, Object> attributes = new HashMap<String, Object>();
+    //these are created on first use, models loaded from DB get compact attributes, see #newInstance(MetaModel)
+    private Map<String, Object> attributes;
     private boolean frozen = false;
+    //true if loaded with only some columns, see LazyList#select(String...)
+    private boolean partial;
+    //models loaded together by LazyList#batchParents()
+    private ParentBatch parentBatch;
     private MetaModel metaModelLocal;
-    private Map<Class, Model> cachedParents = new HashMap<Class, Model>();
-    private Map<Class, List<Model>> cachedChildren = new HashMap<Class, List<Model>>();
+    private Map<Class, Model> cachedParents;
+    private Map<Class, List<Model>> cachedChildren;
 
     protected Errors errors;
 
@@ -57,11 +63,13 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     }
 
     public static MetaModel getMetaModel() {
-        Registry.instance().init(MetaModel.getDbName(getDaClass()));
-        return Registry.instance().getMetaModel(getTableName());
+        return ModelDelegate.metaModelOf(Model.<Model>modelClass());
     }
 
     protected Map<String, Object> getAttributes(){
+        if (attributes == null) {
+            attributes = new HashMap<String, Object>();
+        }
         return attributes;
     }
 
@@ -85,7 +93,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
                 value = input.get(attrName.toUpperCase());
             }
             if(input.containsKey(attrName.toLowerCase()) || input.containsKey(attrName.toUpperCase()))
-                attributes.put(attrName.toLowerCase(), value);
+                getAttributes().put(attrName.toLowerCase(), value);
         }
     }
 
@@ -104,7 +112,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         Object id = attributesMap.get(idName);
 
         if(id != null)
-            attributes.put(idName, id);
+            getAttributes().put(idName, id);
 
         for (String attrName : attributeNames) {
 
@@ -123,9 +131,9 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             //Should the Blob behavior be the same?
             //TODO: write about this in future tutorial
             if( value instanceof Clob && getMetaModelLocal().cached() ){
-                this.attributes.put(attrName.toLowerCase(), Convert.toString(value));
+                getAttributes().put(attrName.toLowerCase(), Convert.toString(value));
             }else {
-        		this.attributes.put(attrName, getMetaModelLocal().getDialect().overrideDriverTypeConversion(getMetaModelLocal(), attrName, value));
+        		getAttributes().put(attrName, getMetaModelLocal().getDialect().overrideDriverTypeConversion(getMetaModelLocal(), attrName, value));
             }
         }
     }
@@ -210,7 +218,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 
         getMetaModelLocal().checkAttributeOrAssociation(attribute);
 
-        attributes.put(attribute.toLowerCase(), value);
+        getAttributes().put(attribute.toLowerCase(), value);
         return this;
     }
 
@@ -230,7 +238,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return names of all attributes from this model.
      */
     public static List<String>  attributes(){
-        return getMetaModel().getAttributeNames();
+        return ModelDelegate.attributes(Model.<Model>modelClass());
     }
 
     /**
@@ -238,7 +246,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return all associations of this model.
      */
     public static List<Association> associations(){
-        return getMetaModel().getAssociations();
+        return ModelDelegate.associations(Model.<Model>modelClass());
     }
 
     /**
@@ -275,9 +283,9 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 
             frozen = true;
             if(getMetaModelLocal().cached()){
-                QueryCache.instance().purgeTableCache(getMetaModelLocal().getTableName());
+                QueryCache.instance().purgeRowCache(getMetaModelLocal().getTableName(), getId());
             }
-            purgeEdges();
+            ModelDelegate.purgeEdges(getMetaModelLocal());
             result = true;
         }
         else{
@@ -521,14 +529,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return number od deleted records.
      */
     public static int delete(String query, Object... params) {
-        MetaModel metaModel = getMetaModel();
-        int count =  params == null || params.length == 0? new DB(metaModel.getDbName()).exec("DELETE FROM " + metaModel.getTableName() + " WHERE " + query) :
-        new DB(metaModel.getDbName()).exec("DELETE FROM " + metaModel.getTableName() + " WHERE " + query, params);
-        if(metaModel.cached()){
-            QueryCache.instance().purgeTableCache(metaModel.getTableName());
-        }
-        purgeEdges();
-        return count;
+        return ModelDelegate.delete(Model.<Model>modelClass(), query, params);
     }
 
     /**
@@ -538,9 +539,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return true if corresponding record exists in DB, false if it does not.
      */
     public static boolean exists(Object id){
-        MetaModel metaModel = getMetaModel();
-        return null != new DB(metaModel.getDbName()).firstCell("SELECT " + metaModel.getIdName() + " FROM " + metaModel.getTableName()
-                + " WHERE " + metaModel.getIdName() + " = ?", id);
+        return ModelDelegate.exists(Model.<Model>modelClass(), id);
     }
 
     /**
@@ -553,9 +552,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return true if a single matching record exists, false otherwise.
      */
     public static boolean exists(String subquery, Object... params){
-        MetaModel metaModel = getMetaModel();
-        return null != new DB(metaModel.getDbName()).firstCell("SELECT EXISTS (SELECT 1 FROM " + metaModel.getTableName()
-                + " WHERE " + subquery + ")", params);
+        return ModelDelegate.exists(Model.<Model>modelClass(), subquery, params);
     }
 
     /**
@@ -575,14 +572,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return number of records deleted.
      */
     public static int deleteAll() {
-        MetaModel metaModel = getMetaModel();
-        int count = new DB(metaModel.getDbName()).exec("DELETE FROM " + metaModel.getTableName());
-        if(metaModel.cached()){
-            QueryCache.instance().purgeTableCache(metaModel.getTableName());
-        }
-
-        purgeEdges();
-        return count;
+        return ModelDelegate.deleteAll(Model.<Model>modelClass());
     }
 
     /**
@@ -604,7 +594,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      */
     public static int update(String updates, String conditions, Object ... params) {
         //TODO: validate that the number of question marks is the same as number of parameters
-        return ModelDelegate.update(Model.getMetaModel(), updates, conditions, params);
+        return ModelDelegate.update(Model.<Model>modelClass(), updates, conditions, params);
     }
 
 
@@ -624,7 +614,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return number of updated records.
      */
     public static int updateAll(String updates, Object ... params) {
-        return update(updates, null, params);
+        return ModelDelegate.update(Model.<Model>modelClass(), updates, null, params);
     }
 
     /**
@@ -647,28 +637,32 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      */
     public Map<String, Object> toMap(){
         Map<String, Object> retVal = new HashMap<String, Object>();
-        for (String key : attributes.keySet()) {
-            if(attributes.get(key) == null)
+        for (String key : getAttributes().keySet()) {
+            if(getAttributes().get(key) == null)
                 continue;
 
-            if(attributes.get(key) instanceof Clob){
+            if(getAttributes().get(key) instanceof Clob){
                 retVal.put(key.toLowerCase(), getString(key));
             }else{
-                retVal.put(key.toLowerCase(), attributes.get(key));
+                retVal.put(key.toLowerCase(), getAttributes().get(key));
             }
         }
-        for(Class parentClass: cachedParents.keySet()){
-            retVal.put(underscore(shortName(parentClass.getName())), cachedParents.get(parentClass).toMap());
+        if(cachedParents != null){
+            for(Class parentClass: cachedParents.keySet()){
+                retVal.put(underscore(shortName(parentClass.getName())), cachedParents.get(parentClass).toMap());
+            }
         }
 
-        for(Class childClass: cachedChildren.keySet()){
-            List<Model> children = cachedChildren.get(childClass);
+        if(cachedChildren != null){
+            for(Class childClass: cachedChildren.keySet()){
+                List<Model> children = cachedChildren.get(childClass);
 
-            List<Map> childMaps = new ArrayList<Map>(children.size());
-            for(Model child:children){
-                childMaps.add(child.toMap());
+                List<Map> childMaps = new ArrayList<Map>(children.size());
+                for(Model child:children){
+                    childMaps.add(child.toMap());
+                }
+                retVal.put(pluralize(underscore(shortName(childClass.getName()))), childMaps);
             }
-            retVal.put(pluralize(underscore(shortName(childClass.getName()))), childMaps);
         }
         return retVal;
     }
@@ -679,13 +673,13 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         StringBuilder sb = new StringBuilder();
         sb.append("Model: ").append(getClass().getName())
           .append(", table: '").append(getMetaModelLocal().getTableName())
-          .append("', attributes: ").append(attributes);
+          .append("', attributes: ").append(getAttributes());
 
-        if (cachedParents.size() > 0) {
+        if (cachedParents != null && cachedParents.size() > 0) {
             sb.append(", parents: ").append(cachedParents);
         }
 
-        if (cachedChildren.size() > 0) {
+        if (cachedChildren != null && cachedChildren.size() > 0) {
             sb.append(", children: ").append(cachedChildren);
         }
         return sb.toString();
@@ -700,43 +694,97 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return generated XML.
      */
     public String toXml(int spaces, boolean declaration, String ... attrs){
+        StringWriter sw = new StringWriter();
+        try {
+            toXml(sw, spaces, declaration, attrs);
+        } catch (IOException e) {
+            throw new InternalException(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Writes a XML document from content of this model to a writer.
+     *
+     * @param writer writer to write XML to.
+     * @param spaces by how many spaces to indent.
+     * @param declaration true to include XML declaration at the top
+     * @param attrs list of attributes to include. No arguments == include all attributes.
+     * @throws IOException if writer fails.
+     */
+    public void toXml(Writer writer, int spaces, boolean declaration, String ... attrs) throws IOException {
 
         Map<String, Object> modelMap = toMap();
 
-        String indent = "";
-        for(int i = 0; i < spaces; i++)
-            indent += " ";
+        char[] indentChars = new char[spaces];
+        Arrays.fill(indentChars, ' ');
+        String indent = new String(indentChars);
+        String indent2 = indent + indent, indent3 = indent2 + indent, indent4 = indent3 + indent;
+        String newLine = spaces > 0 ? "\n" : "";
 
         List<String> attrList = Arrays.asList(attrs);
 
-        StringWriter sw = new StringWriter();
-
-        if(declaration) sw.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>" + (spaces > 0?"\n":""));
+        if(declaration){
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>");
+            writer.write(newLine);
+        }
 
         String topTag = Inflector.underscore(getClass().getSimpleName());
 
-        sw.write(indent + "<" + topTag + ">" + (spaces > 0?"\n":""));
+        writer.write(indent);
+        writeTag(writer, topTag, false);
+        writer.write(newLine);
 
         for(String name: modelMap.keySet()){
             Object value  = modelMap.get(name);
             if((attrList.contains(name) || attrs.length == 0) && !(value instanceof List)){
-                sw.write(indent + indent + "<" + name + ">" + XmlEntities.XML.escape(value.toString()) + "</" + name + ">" + (spaces > 0?"\n":""));
+                writer.write(indent2);
+                writeTag(writer, name, false);
+                XmlEntities.XML.escape(writer, value.toString());
+                writeTag(writer, name, true);
+                writer.write(newLine);
             }else if (value instanceof List){
                 List<Map> children = (List<Map>)value;
-                sw.write(indent + indent + "<" + name + ">" + (spaces > 0?"\n":""));
+                String childTag = Inflector.singularize(name);
+                writer.write(indent2);
+                writeTag(writer, name, false);
+                writer.write(newLine);
                 for(Map child: children){
-                    sw.write(indent + indent + indent + "<" + Inflector.singularize(name) + ">" + (spaces > 0?"\n":""));
+                    writer.write(indent3);
+                    writeTag(writer, childTag, false);
+                    writer.write(newLine);
                     for(Object childKey: child.keySet()){
-                        sw.write(indent + indent + indent + indent + "<" + childKey + ">" + XmlEntities.XML.escape(child.get(childKey).toString())+ "</" + childKey +">" + (spaces > 0?"\n":""));
+                        writer.write(indent4);
+                        writeTag(writer, childKey.toString(), false);
+                        XmlEntities.XML.escape(writer, child.get(childKey).toString());
+                        writeTag(writer, childKey.toString(), true);
+                        writer.write(newLine);
                     }
-                    sw.write(indent + indent + indent + "</" + Inflector.singularize(name) + ">" + (spaces > 0?"\n":""));
+                    writer.write(indent3);
+                    writeTag(writer, childTag, true);
+                    writer.write(newLine);
                 }
-                sw.write(indent + indent + "</" + name + ">" + (spaces > 0?"\n":""));
+                writer.write(indent2);
+                writeTag(writer, name, true);
+                writer.write(newLine);
             }
         }
-        beforeClosingTag(spaces, sw, attrs);
-        sw.write(indent + "</" + topTag + ">" + (spaces > 0?"\n":""));
-        return sw.toString();
+        if (writer instanceof StringWriter) {
+            beforeClosingTag(spaces, (StringWriter) writer, attrs);
+        } else {
+            StringWriter custom = new StringWriter();
+            beforeClosingTag(spaces, custom, attrs);
+            writer.write(custom.toString());
+        }
+        writer.write(indent);
+        writeTag(writer, topTag, true);
+        writer.write(newLine);
+    }
+
+    private static void writeTag(Writer writer, String name, boolean closing) throws IOException {
+        writer.write(closing ? "</" : "<");
+        writer.write(name);
+        writer.write('>');
     }
 
     /**
@@ -761,69 +809,162 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return toJsonP(pretty, "", attrs);
     }
 
-    private static DateFormat isoDateFormater;
+    /**
+     * Writes a JSON document from content of this model to a writer, without building it in memory first.
+     *
+     * @param writer writer to write JSON to.
+     * @param pretty pretty format (human readable), or one line text.
+     * @param attrs  list of attributes to include. No arguments == include all attributes.
+     * @throws IOException if writer fails.
+     */
+    public void toJson(Writer writer, boolean pretty, String... attrs) throws IOException {
+        writeJson(writer, pretty, "", attrs);
+    }
+
+    private static final DateFormat isoDateFormater;
     static {
         isoDateFormater = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'");
         isoDateFormater.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
     protected  String toJsonP(boolean pretty, String indent, String... attrs) {
-        Collection<String> attrList = Arrays.asList(attrs);
-
         StringWriter sw = new StringWriter();
-        sw.write(indent + "{" + (pretty ? "" + indent : ""));
+        try {
+            writeJson(sw, pretty, indent, attrs);
+        } catch (IOException e) {
+            throw new InternalException(e);
+        }
+        return sw.toString();
+    }
 
-        List<String> attributeStrings = new ArrayList<String>();
+    void writeJson(Writer writer, boolean pretty, String indent, String... attrs) throws IOException {
+        Collection<String> attrList = attrs.length == 0 ? getAttributes().keySet() : Arrays.asList(attrs);
 
-        if (attrList.size() == 0) {
-            attrList = attributes.keySet();
-        }
+        writer.write(indent);
+        writer.write('{');
+        if (pretty) writer.write(indent);
 
+        boolean first = true;
         for (String name : attrList) {
-            Object v = get(name);
-            String val = null;
-            if (v == null) {
-                val = "null";
-            } else if (v instanceof Number || v instanceof Boolean) {
-                val = v.toString();
-            } else if (v instanceof Date) {
-                val = "\"" + isoDateFormater.format((Date) v) + "\"";
-            } else {
-                val = "\"" + v.toString()
-                      .replaceAll("\\\\", "\\\\\\\\") // \
-                      .replaceAll("\"", "\\\\\"")     // "
-                      .replaceAll("/", "\\\\/")       // /
-                      .replaceAll("\b", "\\\\b")      // \b
-                      .replaceAll("\f", "\\\\f")      // \f
-                      .replaceAll("\n", "\\\\n")      // \n
-                      .replaceAll("\r", "\\\\r")      // \r
-                      .replaceAll("\t", "\\\\t")      // \t
-                      + "\"";
+            if (!first) writer.write(',');
+            first = false;
+            if (pretty) {
+                writer.write("\n  ");
+                writer.write(indent);
             }
-            attributeStrings.add((pretty ? "\n  " + indent : "") + "\"" + name + "\":" + val);
+            writer.write('"');
+            writer.write(name);
+            writer.write("\":");
+            writeJsonValue(writer, get(name));
         }
 
-        sw.write(Util.join(attributeStrings, ","));
-
         if (cachedChildren != null && cachedChildren.size() > 0) {
+            String childIndent = pretty ? indent + "    " : "";
+            writer.write(',');
+            if (pretty) {
+                writer.write("\n  ");
+                writer.write(indent);
+            }
+            writer.write("\"children\" : {");
 
-            sw.write("," + (pretty ? "\n  " + indent : "") + "\"children\" : {");
-
+            boolean firstClass = true;
             for (Class childClass : cachedChildren.keySet()) {
-                String name = Inflector.pluralize(childClass.getSimpleName()).toLowerCase();
-                sw.write((pretty ? "\n" + indent + "    " : "") + "\"" + name + "\" : [");
-                List<String> childrenList = new ArrayList<String>();
+                if (!firstClass) writer.write(',');
+                firstClass = false;
+                if (pretty) {
+                    writer.write('\n');
+                    writer.write(childIndent);
+                }
+                writer.write('"');
+                writer.write(Inflector.pluralize(childClass.getSimpleName()).toLowerCase());
+                writer.write("\" : [");
+                boolean firstChild = true;
                 for (Model child : cachedChildren.get(childClass)) {
-                    childrenList.add((pretty ? "\n" + indent : "") + child.toJsonP(pretty, (pretty ? indent + "    " : "")));
+                    if (!firstChild) writer.write(',');
+                    firstChild = false;
+                    if (pretty) {
+                        writer.write('\n');
+                        writer.write(indent);
+                    }
+                    child.writeJson(writer, pretty, childIndent);
                 }
-                sw.write(Util.join(childrenList, ","));
-                sw.write((pretty ? "\n" + indent + indent : "") + "]");
+                if (pretty) {
+                    writer.write('\n');
+                    writer.write(indent);
+                    writer.write(indent);
+                }
+                writer.write(']');
+            }
+            if (pretty) {
+                writer.write('\n');
+                writer.write(indent);
+                writer.write(indent);
             }
-            sw.write((pretty ? "\n" + indent + indent : "") + "}");
+            writer.write('}');
         }
 
-        beforeClosingBrace(pretty, pretty ? "  " + indent : "", sw);
-        sw.write((pretty ? "\n" + indent : "") + "}");
-        return sw.toString();
+        if (writer instanceof StringWriter) {
+            beforeClosingBrace(pretty, pretty ? "  " + indent : "", (StringWriter) writer);
+        } else {
+            StringWriter custom = new StringWriter();
+            beforeClosingBrace(pretty, pretty ? "  " + indent : "", custom);
+            writer.write(custom.toString());
+        }
+        if (pretty) {
+            writer.write('\n');
+            writer.write(indent);
+        }
+        writer.write('}');
+    }
+
+    private static void writeJsonValue(Writer writer, Object v) throws IOException {
+        if (v == null) {
+            writer.write("null");
+        } else if (v instanceof Number || v instanceof Boolean) {
+            writer.write(v.toString());
+        } else if (v instanceof Date) {
+            String date;
+            synchronized (isoDateFormater) {
+                date = isoDateFormater.format((Date) v);
+            }
+            writer.write('"');
+            writer.write(date);
+            writer.write('"');
+        } else {
+            writer.write('"');
+            escapeJson(writer, v.toString());
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Escapes a JSON string in one pass, writing unescaped runs of characters at once.
+     */
+    static void escapeJson(Writer writer, String value) throws IOException {
+        int length = value.length();
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+                case '\\': escaped = "\\\\"; break;
+                case '"': escaped = "\\\""; break;
+                case '/': escaped = "\\/"; break;
+                case '\b': escaped = "\\b"; break;
+                case '\f': escaped = "\\f"; break;
+                case '\n': escaped = "\\n"; break;
+                case '\r': escaped = "\\r"; break;
+                case '\t': escaped = "\\t"; break;
+                default:
+                    if (c >= 0x20) {
+                        continue;
+                    }
+                    escaped = String.format("\\u%04x", (int) c);
+            }
+            writer.write(value, run, i - run);
+            writer.write(escaped);
+            run = i + 1;
+        }
+        writer.write(value, run, length - run);
     }
 
     /**
@@ -850,9 +991,16 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     }
 
     public <T extends Model> T parent(Class<T> parentClass, boolean cache) {
-        T cachedParent = parentClass.cast(cachedParents.get(parentClass));
-        if (cachedParent != null) {
-            return cachedParent;
+        if (parentBatch != null) {
+            T batchedParent = parentClass.cast(parentBatch.parent(this, parentClass));
+            if (batchedParent != null) {
+                return batchedParent;
+            }
+        } else if (cachedParents != null) {
+            T cachedParent = parentClass.cast(cachedParents.get(parentClass));
+            if (cachedParent != null) {
+                return cachedParent;
+            }
         }
         MetaModel parentMM = Registry.instance().getMetaModel(parentClass);
         String parentTable = parentMM.getTableName();
@@ -886,13 +1034,13 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 
         T parent;
         if (parentMM.cached()) {
-            parent = parentClass.cast(QueryCache.instance().getItem(parentTable, query, new Object[]{fkValue}));
+            parent = parentClass.cast(QueryCache.instance().getRow(parentTable, fkValue));
             if (parent != null) {
                 return parent;
             }
         }
 
-        List<Map> results = new DB(getMetaModelLocal().getDbName()).findAll(query, Integer.parseInt(fkValue));
+        List<Map> results = new DB(parentMM.getDbName()).findAll(query, get(fkName));
         //expect only one result here
         if (results.size() == 0) { //this should be covered by referential integrity constraint
             return null;
@@ -901,7 +1049,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
                 parent = parentClass.newInstance();
                 parent.hydrate(results.get(0));
                 if (parentMM.cached()) {
-                    QueryCache.instance().addItem(parentTable, query, new Object[]{fkValue}, parent);
+                    QueryCache.instance().addRow(parentTable, fkValue, parent);
                 }
                 if (cache) {
                     setCachedParent(parent);
@@ -913,8 +1061,15 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         }
     }
 
+    void setParentBatch(ParentBatch parentBatch) {
+        this.parentBatch = parentBatch;
+    }
+
     protected void setCachedParent(Model parent) {
         if (parent != null) {
+            if (cachedParents == null) {
+                cachedParents = new HashMap<Class, Model>();
+            }
             cachedParents.put(parent.getClass(), parent);
         }
     }
@@ -992,7 +1147,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      */
     protected MetaModel<?, ?> getMetaModelLocal(){
         if(metaModelLocal == null)
-            metaModelLocal = getMetaModel();
+            metaModelLocal = ModelDelegate.metaModelOf(getClass());
 
         return metaModelLocal;
     }
@@ -1066,21 +1221,25 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 
         // NOTE: this is a workaround for JSP pages. JSTL in cases ${item.id} does not call the getId() method, instead
         //calls item.get("id"), considering that this is a map only!        
-        if(!attributes.containsKey("id") && attribute.equalsIgnoreCase("id")){
+        if(!getAttributes().containsKey("id") && attribute.equalsIgnoreCase("id")){
             String idName = getMetaModelLocal().getIdName();
-            return attributes.get(idName.toLowerCase());
+            return getAttributes().get(idName.toLowerCase());
         }
 
         Object returnValue;
         String attributeName = attribute.toLowerCase();
 
+        if (partial && !getAttributes().containsKey(attributeName) && getMetaModelLocal().hasAttribute(attributeName)) {
+            loadUnselected();
+        }
+
         String getInferenceProperty = System.getProperty("activejdbc.get.inference");
 
         boolean  getInference = getInferenceProperty  == null || getInferenceProperty.equals("true");
 
         if (getInference) {
             if ((getMetaModelLocal().hasAttribute(attributeName))) {
-                return attributes.get(attributeName);//this should account for nulls too!
+                return getAttributes().get(attributeName);//this should account for nulls too!
             } else if ((returnValue = tryParent(attributeName)) != null) {
                 return returnValue;
             } else if ((returnValue = tryPolymorphicParent(attributeName)) != null) {
@@ -1096,11 +1255,44 @@ public abstract class Model extends CallbackSupport implements Externalizable {
                 return null;
             }
         } else {
-            return attributes.get(attributeName);
+            return getAttributes().get(attributeName);
         }
     }
 
 
+    /**
+     * Marks this model as loaded with some of the columns only.
+     */
+    void markPartial() {
+        partial = true;
+    }
+
+    boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Loads attributes that were not selected by {@link LazyList#select(String...)}, keeping values of attributes
+     * already present in this model.
+     */
+    private void loadUnselected() {
+        partial = false;
+        Object id = getAttributes().get(getMetaModelLocal().getIdName());
+        if (id == null) {
+            return;
+        }
+        Model full = ModelDelegate.findById(getClass(), id);
+        if (full == null) {
+            throw new DBException("cannot load unselected attributes of " + getClass().getName() + ", record with id: " + id + " not found");
+        }
+        LogFilter.log(logger, "Loaded all attributes of partially selected model " + getClass().getName() + ", id: " + id);
+        for (Map.Entry<String, Object> entry : full.getAttributes().entrySet()) {
+            if (!getAttributes().containsKey(entry.getKey())) {
+                getAttributes().put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     private Object tryPolymorphicParent(String parentTable){
         MetaModel parentMM = inferTargetMetaModel(parentTable);
         if(parentMM == null){
@@ -1391,7 +1583,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      */
 
     public <T extends Model> LazyList<T> getAll(Class<T> clazz) {
-        List<Model> children = cachedChildren.get(clazz);
+        List<Model> children = cachedChildren == null ? null : cachedChildren.get(clazz);
         if(children != null){
             return (LazyList<T>) children;
         }
@@ -1452,7 +1644,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             String query = "SELECT " + targetTable + ".* FROM " + targetTable + ", " + joinTable +
                 " WHERE " + targetTable + "." + targetId + " = " + joinTable + "." + manyToManyAssociation.getTargetFkName() +
                 " AND " + joinTable + "." + manyToManyAssociation.getSourceFkName() + " = " + getId() + additionalCriteria;
-            return new LazyList<T>(true, Registry.instance().getMetaModel(targetTable), query, params);
+            return new LazyList<T>(true, Registry.instance().getMetaModel(targetTable), query, params).dependsOn(joinTable);
         } else if (oneToManyPolymorphicAssociation != null) {
             subQuery = "parent_id = " + getId() + " AND " + " parent_type = '" + oneToManyPolymorphicAssociation.getTypeLabel() + "'" + additionalCriteria;
         } else {
@@ -1462,7 +1654,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     }
 
     protected static NumericValidationBuilder validateNumericalityOf(String... attributes) {
-        return ValidationHelper.addNumericalityValidators(getClassName(), ModelDelegate.toLowerCase(attributes));
+        return ValidationHelper.addNumericalityValidators(Model.<Model>modelClass().getName(), ModelDelegate.toLowerCase(attributes));
     }
 
     /**
@@ -1472,7 +1664,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return
      */
     public static ValidationBuilder addValidator(Validator validator){
-        return ValidationHelper.addValidator(getClassName(), validator);
+        return ValidationHelper.addValidator(Model.<Model>modelClass().getName(), validator);
     }
 
     /**
@@ -1487,11 +1679,11 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     }
 
     public static void removeValidator(Validator validator){
-        Registry.instance().removeValidator(Model.<Model>getDaClass(), validator);
+        ModelDelegate.removeValidator(Model.<Model>modelClass(), validator);
     }
 
     public static List<Validator> getValidators(Class<Model> daClass){
-        return Registry.instance().getValidators(daClass.getName());
+        return ModelDelegate.validatorsOf(daClass);
     }
 
 
@@ -1503,7 +1695,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return
      */
     protected static ValidationBuilder validateRegexpOf(String attribute, String pattern) {
-        return ValidationHelper.addRegexpValidator(getClassName(), attribute.toLowerCase(), pattern);
+        return ValidationHelper.addRegexpValidator(Model.<Model>modelClass().getName(), attribute.toLowerCase(), pattern);
     }
 
     /**
@@ -1513,7 +1705,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return
      */
     protected static ValidationBuilder validateEmailOf(String attribute) {
-        return ValidationHelper.addEmailValidator(getClassName(), attribute.toLowerCase());
+        return ValidationHelper.addEmailValidator(Model.<Model>modelClass().getName(), attribute.toLowerCase());
     }
 
     /**
@@ -1526,7 +1718,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return
      */
     protected static ValidationBuilder validateRange(String attribute, Number min, Number max) {
-        return ValidationHelper.addRangevalidator(getClassName(), attribute.toLowerCase(), min, max);
+        return ValidationHelper.addRangevalidator(Model.<Model>modelClass().getName(), attribute.toLowerCase(), min, max);
     }
 
     /**
@@ -1536,7 +1728,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return
      */
     protected static ValidationBuilder validatePresenceOf(String... attributes) {
-        return ValidationHelper.addPresensevalidators(getClassName(), ModelDelegate.toLowerCase(attributes));
+        return ValidationHelper.addPresensevalidators(Model.<Model>modelClass().getName(), ModelDelegate.toLowerCase(attributes));
     }
 
     /**
@@ -1545,7 +1737,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @param validator  custom validator.
      */
     protected static ValidationBuilder validateWith(Validator validator) {
-        return addValidator(validator);
+        return ValidationHelper.addValidator(Model.<Model>modelClass().getName(), validator);
     }
 
     /**
@@ -1557,7 +1749,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return message passing for custom validation message.
      */
     protected static ValidationBuilder convertDate(String attributeName, String format){
-        return ValidationHelper.addDateConverter(getClassName(), attributeName, format);
+        return ValidationHelper.addDateConverter(Model.<Model>modelClass().getName(), attributeName, format);
     }
 
     /**
@@ -1569,21 +1761,16 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return message passing for custom validation message.
      */
     protected static ValidationBuilder convertTimestamp(String attributeName, String format){
-        return ValidationHelper.addTimestampConverter(getClassName(), attributeName, format);
+        return ValidationHelper.addTimestampConverter(Model.<Model>modelClass().getName(), attributeName, format);
     }
 
     public static boolean belongsTo(Class<? extends Model> targetClass) {
-        String targetTable = Registry.instance().getTableName(targetClass);
-        MetaModel metaModel = getMetaModel();
-        return (null != metaModel.getAssociationForTarget(targetTable, BelongsToAssociation.class) ||
-                null != metaModel.getAssociationForTarget(targetTable, Many2ManyAssociation.class));
+        return ModelDelegate.belongsTo(Model.<Model>modelClass(), targetClass);
     }
 
 
      public static void addCallbacks(CallbackListener ... listeners){
-         for(CallbackListener listener: listeners ){
-             Registry.instance().addListener(getDaClass(), listener);
-         }
+         ModelDelegate.addCallbacks(Model.<Model>modelClass(), listeners);
     }
 
     /**
@@ -1665,19 +1852,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return newly instantiated model.
      */
     public static <T extends Model> T create(Object ... namesAndValues){
-
-        if(namesAndValues.length %2 != 0) throw new IllegalArgumentException("number of arguments must be even");
-
-        try{
-
-            Model m = getDaClass().newInstance();
-            ModelDelegate.setNamesAndValues(m, namesAndValues);
-            return (T) m;
-        }
-        catch(IllegalArgumentException e){throw e;}
-        catch(ClassCastException e){throw new  IllegalArgumentException("All even arguments must be strings");}
-        catch(DBException e){throw e;}
-        catch (Exception e){throw new InitException("Model '" + getClassName() + "' must provide a default constructor. Table:", e);}
+        return ModelDelegate.create(Model.<T>modelClass(), namesAndValues);
     }
 
 
@@ -1712,18 +1887,11 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return newly instantiated model which also has been saved to DB.
      */
     public static <T extends Model> T createIt(Object ... namesAndValues){
-        T m = (T)create(namesAndValues);
-        m.saveIt();
-        return m;
+        return ModelDelegate.createIt(Model.<T>modelClass(), namesAndValues);
     }
 
     public static <T extends Model> T findById(Object id) {
-        if(id == null) return null;
-
-        MetaModel mm = getMetaModel();
-        LazyList<T> l = new LazyList<T>(mm.getIdName() + " = ?", new Object[]{id}, mm).limit(1);
-        return l.size() > 0 ? l.get(0) : null;
-
+        return ModelDelegate.findById(Model.<T>modelClass(), id);
     }
 
     /**
@@ -1758,7 +1926,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return instance of <code>LazyList<Model></code> containing results.
      */
     public static <T extends Model> LazyList<T> where(String subquery, Object... params) {
-        return find(subquery, params);
+        return ModelDelegate.where(Model.<T>modelClass(), subquery, params);
     }
 
 
@@ -1772,16 +1940,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return instance of <code>LazyList<Model></code> containing results.
      */
     public static <T extends Model> LazyList<T> find(String subquery, Object... params) {
-
-        if(subquery.trim().equals("*") && params.length == 0){
-            return findAll();
-        }
-
-        if(subquery.equals("*") && params.length != 0){
-            throw new IllegalArgumentException("cannot provide parameters with query: '*', use findAll() method instead");
-        }
-
-        return  new LazyList(subquery, params, getMetaModel());
+        return ModelDelegate.where(Model.<T>modelClass(), subquery, params);
     }
 
 
@@ -1800,8 +1959,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return a first result for this condition. May return null if nothing found.
      */
     public static <T extends Model> T findFirst(String subQuery, Object... params) {
-        LazyList<T> results = new LazyList<T>(subQuery, params,getMetaModel()).limit(1);
-        return  results.size() > 0 ? results.get(0) : null;
+        return ModelDelegate.findFirst(Model.<T>modelClass(), subQuery, params);
     }
 
 
@@ -1831,7 +1989,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return a first result for this condition. May return null if nothing found.
      */
     public static <T extends Model> T first(String subQuery, Object... params) {
-        return (T)findFirst(subQuery, params);
+        return ModelDelegate.findFirst(Model.<T>modelClass(), subQuery, params);
     }
 
 
@@ -1843,7 +2001,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @deprecated use {@link #findWith(ModelListener, String, Object...)}.
      */
     public static void find(String query, final ModelListener listener) {
-        findWith(listener, query);
+        ModelDelegate.findWith(Model.<Model>modelClass(), listener, query);
     }
 
 
@@ -1855,17 +2013,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @param params optional parameters for a query.
      */
     public static void findWith(final ModelListener listener, String query, Object ... params) {
-        long start = System.currentTimeMillis();
-        final MetaModel metaModel = getMetaModel();
-        String sql = metaModel.getDialect().selectStar(metaModel.getTableName(), query);
-
-        new DB(metaModel.getDbName()).find(sql, params).with( new RowListenerAdapter() {
-            @Override
-            public void onNext(Map<String, Object> row) {
-                listener.onModel(instance(row, metaModel));
-            }
-        });
-        LogFilter.logQuery(logger, sql, null, start);
+        ModelDelegate.findWith(Model.<Model>modelClass(), listener, query, params);
     }
 
 
@@ -1883,8 +2031,8 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return list of models representing result set.
      */
     public static <T extends Model> LazyList<T> findBySQL(String fullQuery, Object... params) {
-        return  new LazyList<T>(false, getMetaModel(), fullQuery,  params);
-     }
+        return ModelDelegate.findBySql(Model.<T>modelClass(), fullQuery, params);
+    }
 
     /**
      * This method returns all records from this table. If you need to get a subset, look for variations of "find()".
@@ -1892,7 +2040,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return result list
      */
     public static  <T extends Model> LazyList<T>   findAll() {
-        return new LazyList(null, new Object[]{}, getMetaModel());
+        return ModelDelegate.findAll(Model.<T>modelClass());
     }
 
     /**
@@ -1936,6 +2084,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
                 MetaModel joinMM = Registry.instance().getMetaModel(join);
                 if(joinMM == null){
                     new DB(metaModel.getDbName()).exec("INSERT INTO " + join + " ( " + sourceFkName + ", " + targetFkName + " ) VALUES ( " + getId()+ ", " + child.getId() + ")");
+                    QueryCache.instance().purgeDependents(join);
                 }else{
                     //TODO: write a test to cover this case:
                     //this is for Oracle, many 2 many, and all annotations used, including @IdGenerator. In this case,
@@ -1951,11 +2100,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
                                 + ", are you sure this class has a default constructor?", e);
                     }
                     catch(IllegalAccessException e){throw new InitException(e);}
-                    finally {
-                        QueryCache.instance().purgeTableCache(join);
-                        QueryCache.instance().purgeTableCache(metaModel.getTableName());
-                        QueryCache.instance().purgeTableCache(childTable);
-                    }
+                    //saveIt() of the join model purged queries which depend on the join table
                 }
              }else if(metaModel.hasAssociation(childTable, OneToManyPolymorphicAssociation.class)){
 
@@ -2008,6 +2153,8 @@ public abstract class Model extends CallbackSupport implements Externalizable {
                 String targetFkName = ass.getTargetFkName();
                 new DB(metaModel.getDbName()).exec("DELETE FROM " + join + " WHERE " + sourceFkName + " = ? AND "
                         + targetFkName + " = ?", getId(), child.getId());
+                QueryCache.instance().purgeTableCache(join);
+                QueryCache.instance().purgeDependents(join);
             }else
                 throw new NotAssociatedException(metaModel.getTableName(), childTable);
         } else {
@@ -2024,8 +2171,8 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      */
     public boolean saveIt() {
         boolean result = save();
-        purgeEdges();
-        if(errors.size() > 0){
+        ModelDelegate.purgeEdges(getMetaModelLocal());
+        if(hasErrors()){
             throw new ValidationException(this);
         }
         return result;
@@ -2038,7 +2185,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * After this method, this instance is equivalent to an empty, just created instance.
      */
     public void reset() {
-        attributes = new HashMap<String, Object>();
+        attributes = null;
     }
 
     /**
@@ -2052,7 +2199,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * Synonym for {@link #defrost()}.
      */
     public void thaw(){
-        attributes.put(getMetaModelLocal().getIdName(), "");//makes it blank
+        getAttributes().put(getMetaModelLocal().getIdName(), "");//makes it blank
         frozen = false;
     }
 
@@ -2110,20 +2257,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return total count of records in table.
      */
     public static Long count() {
-        MetaModel metaModel = getMetaModel();
-        String sql = "SELECT COUNT(*) FROM " + metaModel.getTableName();
-        Long result;
-        if(metaModel.cached()){
-         result = (Long)QueryCache.instance().getItem(metaModel.getTableName(), sql, null);
-            if(result == null)
-            {
-                result = new DB(metaModel.getDbName()).count(metaModel.getTableName());
-                QueryCache.instance().addItem(metaModel.getTableName(), sql, null, result);
-            }
-        }else{
-            result = new DB(metaModel.getDbName()).count(metaModel.getTableName());
-        }
-        return result;
+        return ModelDelegate.count(Model.<Model>modelClass());
     }
 
     /**
@@ -2134,23 +2268,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @return count of records in table under a condition.
      */
     public static Long count(String query, Object... params) {
-
-        MetaModel metaModel = getMetaModel();
-
-        //attention: this SQL is only used for caching, not for real queries.
-        String sql = "SELECT COUNT(*) FROM " + metaModel.getTableName() + " where " + query;
-
-        Long result;
-        if(metaModel.cached()){
-            result = (Long)QueryCache.instance().getItem(metaModel.getTableName(), sql, params);
-            if(result == null){
-                result = new DB(metaModel.getDbName()).count(metaModel.getTableName(), query, params);
-                QueryCache.instance().addItem(metaModel.getTableName(), sql, params, result);
-            }
-        }else{
-            result = new DB(metaModel.getDbName()).count(metaModel.getTableName(), query, params);
-        }
-        return result;
+        return ModelDelegate.count(Model.<Model>modelClass(), query, params);
     }
 
 
@@ -2160,7 +2278,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     private List<String> getValueAttributeNames(boolean includeId) {
         List<String> attributeNames = new ArrayList<String>();
 
-        for(String name: attributes.keySet()){
+        for(String name: getAttributes().keySet()){
             if(includeId){
                 if (!name.equalsIgnoreCase("record_version"))
                     attributeNames.add(name);
@@ -2185,16 +2303,16 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 
         List<Object> values = new ArrayList<Object>();
         for (String attribute : valueAttributes) {
-            values.add(this.attributes.get(attribute));
+            values.add(getAttributes().get(attribute));
         }
         String query = getMetaModelLocal().getDialect().createParametrizedInsert(getMetaModelLocal(), valueAttributes);
         try {
             long id = new DB(getMetaModelLocal().getDbName()).execInsert(query, getMetaModelLocal().getIdName(), values.toArray());
             if(getMetaModelLocal().cached()){
-                QueryCache.instance().purgeTableCache(getMetaModelLocal().getTableName());
+                QueryCache.instance().purgeRowCache(getMetaModelLocal().getTableName(), null);
             }
 
-            attributes.put(getMetaModelLocal().getIdName(), id);
+            getAttributes().put(getMetaModelLocal().getIdName(), id);
 
             fireAfterCreate(this);
 
@@ -2228,13 +2346,13 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 
         List<Object> values = new ArrayList<Object>();
         for (String attribute : valueAttributes) {
-            values.add(this.attributes.get(attribute));
+            values.add(getAttributes().get(attribute));
         }
         String query = getMetaModelLocal().getDialect().createParametrizedInsertIdUnmanaged(getMetaModelLocal(), valueAttributes);
         try {
             long recordsUpdated = new DB(getMetaModelLocal().getDbName()).exec(query, values.toArray());
             if(getMetaModelLocal().cached()){
-                QueryCache.instance().purgeTableCache(getMetaModelLocal().getTableName());
+                QueryCache.instance().purgeRowCache(getMetaModelLocal().getTableName(), getId());
             }
 
             fireAfterCreate(this);
@@ -2254,17 +2372,17 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     private void doCreatedAt() {
         if(getMetaModelLocal().hasAttribute("created_at")){
             //clean just in case.
-            attributes.remove("created_at");
-            attributes.remove("CREATED_AT");
-            attributes.put("created_at", new Timestamp(System.currentTimeMillis()));
+            getAttributes().remove("created_at");
+            getAttributes().remove("CREATED_AT");
+            getAttributes().put("created_at", new Timestamp(System.currentTimeMillis()));
         }
     }
 
     private void doUpdatedAt() {
         if(getMetaModelLocal().hasAttribute("updated_at")){
             //clean just in case.
-            attributes.remove("updated_at");
-            attributes.remove("UPDATED_AT");
+            getAttributes().remove("updated_at");
+            getAttributes().remove("UPDATED_AT");
             set("updated_at", new Timestamp(System.currentTimeMillis()));
         }
     }
@@ -2274,27 +2392,39 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         doUpdatedAt();
 
         MetaModel metaModel = getMetaModelLocal();
-        String query = "UPDATE " + metaModel.getTableName() + " SET ";
         List<String> names = metaModel.getAttributeNamesSkipGenerated();
-        for (int i = 0; i < names.size(); i++) {
-            String name = names.get(i);
-            query += name + "= ?";
-            if (i < names.size() - 1) {
-                query += ", ";
+        if (partial) {
+            //attributes which were neither selected nor set are not written, so that they keep their values
+            for (Iterator<String> iterator = names.iterator(); iterator.hasNext();) {
+                if (!getAttributes().containsKey(iterator.next())) {
+                    iterator.remove();
+                }
             }
         }
-
-        List values = getAttributeValuesSkipGenerated();
+        List values = new ArrayList();
+        for (String name : names) {
+            values.add(get(name));
+        }
 
         if(metaModel.hasAttribute("updated_at")){
-            query += ", updated_at = ? ";
+            names.add("updated_at");
             values.add(get("updated_at"));
         }
 
         if(metaModel.isVersioned()){
-            query += ", record_version = ? ";
+            names.add("record_version");
             values.add(getLong("record_version") + 1);
         }
+        if (names.isEmpty()) {
+            return false;
+        }
+        String query = "UPDATE " + metaModel.getTableName() + " SET ";
+        for (int i = 0; i < names.size(); i++) {
+            query += names.get(i) + " = ?";
+            if (i < names.size() - 1) {
+                query += ", ";
+            }
+        }
         query += " where " + metaModel.getIdName() + " = ?";
         query += metaModel.isVersioned()? " and record_version = ?" :"";
         values.add(getId());
@@ -2310,26 +2440,31 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             set("record_version", getLong("record_version") + 1);
         }
         if(metaModel.cached()){
-            QueryCache.instance().purgeTableCache(metaModel.getTableName());
+            QueryCache.instance().purgeRowCache(metaModel.getTableName(), getId());
         }
         return updated > 0;
     }
 
-    private List getAttributeValuesSkipGenerated() {
-        List<String> names = getMetaModelLocal().getAttributeNamesSkipGenerated();
-        List values = new ArrayList();
-        for (String name : names) {
-            values.add(get(name));
-        }
-        return values;
+    static <T extends Model> T instance(Map m, MetaModel metaModel) {
+        T instance = Model.<T>newInstance(metaModel);
+        instance.hydrate(m);
+        return instance;
     }
 
-    static <T extends Model> T instance(Map m, MetaModel metaModel) {
+    /**
+     * Creates a new empty instance of a model.
+     *
+     * @param metaModel metamodel of a model to create.
+     * @return new instance of a model with metamodel set.
+     */
+    static <T extends Model> T newInstance(MetaModel metaModel) {
         try {
-            T instance = (T) metaModel.getModelClass().newInstance();
+            Model instance = (Model) metaModel.getModelClass().newInstance();
             instance.setMetamodelLocal(metaModel);
-            instance.hydrate(m);
-            return instance;
+            if (instance.attributes == null) {//constructor of a model could have set some attributes already
+                instance.attributes = new CompactAttributes(metaModel.getAttributeLayout());
+            }
+            return (T) instance;
         }
         catch(InstantiationException e){
             throw new InitException("Failed to create a new instance of: " + metaModel.getModelClass() + ", are you sure this class has a default constructor?");
@@ -2345,7 +2480,30 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         }
     }
 
+    /**
+     * Returns class of a model on which a static method was called. Instrumentation replaces this method in every
+     * model with one that simply returns a class literal, so that static finders such as <code>Person.where(...)</code>
+     * never need to look up the model class at run time. The implementation below is only used by models that
+     * were not instrumented, it finds the model class by walking the call stack, which is very slow.
+     *
+     * @return class of a model on which a static method was called.
+     */
+    private static <T extends Model> Class<T> modelClass() {
+        return getDaClass();
+    }
+
+    private static final AtomicInteger stackWalkCount = new AtomicInteger();
+
+    /**
+     * @return number of times a model class was found by walking the call stack, stays 0 if all models are
+     * instrumented.
+     */
+    static int stackWalks() {
+        return stackWalkCount.get();
+    }
+
     private static <T extends Model> Class<T> getDaClass() {
+        stackWalkCount.incrementAndGet();
         try {
             if (Registry.instance().initialized()) {
                 MetaModel mm = Registry.instance().getMetaModelByClassName(getClassName());
@@ -2363,7 +2521,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     }
 
     public static String getTableName() {
-        return Registry.instance().getTableName(getDaClass());
+        return ModelDelegate.tableNameOf(Model.<Model>modelClass());
     }
 
     public Object getId() {
@@ -2374,7 +2532,18 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return getMetaModelLocal().getIdName();
     }
 
+    Map<Class, Model> getCachedParents() {
+        return cachedParents;
+    }
+
+    Map<Class, List<Model>> getCachedChildren() {
+        return cachedChildren;
+    }
+
     protected void setChildren(Class childClass, List<Model> children) {
+        if (cachedChildren == null) {
+            cachedChildren = new HashMap<Class, List<Model>>();
+        }
         cachedChildren.put(childClass, children);
     }
 
@@ -2441,7 +2610,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             formatterMap.put(f.getValueClass(), f);
         }
 
-        List<String> names = new ArrayList<String>(attributes.keySet());
+        List<String> names = new ArrayList<String>(getAttributes().keySet());
         Collections.sort(names);
         List<Object> values = new ArrayList();
 
@@ -2468,10 +2637,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * Use to force-purge cache associated with this table. If this table is not cached, this method has no side effect.
      */
     public static void purgeCache(){
-        MetaModel mm = getMetaModel();
-        if(mm.cached()){
-            QueryCache.instance().purgeTableCache(mm.getTableName());
-        }
+        ModelDelegate.purgeCache(Model.<Model>modelClass());
     }
 
 
@@ -2488,17 +2654,37 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return Convert.toLong(id);
     }
 
-    private static void purgeEdges(){
-        ModelDelegate.purgeEdges(getMetaModel());
-    }
 
+    /**
+     * @return layout of attributes of this model, null if not known without looking up its metamodel.
+     */
+    CompactAttributes.Layout getAttributeLayout() {
+        if (attributes instanceof CompactAttributes) {
+            return ((CompactAttributes) attributes).getLayout();
+        }
+        return metaModelLocal == null ? null : metaModelLocal.getAttributeLayout();
+    }
 
+    /**
+     * Writes attributes, included parents and children in a compact format, see {@link ModelCodec}.
+     */
     public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeObject(attributes);
+        ModelCodec.writeExternal(this, out);
     }
 
+    /**
+     * Reads a model written by {@link #writeExternal(ObjectOutput)}, or by older versions which wrote
+     * a map of attributes.
+     */
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        attributes = (Map<String, Object>) in.readObject();
+        Object header = in.readObject();
+        if (header instanceof Map) {
+            attributes = (Map<String, Object>) header;
+        } else if (header instanceof ModelCodec.Dictionary) {
+            ModelCodec.readExternal(this, (ModelCodec.Dictionary) header, in);
+        } else {
+            throw new InvalidObjectException("unknown format of model: " + header);
+        }
     }
 }
 
@@ -0,0 +1,664 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Compact binary encoding of models and lists of models, used by caches which keep them outside of heap, such as
+ * {@link org.javalite.activejdbc.cache.OffHeapCacheManager}.
+ * <p/>
+ * A model is written as an id of a column layout of its class, followed by attributes. Attributes known to the layout
+ * are written as their position and a typed value, so names of columns are not repeated for every model. Included
+ * parents and children are written together with the model. Layout ids are assigned by this JVM, so encoded
+ * data is only valid within it.
+ * <p/>
+ * A list is written with offsets of all models, and is decoded lazily: a model is decoded when it is first accessed.
+ * <p/>
+ * Java serialization of models and lazy lists uses a portable variant of this format, see
+ * {@link #writeExternal(Model, ObjectOutput)}.
+ *
+ * @author Igor Polevoy
+ */
+public final class ModelCodec {
+
+    private static final byte NULL = 0, STRING = 1, INTEGER = 2, LONG = 3, SHORT = 4, BYTE = 5, DOUBLE = 6, FLOAT = 7,
+            TRUE = 8, FALSE = 9, BIG_DECIMAL = 10, BIG_INTEGER = 11, SQL_DATE = 12, TIMESTAMP = 13, TIME = 14, DATE = 15,
+            BYTES = 16, CHARACTER = 17, SERIALIZED = 18;
+
+    private static final byte MODEL_ENTRY = 'M', LIST_ENTRY = 'L';
+
+    private static final ConcurrentMap<Class, ClassLayout> layoutsByClass = new ConcurrentHashMap<Class, ClassLayout>();
+    private static final List<ClassLayout> layouts = new CopyOnWriteArrayList<ClassLayout>();
+    private static final ConcurrentMap<CompactAttributes.Layout, Dictionary> dictionaries
+            = new ConcurrentHashMap<CompactAttributes.Layout, Dictionary>();
+
+    private ModelCodec() {}
+
+    /**
+     * @param value object to check.
+     * @return true if the object is a model or a list of models, which can be encoded by {@link #encode(Object)}.
+     */
+    public static boolean canEncode(Object value) {
+        if (value instanceof Model) {
+            return true;
+        }
+        if (value instanceof List) {
+            for (Object item : (List) value) {
+                if (!(item instanceof Model)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Encodes a model or a list of models.
+     *
+     * @param value model or a list of models, see {@link #canEncode(Object)}.
+     * @return encoded value.
+     */
+    public static byte[] encode(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (value instanceof Model) {
+                out.writeByte(MODEL_ENTRY);
+                writeModel(out, (Model) value);
+            } else if (value instanceof List) {
+                List list = (List) value;
+                ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(list.size() * 64 + 16);
+                DataOutputStream body = new DataOutputStream(bodyBytes);
+                int[] offsets = new int[list.size()];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = body.size();
+                    writeModel(body, (Model) list.get(i));
+                }
+                out.writeByte(LIST_ENTRY);
+                out.writeInt(offsets.length);
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                bodyBytes.writeTo(out);
+            } else {
+                throw new IllegalArgumentException("can only encode models and lists of models, got: " + value);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    /**
+     * Decodes a value encoded by {@link #encode(Object)}.
+     *
+     * @param bytes encoded value.
+     * @return a model, or a list of models which are decoded when accessed.
+     */
+    public static Object decode(byte[] bytes) {
+        if (bytes[0] == MODEL_ENTRY) {
+            return readModel(bytes, 1);
+        } else if (bytes[0] == LIST_ENTRY) {
+            return new DecodedList(bytes);
+        } else {
+            throw new IllegalArgumentException("not an encoded model or list");
+        }
+    }
+
+    private static ClassLayout layout(Model model) {
+        Class modelClass = model.getClass();
+        ClassLayout layout = layoutsByClass.get(modelClass);
+        if (layout == null) {
+            synchronized (layouts) {
+                layout = layoutsByClass.get(modelClass);
+                if (layout == null) {
+                    MetaModel metaModel = Registry.instance().getMetaModel(modelClass);
+                    layout = new ClassLayout(layouts.size(), metaModel, metaModel.getAttributeLayout());
+                    layouts.add(layout);
+                    layoutsByClass.put(modelClass, layout);
+                }
+            }
+        }
+        return layout;
+    }
+
+    private static void writeModel(DataOutput out, Model model) throws IOException {
+        ClassLayout layout = layout(model);
+        writeVarInt(out, layout.id);
+        Map<String, Object> attributes = model.getAttributes();
+        writeVarInt(out, attributes.size());
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            int index = layout.layout.indexOf(entry.getKey());
+            writeVarInt(out, index + 1);
+            if (index == -1) {
+                writeString(out, entry.getKey());
+            }
+            writeValue(out, entry.getValue());
+        }
+        out.writeBoolean(model.isPartial());
+
+        Map<Class, Model> parents = model.getCachedParents();
+        writeVarInt(out, parents == null ? 0 : parents.size());
+        if (parents != null) {
+            for (Model parent : parents.values()) {
+                writeModel(out, parent);
+            }
+        }
+        Map<Class, List<Model>> children = model.getCachedChildren();
+        writeVarInt(out, children == null ? 0 : children.size());
+        if (children != null) {
+            for (Map.Entry<Class, List<Model>> entry : children.entrySet()) {
+                writeString(out, entry.getKey().getName());
+                writeVarInt(out, entry.getValue().size());
+                for (Model child : entry.getValue()) {
+                    writeModel(out, child);
+                }
+            }
+        }
+    }
+
+    private static Model readModel(byte[] bytes, int offset) {
+        try {
+            return readModel(new DataInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset)));
+        } catch (IOException e) {
+            throw new InternalException(e);
+        }
+    }
+
+    private static Model readModel(DataInput in) throws IOException {
+        ClassLayout layout = layouts.get(readVarInt(in));
+        Model model = Model.newInstance(layout.metaModel);
+        Map<String, Object> attributes = model.getAttributes();
+        CompactAttributes compact = attributes instanceof CompactAttributes
+                && ((CompactAttributes) attributes).hasLayout(layout.layout) ? (CompactAttributes) attributes : null;
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            int index = readVarInt(in) - 1;
+            String name = index == -1 ? readString(in) : null;
+            Object value = readValue(in);
+            if (name != null) {
+                attributes.put(name, value);
+            } else if (compact != null) {
+                compact.set(index, value);
+            } else {
+                attributes.put(layout.layout.name(index), value);
+            }
+        }
+        if (in.readBoolean()) {
+            model.markPartial();
+        }
+
+        int parents = readVarInt(in);
+        for (int i = 0; i < parents; i++) {
+            model.setCachedParent(readModel(in));
+        }
+        int childClasses = readVarInt(in);
+        for (int i = 0; i < childClasses; i++) {
+            Class childClass = modelClass(readString(in));
+            int count = readVarInt(in);
+            SuperLazyList<Model> children = new SuperLazyList<Model>();
+            for (int j = 0; j < count; j++) {
+                children.add(readModel(in));
+            }
+            model.setChildren(childClass, children);
+        }
+        return model;
+    }
+
+    private static Class modelClass(String name) {
+        for (ClassLayout layout : layouts) {
+            if (layout.metaModel.getModelClass().getName().equals(name)) {
+                return layout.metaModel.getModelClass();
+            }
+        }
+        throw new InternalException("unknown model class: " + name);
+    }
+
+    /**
+     * Writes a model in the format of {@link Model#writeExternal(ObjectOutput)}: a column dictionary of the table,
+     * followed by attributes. The dictionary is the same object for all models of a table, so Java serialization
+     * writes it only once per stream, and attributes are written as positions in it and typed values.
+     *
+     * @param model model to write.
+     * @param out output.
+     */
+    static void writeExternal(Model model, ObjectOutput out) throws IOException {
+        CompactAttributes.Layout layout = model.getAttributeLayout();
+        out.writeObject(dictionary(layout));
+        writeExternalAttributes(model, layout, out);
+    }
+
+    /**
+     * Reads a model written by {@link #writeExternal(Model, ObjectOutput)}, after its dictionary was read.
+     *
+     * @param model model to read into.
+     * @param dictionary column dictionary read from the stream.
+     * @param in input.
+     */
+    static void readExternal(Model model, Dictionary dictionary, ObjectInput in) throws IOException, ClassNotFoundException {
+        if (dictionary.version > Dictionary.VERSION) {
+            throw new InvalidObjectException("unsupported version of model format: " + dictionary.version);
+        }
+        readExternalAttributes(model, dictionary, in);
+    }
+
+    private static Dictionary dictionary(CompactAttributes.Layout layout) {
+        if (layout == null) {
+            return Dictionary.EMPTY;
+        }
+        Dictionary dictionary = dictionaries.get(layout);
+        if (dictionary == null) {
+            String[] columns = new String[layout.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = layout.name(i);
+            }
+            dictionary = new Dictionary(columns);
+            Dictionary existing = dictionaries.putIfAbsent(layout, dictionary);
+            if (existing != null) {
+                dictionary = existing;
+            }
+        }
+        return dictionary;
+    }
+
+    private static void writeExternalAttributes(Model model, CompactAttributes.Layout layout, ObjectOutput out) throws IOException {
+        Map<String, Object> attributes = model.getAttributes();
+        writeVarInt(out, attributes.size());
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            int index = layout == null ? -1 : layout.indexOf(entry.getKey());
+            writeVarInt(out, index + 1);
+            if (index == -1) {
+                writeString(out, entry.getKey());
+            }
+            writeValue(out, entry.getValue());
+        }
+        out.writeBoolean(model.isPartial());
+
+        Map<Class, Model> parents = model.getCachedParents();
+        writeVarInt(out, parents == null ? 0 : parents.size());
+        if (parents != null) {
+            for (Model parent : parents.values()) {
+                out.writeObject(parent);
+            }
+        }
+        Map<Class, List<Model>> children = model.getCachedChildren();
+        writeVarInt(out, children == null ? 0 : children.size());
+        if (children != null) {
+            for (Map.Entry<Class, List<Model>> entry : children.entrySet()) {
+                out.writeObject(entry.getKey());
+                writeVarInt(out, entry.getValue().size());
+                for (Model child : entry.getValue()) {
+                    out.writeObject(child);
+                }
+            }
+        }
+    }
+
+    private static void readExternalAttributes(Model model, Dictionary dictionary, ObjectInput in) throws IOException, ClassNotFoundException {
+        Map<String, Object> attributes = model.getAttributes();
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            int index = readVarInt(in) - 1;
+            String name = index == -1 ? readString(in) : dictionary.columns[index];
+            attributes.put(name, readValue(in));
+        }
+        if (in.readBoolean()) {
+            model.markPartial();
+        }
+
+        int parents = readVarInt(in);
+        for (int i = 0; i < parents; i++) {
+            model.setCachedParent((Model) in.readObject());
+        }
+        int childClasses = readVarInt(in);
+        for (int i = 0; i < childClasses; i++) {
+            Class childClass = (Class) in.readObject();
+            int count = readVarInt(in);
+            SuperLazyList<Model> children = new SuperLazyList<Model>();
+            for (int j = 0; j < count; j++) {
+                children.add((Model) in.readObject());
+            }
+            model.setChildren(childClass, children);
+        }
+    }
+
+    /**
+     * Names of columns of a table, written once per stream by Java serialization. Positions of attributes of models
+     * in the stream refer to it.
+     */
+    static final class Dictionary implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static final int VERSION = 1;
+        private static final Dictionary EMPTY = new Dictionary(new String[0]);
+
+        private final int version;
+        private final String[] columns;
+
+        private Dictionary(String[] columns) {
+            this.version = VERSION;
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Serialized form of a {@link LazyList}: its models are written without the query, and are read back
+     * into a {@link SuperLazyList}. Columns of the table are written once for the whole list.
+     */
+    public static final class SerializedList implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        private List<? extends Model> models;
+
+        /**
+         * Used by Java serialization only.
+         */
+        public SerializedList() {}
+
+        SerializedList(List<? extends Model> models) {
+            this.models = models;
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            CompactAttributes.Layout layout = models.isEmpty() ? null : models.get(0).getAttributeLayout();
+            out.writeObject(dictionary(layout));
+            writeVarInt(out, models.size());
+            Class modelClass = null;
+            for (Model model : models) {
+                if (model.getClass() != modelClass) {
+                    modelClass = model.getClass();
+                    out.writeBoolean(true);
+                    out.writeObject(modelClass);
+                } else {
+                    out.writeBoolean(false);
+                }
+                writeExternalAttributes(model, model.getAttributeLayout() == layout ? layout : null, out);
+            }
+        }
+
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            Dictionary dictionary = (Dictionary) in.readObject();
+            if (dictionary.version > Dictionary.VERSION) {
+                throw new InvalidObjectException("unsupported version of model format: " + dictionary.version);
+            }
+            int size = readVarInt(in);
+            List<Model> list = new ArrayList<Model>(size);
+            Class modelClass = null;
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    modelClass = (Class) in.readObject();
+                }
+                Model model;
+                try {
+                    model = (Model) modelClass.newInstance();
+                } catch (Exception e) {
+                    throw new InvalidClassException(modelClass.getName(), "failed to create instance: " + e);
+                }
+                readExternalAttributes(model, dictionary, in);
+                list.add(model);
+            }
+            models = list;
+        }
+
+        protected Object readResolve() {
+            SuperLazyList<Model> list = new SuperLazyList<Model>();
+            for (Model model : models) {
+                list.add(model);
+            }
+            return list;
+        }
+    }
+
+    static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            BigDecimal decimal = (BigDecimal) value;
+            writeVarInt(out, decimal.scale());
+            writeBytes(out, decimal.unscaledValue().toByteArray());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof java.sql.Timestamp) {
+            out.writeByte(TIMESTAMP);
+            java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.sql.Time) {
+            out.writeByte(TIME);
+            out.writeLong(((java.sql.Time) value).getTime());
+        } else if (value.getClass() == java.util.Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) value);
+        } else {
+            out.writeByte(SERIALIZED);
+            if (out instanceof ObjectOutput) {
+                ((ObjectOutput) out).writeObject(value);
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+            objectOut.writeObject(value);
+            objectOut.close();
+            writeBytes(out, bytes.toByteArray());
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL: return null;
+            case STRING: return readString(in);
+            case INTEGER: return in.readInt();
+            case LONG: return in.readLong();
+            case SHORT: return in.readShort();
+            case BYTE: return in.readByte();
+            case DOUBLE: return in.readDouble();
+            case FLOAT: return in.readFloat();
+            case TRUE: return Boolean.TRUE;
+            case FALSE: return Boolean.FALSE;
+            case BIG_DECIMAL:
+                int scale = readVarInt(in);
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER: return new BigInteger(readBytes(in));
+            case TIMESTAMP:
+                java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case SQL_DATE: return new java.sql.Date(in.readLong());
+            case TIME: return new java.sql.Time(in.readLong());
+            case DATE: return new java.util.Date(in.readLong());
+            case BYTES: return readBytes(in);
+            case CHARACTER: return in.readChar();
+            case SERIALIZED:
+                try {
+                    if (in instanceof ObjectInput) {
+                        return ((ObjectInput) in).readObject();
+                    }
+                    return new ObjectInputStream(new ByteArrayInputStream(readBytes(in))).readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new InternalException(e);
+                }
+            default: throw new IOException("unknown type of value: " + type);
+        }
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value.getBytes("UTF-8"));
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), "UTF-8");
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes a non-negative integer in 1 to 5 bytes, 7 bits per byte.
+     */
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed integer");
+    }
+
+    private static final class ClassLayout {
+        private final int id;
+        private final MetaModel metaModel;
+        private final CompactAttributes.Layout layout;
+
+        private ClassLayout(int id, MetaModel metaModel, CompactAttributes.Layout layout) {
+            this.id = id;
+            this.metaModel = metaModel;
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * List of encoded models, decodes a model the first time it is accessed. A list which is modified is
+     * decoded completely.
+     */
+    private static final class DecodedList extends AbstractList<Model> implements RandomAccess {
+        private final byte[] bytes;
+        private final int bodyStart;
+        private Model[] models;
+        private List<Model> modified;
+
+        private DecodedList(byte[] bytes) {
+            this.bytes = bytes;
+            this.models = new Model[readInt(1)];
+            this.bodyStart = 5 + 4 * models.length;
+        }
+
+        private int readInt(int position) {
+            return ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16)
+                    | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+        }
+
+        @Override
+        public synchronized Model get(int index) {
+            if (modified != null) {
+                return modified.get(index);
+            }
+            if (index < 0 || index >= models.length) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + models.length);
+            }
+            if (models[index] == null) {
+                models[index] = readModel(bytes, bodyStart + readInt(5 + 4 * index));
+            }
+            return models[index];
+        }
+
+        @Override
+        public synchronized int size() {
+            return modified != null ? modified.size() : models.length;
+        }
+
+        @Override
+        public synchronized Model set(int index, Model model) {
+            return modified().set(index, model);
+        }
+
+        @Override
+        public synchronized void add(int index, Model model) {
+            modified().add(index, model);
+            modCount++;
+        }
+
+        @Override
+        public synchronized Model remove(int index) {
+            modCount++;
+            return modified().remove(index);
+        }
+
+        private List<Model> modified() {
+            if (modified == null) {
+                List<Model> list = new ArrayList<Model>(models.length);
+                for (int i = 0; i < models.length; i++) {
+                    list.add(get(i));
+                }
+                modified = list;
+                models = null;
+            }
+            return modified;
+        }
+    }
+}
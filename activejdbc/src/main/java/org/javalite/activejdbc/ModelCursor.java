@@ -0,0 +1,142 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over models pulled from an open result set one at a time, so that memory stays constant regardless
+ * of the size of a result set. Instances are returned by {@link LazyList#cursor()} and can be iterated over only once.
+ * Statement and result set are closed automatically when the last model is read, or when reading fails.
+ * If you stop before the end, call {@link #close()}, for instance from a <code>finally</code> block:
+ * <pre>
+ * ModelCursor&lt;Person&gt; people = Person.where("last_name = ?", "Smith").orderBy("id").cursor();
+ * try {
+ *     for (Person p : people) {
+ *         ...
+ *     }
+ * } finally {
+ *     people.close();
+ * }
+ * </pre>
+ * If the list has includes, models are read in batches of {@link #INCLUDE_BATCH_SIZE} and their dependencies
+ * are loaded once per batch.
+ *
+ * @author Igor Polevoy
+ */
+public class ModelCursor<T extends Model> implements Iterator<T>, Iterable<T>, Closeable {
+
+    static final int INCLUDE_BATCH_SIZE = 1000;
+
+    private final LazyList<T> source;
+    private final MetaModel metaModel;
+    private final boolean hasIncludes;
+    private ResultSet rs;
+    private Statement s;
+    private IndexedRow row;
+    private HydrationPlan plan;
+    private List<T> batch = new ArrayList<T>();
+    private int position;
+    private boolean closed;
+
+    ModelCursor(LazyList<T> source, MetaModel metaModel, boolean hasIncludes, ResultSet rs, Statement s) {
+        this.source = source;
+        this.metaModel = metaModel;
+        this.hasIncludes = hasIncludes;
+        this.rs = rs;
+        this.s = s;
+    }
+
+    /**
+     * @return this instance, can be called only once.
+     */
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    public boolean hasNext() {
+        if (position < batch.size()) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        fetch();
+        return position < batch.size();
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T model = batch.get(position);
+        batch.set(position++, null);//let it go as soon as client is done with it
+        return model;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("this operation is not supported, cannot manipulate DB results");
+    }
+
+    private void fetch() {
+        batch.clear();
+        position = 0;
+        int batchSize = hasIncludes ? INCLUDE_BATCH_SIZE : 1;
+        try {
+            if (row == null) {
+                row = new IndexedRow(RowProcessor.getLabels(rs.getMetaData()));
+                plan = metaModel.getHydrationPlan(row.getLabels());
+            }
+            while (batch.size() < batchSize && rs.next()) {
+                row.read(rs);
+                T model = plan.newModel(row, source.isPartial());
+                batch.add(model);
+            }
+        } catch (SQLException e) {
+            close();
+            throw new DBException(e);
+        }
+        if (batch.size() < batchSize) {
+            close();
+        }
+        if (hasIncludes && batch.size() > 0) {
+            source.processIncludes(batch);
+        }
+    }
+
+    /**
+     * Closes result set and statement. It is safe to call this method more than once.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try { rs.close(); } catch (Exception e) {/*ignore*/}
+        try { s.close(); } catch (Exception e) {/*ignore*/}
+        rs = null;
+        s = null;
+    }
+}
@@ -1,14 +1,229 @@
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.associations.BelongsToAssociation;
+import org.javalite.activejdbc.associations.Many2ManyAssociation;
+import org.javalite.activejdbc.cache.ItemLoader;
 import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.Map;
 
 /**
+ * Implementation of static methods of {@link Model}. Every static method of a model passes the class of the model
+ * it was invoked on, so that none of these methods need to find out which model they are working for.
+ * This class is public only because instrumented models call it directly, it is not intended for use by applications.
+ *
  * @author Igor Polevoy: 4/25/12 2:45 AM
  */
-class ModelDelegate {
+public class ModelDelegate {
+    private final static Logger logger = LoggerFactory.getLogger(ModelDelegate.class);
+
+    private ModelDelegate() {}
+
+    public static MetaModel metaModelOf(Class<? extends Model> clazz) {
+        MetaModel metaModel = Registry.instance().getMetaModel(clazz);
+        if (metaModel == null) {
+            throw new DBException("failed to find metamodel for " + clazz + ". Are you sure that a corresponding table exists in DB?");
+        }
+        return metaModel;
+    }
+
+    public static String tableNameOf(Class<? extends Model> clazz) {
+        return Registry.instance().getTableName(clazz);
+    }
+
+    public static List<String> attributes(Class<? extends Model> clazz) {
+        return metaModelOf(clazz).getAttributeNames();
+    }
+
+    public static List<Association> associations(Class<? extends Model> clazz) {
+        return metaModelOf(clazz).getAssociations();
+    }
+
+    public static int delete(Class<? extends Model> clazz, String query, Object... params) {
+        MetaModel metaModel = metaModelOf(clazz);
+        int count =  params == null || params.length == 0? new DB(metaModel.getDbName()).exec("DELETE FROM " + metaModel.getTableName() + " WHERE " + query) :
+        new DB(metaModel.getDbName()).exec("DELETE FROM " + metaModel.getTableName() + " WHERE " + query, params);
+        if(metaModel.cached()){
+            QueryCache.instance().purgeTableCache(metaModel.getTableName());
+        }
+        purgeEdges(metaModel);
+        return count;
+    }
+
+    public static int deleteAll(Class<? extends Model> clazz) {
+        MetaModel metaModel = metaModelOf(clazz);
+        int count = new DB(metaModel.getDbName()).exec("DELETE FROM " + metaModel.getTableName());
+        if(metaModel.cached()){
+            QueryCache.instance().purgeTableCache(metaModel.getTableName());
+        }
+        purgeEdges(metaModel);
+        return count;
+    }
+
+    public static boolean exists(Class<? extends Model> clazz, Object id) {
+        MetaModel metaModel = metaModelOf(clazz);
+        return null != new DB(metaModel.getDbName()).firstCell("SELECT " + metaModel.getIdName() + " FROM " + metaModel.getTableName()
+                + " WHERE " + metaModel.getIdName() + " = ?", id);
+    }
+
+    public static boolean exists(Class<? extends Model> clazz, String subquery, Object... params) {
+        MetaModel metaModel = metaModelOf(clazz);
+        return null != new DB(metaModel.getDbName()).firstCell("SELECT EXISTS (SELECT 1 FROM " + metaModel.getTableName()
+                + " WHERE " + subquery + ")", params);
+    }
+
+    public static int update(Class<? extends Model> clazz, String updates, String conditions, Object... params) {
+        return update(metaModelOf(clazz), updates, conditions, params);
+    }
+
+    public static boolean belongsTo(Class<? extends Model> clazz, Class<? extends Model> targetClass) {
+        String targetTable = Registry.instance().getTableName(targetClass);
+        MetaModel metaModel = metaModelOf(clazz);
+        return (null != metaModel.getAssociationForTarget(targetTable, BelongsToAssociation.class) ||
+                null != metaModel.getAssociationForTarget(targetTable, Many2ManyAssociation.class));
+    }
+
+    public static void addCallbacks(Class<? extends Model> clazz, CallbackListener... listeners) {
+        for (CallbackListener listener : listeners) {
+            Registry.instance().addListener(clazz, listener);
+        }
+    }
+
+    public static List<Validator> validatorsOf(Class<? extends Model> clazz) {
+        return Registry.instance().getValidators(clazz.getName());
+    }
+
+    public static void removeValidator(Class<? extends Model> clazz, Validator validator) {
+        Registry.instance().getValidators(clazz.getName()).remove(validator);
+    }
+
+    public static <T extends Model> T create(Class<T> clazz, Object... namesAndValues) {
+
+        if(namesAndValues.length %2 != 0) throw new IllegalArgumentException("number of arguments must be even");
+
+        try{
+            T m = clazz.newInstance();
+            setNamesAndValues(m, namesAndValues);
+            return m;
+        }
+        catch(IllegalArgumentException e){throw e;}
+        catch(ClassCastException e){throw new  IllegalArgumentException("All even arguments must be strings");}
+        catch(DBException e){throw e;}
+        catch (Exception e){throw new InitException("Model '" + clazz.getName() + "' must provide a default constructor. Table:", e);}
+    }
+
+    public static <T extends Model> T createIt(Class<T> clazz, Object... namesAndValues) {
+        T m = create(clazz, namesAndValues);
+        m.saveIt();
+        return m;
+    }
+
+    public static <T extends Model> T findById(Class<T> clazz, Object id) {
+        if(id == null) return null;
+
+        MetaModel mm = metaModelOf(clazz);
+        if(mm.cached()){
+            T model = clazz.cast(QueryCache.instance().getRow(mm.getTableName(), id));
+            if(model == null){
+                List<Map> results = new DB(mm.getDbName()).findAll(mm.getDialect().selectStarParametrized(mm.getTableName(), mm.getIdName()), id);
+                if(results.isEmpty()){
+                    return null;
+                }
+                model = Model.instance(results.get(0), mm);
+                QueryCache.instance().addRow(mm.getTableName(), id, model);
+            }
+            return model;
+        }
+        LazyList<T> l = new LazyList<T>(mm.getIdName() + " = ?", new Object[]{id}, mm).limit(1);
+        return l.size() > 0 ? l.get(0) : null;
+    }
+
+    public static <T extends Model> LazyList<T> where(Class<T> clazz, String subquery, Object... params) {
+
+        if(subquery.trim().equals("*") && params.length == 0){
+            return findAll(clazz);
+        }
+
+        if(subquery.equals("*") && params.length != 0){
+            throw new IllegalArgumentException("cannot provide parameters with query: '*', use findAll() method instead");
+        }
+
+        return new LazyList<T>(subquery, params, metaModelOf(clazz));
+    }
+
+    public static <T extends Model> T findFirst(Class<T> clazz, String subQuery, Object... params) {
+        LazyList<T> results = new LazyList<T>(subQuery, params, metaModelOf(clazz)).limit(1);
+        return  results.size() > 0 ? results.get(0) : null;
+    }
+
+    public static void findWith(Class<? extends Model> clazz, final ModelListener listener, String query, Object... params) {
+        long start = System.currentTimeMillis();
+        MetaModel metaModel = metaModelOf(clazz);
+        String sql = metaModel.getDialect().selectStar(metaModel.getTableName(), query);
+
+        new DB(metaModel.getDbName()).find(sql, params).with(metaModel, listener);
+        LogFilter.logQuery(logger, sql, null, start);
+    }
+
+    public static <T extends Model> LazyList<T> findBySql(Class<T> clazz, String fullQuery, Object... params) {
+        return new LazyList<T>(false, metaModelOf(clazz), fullQuery,  params);
+    }
+
+    public static <T extends Model> LazyList<T> findAll(Class<T> clazz) {
+        return new LazyList<T>(null, new Object[]{}, metaModelOf(clazz));
+    }
+
+    public static Long count(Class<? extends Model> clazz) {
+        final MetaModel metaModel = metaModelOf(clazz);
+        String sql = "SELECT COUNT(*) FROM " + metaModel.getTableName();
+        Long result;
+        if(metaModel.cached()){
+            result = (Long)QueryCache.instance().getItem(metaModel.getTableName(), sql, null, null, new ItemLoader() {
+                public Object load() {
+                    return new DB(metaModel.getDbName()).count(metaModel.getTableName());
+                }
+            });
+        }else{
+            result = new DB(metaModel.getDbName()).count(metaModel.getTableName());
+        }
+        return result;
+    }
+
+    public static Long count(Class<? extends Model> clazz, final String query, final Object... params) {
+
+        final MetaModel metaModel = metaModelOf(clazz);
+
+        //attention: this SQL is only used for caching, not for real queries.
+        String sql = "SELECT COUNT(*) FROM " + metaModel.getTableName() + " where " + query;
+
+        Long result;
+        if(metaModel.cached()){
+            result = (Long)QueryCache.instance().getItem(metaModel.getTableName(), sql, params, null, new ItemLoader() {
+                public Object load() {
+                    return new DB(metaModel.getDbName()).count(metaModel.getTableName(), query, params);
+                }
+            });
+        }else{
+            result = new DB(metaModel.getDbName()).count(metaModel.getTableName(), query, params);
+        }
+        return result;
+    }
+
+    public static void purgeCache(Class<? extends Model> clazz) {
+        MetaModel mm = metaModelOf(clazz);
+        if(mm.cached()){
+            QueryCache.instance().purgeTableCache(mm.getTableName());
+        }
+    }
+
+    public static void purgeEdges(Class<? extends Model> clazz) {
+        purgeEdges(metaModelOf(clazz));
+    }
 
     static int update(MetaModel metaModel, String updates, String conditions, Object... params) {
 
@@ -32,7 +247,7 @@ class ModelDelegate {
         return count;
     }
 
-    static String[] toLowerCase(String[] arr) {
+    public static String[] toLowerCase(String[] arr) {
         String[] newArr = new String[arr.length];
         for (int i = 0; i < newArr.length; i++) {
             newArr[i] = arr[i].toLowerCase();
@@ -55,22 +270,9 @@ class ModelDelegate {
 
     static void purgeEdges(MetaModel metaModel ){
         //this is to eliminate side effects of cache on associations.
-        //TODO: Need to write tests for cases;
-        // 1. One to many relationship. Parent and child are cached.
-        //      When a new child inserted, the parent.getAll(Child.class) should see that
-        // 2. Many to many. When a new join inserted, updated or deleted, the one.getAll(Other.class) should see the difference.
-
-        //Purge associated targets
-
-        List<Association> associations = metaModel.getAssociations();
-        for(Association association: associations){
-            QueryCache.instance().purgeTableCache(association.getTarget());
-        }
-
-        //Purge edges in case this model represents a join
-        List<String> edges = Registry.instance().getEdges(metaModel.getTableName());
-        for(String edge: edges){
-            QueryCache.instance().purgeTableCache(edge);
-        }
+        //Cached queries of other tables which read this one (includes, many to many through this join table, or
+        //declared with LazyList.dependsOn()) are tagged with it, so only they are purged. Queries of associated tables
+        //which do not read this one, and tables which are not cached are left alone.
+        QueryCache.instance().purgeDependents(metaModel.getTableName());
     }
 }
@@ -17,10 +17,14 @@ limitations under the License.
 
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.cache.ItemLoader;
 import org.javalite.activejdbc.cache.QueryCache;
 import org.javalite.common.Convert;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * This class supports pagination of result sets in ActiveJDBC. This is useful for paging through
@@ -29,6 +33,15 @@ import java.io.Serializable;
  * This class is thread safe and the same instance could be used across multiple web requests and even
  * across multiple users/sessions. It is lightweight class, you can generate an instance each time you need one,
  * or you can cache an instance in a session or even servlet context. 
+ * <p/>
+ * Pages can be requested by number with {@link #getPage(int)}, or in keyset mode with {@link #getPageAfter(String)}.
+ * Database has to read and discard all rows before a numbered page, which gets slow for deep pages, while
+ * a keyset page starts right after the last row of a previous page, so all pages take the same time:
+ * <pre>
+ * Paginator p = new Paginator(Item.class, 20, "category = ?", "books").orderBy("created_at desc");
+ * List&lt;Item&gt; page = p.getPageAfter(request.getParameter("cursor"));
+ * String next = page.isEmpty() ? null : p.cursorAfter(page.get(page.size() - 1));
+ * </pre>
  *
  * @author Igor Polevoy
  */
@@ -41,6 +54,28 @@ public class Paginator implements Serializable {
     private int currentPage;
     private boolean fullQuery;
     private String countQuery;
+    private long countTtl = -1;
+    private boolean countWithPage;
+    private transient volatile MemoizedCount memoizedCount;
+
+    private static final String TOTAL_COUNT = "paginator_total_count";
+
+    /**
+     * Count of records and time until it is valid.
+     */
+    private static class MemoizedCount {
+        private final long count;
+        private final long expiresAt;
+
+        private MemoizedCount(long count, long ttl) {
+            this.count = count;
+            this.expiresAt = ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+        }
+
+        private boolean valid() {
+            return expiresAt == Long.MAX_VALUE || System.currentTimeMillis() < expiresAt;
+        }
+    }
 
 
     /**
@@ -102,6 +137,38 @@ public class Paginator implements Serializable {
         return this;
     }
 
+    /**
+     * Makes this instance remember a count of records, so that {@link #pageCount()}, {@link #hasNext()} and
+     * {@link #hasPrevious()} do not execute a count query every time they are called.
+     *
+     * @param ttlMillis time in milliseconds after which the count is queried again, 0 to keep it for the lifetime
+     * of this instance.
+     * @return instance to self.
+     */
+    public Paginator memoizeCount(long ttlMillis) {
+        if (ttlMillis < 0) throw new IllegalArgumentException("TTL cannot be negative");
+        this.countTtl = ttlMillis;
+        this.memoizedCount = null;
+        return this;
+    }
+
+    /**
+     * Makes {@link #getPage(int)} select a total count of records in the same statement as the records of a page,
+     * with <code>COUNT(*) OVER()</code>, so that a page and its navigation takes one round trip to a database.
+     * The count is remembered until the next page is requested, or for the time set by
+     * {@link #memoizeCount(long)}, whichever is sooner. Pages are loaded eagerly in this mode.
+     * <p/>
+     * This only works with sub-queries on databases that support window functions, see
+     * {@link org.javalite.activejdbc.dialects.DefaultDialect#supportsWindowFunctions()}; in other cases a separate
+     * count query is used.
+     *
+     * @return instance to self.
+     */
+    public Paginator countWithPage() {
+        this.countWithPage = true;
+        return this;
+    }
+
     /**
      * This method will return a list of records for a specific page.
      *
@@ -114,13 +181,17 @@ public class Paginator implements Serializable {
         if (pageNumber < 1) throw new IllegalArgumentException("minimum page index == 1");
 
         try {
-            LazyList<T> list = find( query, params);
+            boolean withCount = countWithPage && !fullQuery && metaModel.getDialect().supportsWindowFunctions();
+            LazyList<T> list = withCount ? this.<T>findWithCount() : this.<T>find(query, params);
             int offset = (pageNumber - 1) * pageSize; 
             list.offset(offset);
             list.limit(pageSize);
             if (orderBys != null) {
                 list.orderBy(orderBys);
             }
+            if (withCount) {
+                readCount(list);
+            }
             currentPage = pageNumber;
             return list;
         }
@@ -129,6 +200,55 @@ public class Paginator implements Serializable {
         }
     }
 
+    /**
+     * Returns a page of records in keyset (seek) mode. Records are sorted by columns provided to
+     * {@link #orderBy(String)} followed by the primary key, unless it is already there, and the page contains
+     * records that follow the record the cursor was generated for. Only plain columns with optional ASC or DESC are
+     * supported in order by, and their values must not be null.
+     * <p/>
+     * In case of a full query, it is wrapped into a sub-query, and columns in order by need to be selected by it.
+     *
+     * @param cursor token generated by {@link #cursorAfter(Model)} for the last record of a previous page,
+     * null for the first page.
+     * @return list of records that follow the cursor.
+     * @throws IllegalArgumentException if cursor is malformed or was generated for a different order.
+     */
+    public <T extends Model> LazyList<T> getPageAfter(String cursor) {
+        if (query.equals("*") && params.length != 0) {
+            throw new IllegalArgumentException("cannot provide parameters with query: '*'");
+        }
+
+        Keyset keyset = new Keyset(orderBys, metaModel.getIdName());
+        List<Object> pageParams = new ArrayList<Object>(Arrays.asList(params));
+        String condition = cursor == null ? null
+                : metaModel.getDialect().keysetCondition(keyset.getColumns(), keyset.getDescending(), keyset.decode(cursor), pageParams);
+
+        LazyList<T> list;
+        if (fullQuery) {
+            list = new LazyList<T>(true, metaModel, condition == null ? query : "SELECT * FROM (" + query + ") keyset_page WHERE " + condition, pageParams.toArray());
+        } else if (query.equals("*")) {
+            list = new LazyList<T>(condition, pageParams.toArray(), metaModel);
+        } else {
+            list = new LazyList<T>(condition == null ? query : "(" + query + ") AND " + condition, pageParams.toArray(), metaModel);
+        }
+        for (String orderBy : keyset.getOrderBys()) {
+            list.orderBy(orderBy);
+        }
+        list.limit(pageSize);
+        return list;
+    }
+
+    /**
+     * Generates a cursor for {@link #getPageAfter(String)}. The cursor is an opaque URL-safe string, it contains
+     * values of order by columns of the record, and can be passed to web clients.
+     *
+     * @param model usually the last record of a page returned by {@link #getPageAfter(String)}.
+     * @return cursor pointing right after the record.
+     */
+    public String cursorAfter(Model model) {
+        return new Keyset(orderBys, metaModel.getIdName()).encode(model);
+    }
+
     /**
      * Returns index of current page, or -1 if this instance has not produced a page yet.
      *
@@ -186,21 +306,55 @@ public class Paginator implements Serializable {
         return fullQuery ? new LazyList(true, metaModel, this.query, params) : new LazyList(query, params, metaModel);
     }
 
+    private <T extends Model> LazyList<T> findWithCount() {
+        String subQuery = null;
+        if (query.equals("*")) {
+            if (params.length != 0) throw new IllegalArgumentException("cannot provide parameters with query: '*'");
+        } else {
+            subQuery = query;
+        }
+        String sql = metaModel.getDialect().selectStarWithTotalCount(metaModel.getTableName(), subQuery, TOTAL_COUNT);
+        LazyList<T> list = new LazyList<T>(true, metaModel, sql, params);
+        list.captureColumn(TOTAL_COUNT);
+        return list;
+    }
+
+    /**
+     * Remembers total count selected with a page. If the page is empty or came from the cache, there is no count,
+     * and it is queried separately.
+     */
+    private void readCount(LazyList<? extends Model> list) {
+        Object total = list.getCapturedValue();
+        if (total != null) {
+            memoizedCount = new MemoizedCount(Convert.toLong(total), countTtl);
+        } else {
+            memoizedCount = null;
+        }
+    }
+
     private <T extends Model> LazyList<T> findAll() {
         return new LazyList(null, new Object[]{}, metaModel);
     }
 
     private Long count(String query, Object... params) {
+        MemoizedCount memo = memoizedCount;
+        if (memo != null && memo.valid()) {
+            return memo.count;
+        }
+
         Long result;
         if(metaModel.cached()){
-            result = getCount();
-            if(result == null){
-                result = getCount();
-                QueryCache.instance().addItem(metaModel.getTableName(), countQuery, params, result);
-            }
+            result = (Long) QueryCache.instance().getItem(metaModel.getTableName(), countQuery, params, null, new ItemLoader() {
+                public Object load() {
+                    return getCount();
+                }
+            });
         }else{
             result = getCount();
         }
+        if (countTtl >= 0) {
+            memoizedCount = new MemoizedCount(result, countTtl);
+        }
         return result;
     }
 
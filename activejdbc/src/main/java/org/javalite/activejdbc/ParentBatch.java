@@ -0,0 +1,57 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Models loaded by the same list with {@link LazyList#batchParents()}. The first time any of them asks for a parent
+ * of some class, parents of this class are loaded for all of them with one query, just like with
+ * {@link LazyList#include(Class[])}.
+ *
+ * @author Igor Polevoy
+ */
+class ParentBatch {
+    private final MetaModel metaModel;
+    private final List<? extends Model> siblings;
+    private final Set<Class> loaded = new HashSet<Class>();
+
+    ParentBatch(MetaModel metaModel, List<? extends Model> siblings) {
+        this.metaModel = metaModel;
+        this.siblings = siblings;
+    }
+
+    /**
+     * Returns a parent of a sibling, loading parents of this class for all siblings first, unless they were already
+     * loaded. Siblings may be shared by threads, so their parents are read under the same lock they are written with.
+     *
+     * @param sibling one of siblings.
+     * @param parentClass class of parent.
+     * @return parent of the sibling, null if it has none.
+     */
+    synchronized Model parent(Model sibling, Class<? extends Model> parentClass) {
+        if (loaded.add(parentClass)) {
+            LazyList.includeInto(metaModel, siblings, parentClass);
+        }
+        Map<Class, Model> parents = sibling.getCachedParents();
+        return parents == null ? null : parents.get(parentClass);
+    }
+}
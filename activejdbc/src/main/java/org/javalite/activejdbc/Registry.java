@@ -46,7 +46,10 @@ public enum Registry {
     private final static Logger logger = LoggerFactory.getLogger(Registry.class);
     private final static HashMap<String, List<Validator>> validators = new HashMap<String, List<Validator>>();
     private final static HashMap<Class, List<CallbackListener>> listeners = new HashMap<Class, List<CallbackListener>>();
-    private MetaModels metaModels = new MetaModels();
+    //modified only by init() while holding a lock on this instance
+    private final MetaModels metaModels = new MetaModels();
+    //immutable copy of metaModels, replaced after each database is initialized and read without locks
+    private volatile MetaModels publishedMetaModels = new MetaModels();
     private Configuration configuration = new Configuration();
     private StatisticsQueue statisticsQueue;
     private static ModelFinder mf = new ModelFinder();
@@ -59,7 +62,7 @@ public enum Registry {
     }
 
     public boolean initialized() {
-        return !initedDbs.isEmpty();
+        return publishedMetaModels.hasInitializedDbs();
     }
 
     public static Registry instance() {
@@ -88,7 +91,7 @@ public enum Registry {
      * @return MetaModel of a model representing a table.
      */
     public MetaModel getMetaModel(String table) {
-        return metaModels.getMetaModel(table);
+        return publishedMetaModels.getMetaModel(table);
     }
 
     /**
@@ -105,21 +108,33 @@ public enum Registry {
         } catch (Exception e) {
             throw new InitException(e);
         }
-        init(dbName);
-
-        return metaModels.getMetaModelByClassName(className);
+        return metaModelsFor(dbName).getMetaModelByClassName(className);
     }
 
 
     public MetaModel getMetaModel(Class<? extends Model> modelClass) {
+        return metaModelsFor(MetaModel.getDbName(modelClass)).getMetaModel(modelClass);
+    }
 
-        String dbName = MetaModel.getDbName(modelClass);
+    /**
+     * Returns metamodels that include all models of a database, initializing the database first if needed.
+     * Once a database is initialized, this method takes no locks.
+     *
+     * @param dbName name of database.
+     * @return metamodels that include all models of a database.
+     */
+    private MetaModels metaModelsFor(String dbName) {
+        MetaModels published = publishedMetaModels;
+        if (published.isInitialized(dbName)) {
+            return published;
+        }
         init(dbName);
-
-        return metaModels.getMetaModel(modelClass);
+        published = publishedMetaModels;
+        //not yet published only if this thread is in the middle of init()
+        return published.isInitialized(dbName) ? published : metaModels;
     }
 
-     synchronized void init(String dbName) {
+    synchronized void init(String dbName) {
 
         if (initedDbs.contains(dbName)) {
             return;
@@ -148,6 +163,7 @@ public enum Registry {
             for (String table : tables) {
                 discoverAssociationsFor(table, dbName);
             }
+            publishedMetaModels = metaModels.snapshot(initedDbs);
         } catch (Exception e) {
             initedDbs.remove(dbName);
             if (e instanceof InitException) {
@@ -343,12 +359,12 @@ public enum Registry {
     private void discoverMany2ManyAssociationsFor(String source, String dbName) {
         for (String join : metaModels.getTableNames(dbName)) {
             String other = Inflector.getOtherName(source, join);
-            if (other == null || getMetaModel(other) == null || !hasForeignKeys(join, source, other))
+            if (other == null || metaModels.getMetaModel(other) == null || !hasForeignKeys(join, source, other))
                 continue;
 
             Association associationSource = new Many2ManyAssociation(source, other, join,
-                    getMetaModel(source).getFKName(), getMetaModel(other).getFKName());
-            getMetaModel(source).addAssociation(associationSource);
+                    metaModels.getMetaModel(source).getFKName(), metaModels.getMetaModel(other).getFKName());
+            metaModels.getMetaModel(source).addAssociation(associationSource);
         }
     }
 
@@ -362,9 +378,9 @@ public enum Registry {
      * @return true if "join" table exists and contains foreign keys of "source" and "other" tables, false otherwise.
      */
     private boolean hasForeignKeys(String join, String source, String other) {
-        String sourceFKName = getMetaModel(source).getFKName();
-        String otherFKName = getMetaModel(other).getFKName();
-        MetaModel joinMM = getMetaModel(join);
+        String sourceFKName = metaModels.getMetaModel(source).getFKName();
+        String otherFKName = metaModels.getMetaModel(other).getFKName();
+        MetaModel joinMM = metaModels.getMetaModel(join);
         return joinMM.hasAttribute(sourceFKName) && joinMM.hasAttribute(otherFKName);
     }
 
@@ -376,13 +392,13 @@ public enum Registry {
      */
     private void discoverOne2ManyAssociationsFor(String source, String dbName) {
 
-        MetaModel sourceMM = getMetaModel(source);
+        MetaModel sourceMM = metaModels.getMetaModel(source);
 
         for (String target : metaModels.getTableNames(dbName)) {
 
-            MetaModel targetMM = getMetaModel(target);
+            MetaModel targetMM = metaModels.getMetaModel(target);
 
-            String sourceFKName = getMetaModel(source).getFKName();
+            String sourceFKName = metaModels.getMetaModel(source).getFKName();
             if (targetMM != sourceMM && targetMM.hasAttribute(sourceFKName)) {
                 targetMM.addAssociation(new BelongsToAssociation(target, source, sourceFKName));
                 sourceMM.addAssociation(new OneToManyAssociation(source, target, sourceFKName));
@@ -415,7 +431,7 @@ public enum Registry {
      * @return model class for a table name, null if not found.s
      */
     protected Class<? extends Model> getModelClass(String table, boolean suppressException) {
-        Class modelClass = metaModels.getModelClass(table);
+        Class modelClass = publishedMetaModels.getModelClass(table);
 
         if(modelClass == null && !suppressException)
             throw new InitException("failed to locate meta model for: " + table + ", are you sure this is correct table name?");
@@ -425,8 +441,7 @@ public enum Registry {
 
     protected String getTableName(Class<? extends Model> modelClass) {
 
-        init(MetaModel.getDbName(modelClass));
-        String tableName = metaModels.getTableName(modelClass);
+        String tableName = metaModelsFor(MetaModel.getDbName(modelClass)).getTableName(modelClass);
         if (tableName == null) {
             throw new DBException("failed to find metamodel for " + modelClass + ". Are you sure that a corresponding table  exists in DB?");
         }
@@ -467,7 +482,7 @@ public enum Registry {
      * @return edges for a join
      */
     protected List<String> getEdges(String join) {
-        return metaModels.getEdges(join);
+        return publishedMetaModels.getEdges(join);
     }
 
     private void registerColumnMetadata(String table, Map<String, ColumnMetadata> metaParams) {
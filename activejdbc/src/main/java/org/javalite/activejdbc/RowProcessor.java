@@ -21,7 +21,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.ResultSetMetaData;
 import java.sql.Statement;
-import java.util.HashMap;
 
 
 public class RowProcessor {
@@ -42,23 +41,88 @@ public class RowProcessor {
 
     }
 
-    protected void processRS(RowListener listener) throws SQLException {
+    /**
+     * Processes rows with a listener which accesses values by column index.
+     *
+     * @param listener listener to receive rows.
+     */
+    public void with(IndexedRowListener listener){
 
-        ResultSetMetaData metaData = rs.getMetaData();
+        try{
+            processRS(listener);
+        }catch(Exception e){throw new DBException(e);}
+        finally{try{rs.close();}catch(Exception e){/*ignore*/}  try{s.close();}catch(Exception e){/*ignore*/}}
 
-        String labels[] = new String[metaData.getColumnCount()];
-        for (int i = 1; i <= labels.length; i++) {
-            labels[i - 1] = metaData.getColumnLabel(i);
+    }
+
+    /**
+     * Creates models directly from rows, without creating a map for every row.
+     *
+     * @param metaModel metamodel of models to create.
+     * @param listener listener to receive models.
+     */
+    <T extends Model> void with(MetaModel metaModel, ModelListener<T> listener){
+        with(metaModel, false, listener);
+    }
+
+    /**
+     * Creates models directly from rows, without creating a map for every row.
+     *
+     * @param metaModel metamodel of models to create.
+     * @param partial true if only some of the columns are selected, see {@link HydrationPlan#newModel(IndexedRow, boolean)}.
+     * @param listener listener to receive models.
+     */
+    <T extends Model> void with(final MetaModel metaModel, final boolean partial, final ModelListener<T> listener){
+        with(new IndexedRowListener() {
+            private HydrationPlan plan;
+            public boolean next(IndexedRow row) {
+                if (plan == null) {
+                    plan = metaModel.getHydrationPlan(row.getLabels());
+                }
+                listener.onModel(plan.<T>newModel(row, partial));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Wraps an open result set into a cursor which pulls models one at a time. Closing of result set and
+     * statement becomes responsibility of the cursor.
+     */
+    <T extends Model> ModelCursor<T> cursor(LazyList<T> source, MetaModel metaModel, boolean hasIncludes){
+        return new ModelCursor<T>(source, metaModel, hasIncludes, rs, s);
+    }
+
+    protected void processRS(RowListener listener) throws SQLException {
+
+        IndexedRow row = new IndexedRow(getLabels(rs.getMetaData()));
+        while (rs.next()) {
+            row.read(rs);
+            if(!listener.next(row.toMap())) break;
         }
+        rs.close();
+        s.close();
+    }
 
+    protected void processRS(IndexedRowListener listener) throws SQLException {
+
+        IndexedRow row = new IndexedRow(getLabels(rs.getMetaData()));
         while (rs.next()) {
-            HashMap<String, Object> row = new HashMap<String, Object>();
-            for (String label : labels) {                
-                row.put(label.toLowerCase(), rs.getObject(label));
-            }
+            row.read(rs);
             if(!listener.next(row)) break;
         }
         rs.close();
         s.close();
     }
+
+    /**
+     * @return lower case labels of all columns, computed once per result set.
+     */
+    static String[] getLabels(ResultSetMetaData metaData) throws SQLException {
+        String labels[] = new String[metaData.getColumnCount()];
+        for (int i = 1; i <= labels.length; i++) {
+            labels[i - 1] = metaData.getColumnLabel(i).toLowerCase();
+        }
+        return labels;
+    }
 }
@@ -62,4 +62,29 @@ public class SuperLazyList<T extends Model> extends LazyList<T> {
     public <E extends Model> LazyList<E> limit(long limit) {
         throw new UnsupportedOperationException("not supported");
     }
+
+    @Override
+    public <E extends Model> LazyList<E> include(Include... includes) {
+        throw new UnsupportedOperationException("not supported");
+    }
+
+    @Override
+    public <E extends Model> LazyList<E> select(String... columns) {
+        throw new UnsupportedOperationException("not supported");
+    }
+
+    @Override
+    public <E extends Model> ModelCursor<E> cursor() {
+        throw new UnsupportedOperationException("not supported");
+    }
+
+    @Override
+    public Long count() {
+        return (long) delegate.size();
+    }
+
+    @Override
+    boolean isLoaded() {
+        return true;
+    }
 }
@@ -21,7 +21,38 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
+ * Marks a model whose query results are cached. Limits and expiration are applied by cache managers which support
+ * them, such as {@link org.javalite.activejdbc.cache.InMemoryCacheManager}, others ignore them.
+ *
  * @author Igor Polevoy
  */
 @Retention(RetentionPolicy.RUNTIME)
-public @interface Cached {}
+public @interface Cached {
+
+    /**
+     * @return maximum number of cached queries for the table, 0 for a default of a cache manager.
+     */
+    int maxEntries() default 0;
+
+    /**
+     * @return maximum estimated size of cached queries for the table in bytes, 0 for no limit.
+     */
+    long maxBytes() default 0;
+
+    /**
+     * @return time to live of cached queries in seconds, 0 to keep them until they are evicted or purged.
+     * When {@link #softTtl()} is set, this is a hard limit: older results are never returned.
+     */
+    long ttl() default 0;
+
+    /**
+     * Enables stale-while-revalidate for reference data. Results older than this, or loaded before the table was
+     * written, are still returned, while the query is run again in background to replace them. Background refresh
+     * needs to be configured with
+     * {@link org.javalite.activejdbc.cache.QueryCache#setBackgroundRefresh(String, java.util.concurrent.ExecutorService, org.javalite.activejdbc.ConnectionSpec)},
+     * otherwise stale results are reloaded by the thread which asks for them.
+     *
+     * @return time in seconds after which cached results are refreshed, 0 to purge results rather than refresh them.
+     */
+    long softTtl() default 0;
+}
@@ -36,9 +36,14 @@ public class CacheEvent {
         /**
          * This type means that only a cache for a specific group (table) needs to be cleared.
          */
-        GROUP
+        GROUP,
+
+        /**
+         * This type means that only a single item of a group needs to be cleared, such as a cached row of a table.
+         */
+        ENTRY
     }
-    private String source, group;
+    private String source, group, key;
     private CacheEventType type;
 
 
@@ -61,6 +66,24 @@ public class CacheEvent {
     }
 
 
+    /**
+     * Creates a new event type of {@link org.javalite.activejdbc.cache.CacheEvent.CacheEventType#ENTRY}.
+     *
+     * @param group name of group, cannot be null.
+     * @param key key of the item to clear, cannot be null.
+     * @param source string representation of source of event, can be null.
+     */
+    public CacheEvent(String group, String key, String source){
+        if(group == null || key == null)
+            throw new IllegalArgumentException("group and key cannot be null");
+
+        this.type = CacheEventType.ENTRY;
+        this.source = source;
+        this.group = group;
+        this.key = key;
+    }
+
+
     /**
      * Creates a new event type of {@link org.javalite.activejdbc.cache.CacheEvent.CacheEventType#ALL}
      *
@@ -85,11 +108,19 @@ public class CacheEvent {
         return group;
     }
 
+    /**
+     * @return key of an item, set only for events of type {@link org.javalite.activejdbc.cache.CacheEvent.CacheEventType#ENTRY}.
+     */
+    public String getKey() {
+        return key;
+    }
+
     @Override
     public String toString() {
         return "CacheEvent{" +
                 "source='" + source + '\'' +
                 ", group='" + group + '\'' +
+                (key == null ? "" : ", key='" + key + '\'') +
                 ", type=" + type +
                 '}';
     }
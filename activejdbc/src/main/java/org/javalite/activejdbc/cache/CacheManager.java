@@ -55,13 +55,54 @@ public abstract class CacheManager {
     public abstract void doFlush(CacheEvent event);
 
 
+    /**
+     * Removes a single item from cache. This implementation flushes the whole group of the item,
+     * subclasses which can remove individual items should override it.
+     *
+     * @param event event of type {@link org.javalite.activejdbc.cache.CacheEvent.CacheEventType#ENTRY}.
+     */
+    protected void doFlushEntry(CacheEvent event){
+        doFlush(new CacheEvent(event.getGroup(), event.getSource()));
+    }
+
+
+    /**
+     * @param group name of group.
+     * @return number of items cached in the group, or -1 if this cache manager does not count them.
+     */
+    public int getEntryCount(String group){
+        return -1;
+    }
+
+    /**
+     * @param group name of group.
+     * @return estimated size in bytes of items cached in the group, or -1 if this cache manager does not estimate it.
+     */
+    public long getEstimatedBytes(String group){
+        return -1;
+    }
+
+    /**
+     * @param group name of group.
+     * @return number of items evicted from the group to make room or because they expired, or -1 if this cache
+     * manager does not count them.
+     */
+    public long getEvictionCount(String group){
+        return -1;
+    }
+
+
     /**
      * Flash cache.
      *
      * @param event type of caches to flush.
      */
-    public final void flush(CacheEvent event){        
-        doFlush(event);
+    public final void flush(CacheEvent event){
+        if(event.getType() == CacheEvent.CacheEventType.ENTRY){
+            doFlushEntry(event);
+        }else{
+            doFlush(event);
+        }
         for(CacheEventListener listener: listeners){
             try{
                 listener.onFlush(event);
@@ -69,7 +110,9 @@ public abstract class CacheManager {
                 logger.warn("failed to propagate cache event: " + event + "  to listener: " + listener, e);
             }
         }
-        String message = event.getType() == CacheEvent.CacheEventType.ALL? "all caches": "table: " + event.getGroup(); 
+        String message = event.getType() == CacheEvent.CacheEventType.ALL? "all caches"
+                : event.getType() == CacheEvent.CacheEventType.ENTRY ? "group: " + event.getGroup() + ", key: " + event.getKey()
+                : "table: " + event.getGroup();
         LogFilter.log(logger, "Cache purged: " + message);
     }
 
@@ -0,0 +1,163 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import java.util.Collection;
+
+/**
+ * Statistics of use of cache of a table by {@link QueryCache}, see {@link QueryCache#getStatistics(String)}.
+ * Counters are kept since start or last {@link #reset()}. Numbers of entries, bytes and evictions are provided
+ * by the cache manager, and are -1 if it does not support them.
+ *
+ * @author Igor Polevoy
+ */
+public class CacheStatistics implements CacheStatisticsMBean {
+    private final String table;
+    private final QueryCache queryCache;
+    final StripedCounter hits = new StripedCounter(), staleHits = new StripedCounter(), misses = new StripedCounter(),
+            puts = new StripedCounter(), purges = new StripedCounter(), loads = new StripedCounter(),
+            loadTime = new StripedCounter();
+
+    CacheStatistics(String table, QueryCache queryCache) {
+        this.table = table;
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * @return name of table as declared by its model.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return number of items found in cache and not stale, including rows.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of stale items returned while they were refreshed in background, see
+     * {@link org.javalite.activejdbc.annotations.Cached#softTtl()}.
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    /**
+     * @return number of items not found in cache.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return share of hits, including stale hits, among all lookups, 0 if there were no lookups.
+     */
+    public double getHitRatio() {
+        long hit = getHits() + getStaleHits(), total = hit + getMisses();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return number of items added to cache.
+     */
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    /**
+     * @return number of purges of the table, its rows, or its queries which read other written tables. Each purge
+     * is counted once, however many groups it flushed.
+     */
+    public long getPurges() {
+        return purges.sum();
+    }
+
+    /**
+     * @return number of missing items loaded from database by {@link QueryCache}.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * @return total time of loads counted by {@link #getLoads()}.
+     */
+    public long getLoadTimeMillis() {
+        return loadTime.sum() / 1000000;
+    }
+
+    public int getEntryCount() {
+        int count = 0;
+        for (String group : groups()) {
+            int groupCount = queryCache.getCacheManager().getEntryCount(group);
+            if (groupCount < 0) {
+                return -1;
+            }
+            count += groupCount;
+        }
+        return count;
+    }
+
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (String group : groups()) {
+            long groupBytes = queryCache.getCacheManager().getEstimatedBytes(group);
+            if (groupBytes < 0) {
+                return -1;
+            }
+            bytes += groupBytes;
+        }
+        return bytes;
+    }
+
+    public long getEvictionCount() {
+        long count = 0;
+        for (String group : groups()) {
+            long groupCount = queryCache.getCacheManager().getEvictionCount(group);
+            if (groupCount < 0) {
+                return -1;
+            }
+            count += groupCount;
+        }
+        return count;
+    }
+
+    private Collection<String> groups() {
+        return queryCache.groupsOf(table);
+    }
+
+    public void reset() {
+        hits.reset();
+        staleHits.reset();
+        misses.reset();
+        puts.reset();
+        purges.reset();
+        loads.reset();
+        loadTime.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{table='" + table + "', hits=" + getHits() + ", staleHits=" + getStaleHits()
+                + ", misses=" + getMisses() + ", puts=" + getPuts() + ", purges=" + getPurges() + ", loads=" + getLoads()
+                + ", loadTimeMillis=" + getLoadTimeMillis() + '}';
+    }
+}
@@ -0,0 +1,39 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+/**
+ * JMX view of {@link CacheStatistics} of a table.
+ *
+ * @author Igor Polevoy
+ */
+public interface CacheStatisticsMBean {
+    String getTable();
+    long getHits();
+    long getStaleHits();
+    long getMisses();
+    double getHitRatio();
+    long getPuts();
+    long getPurges();
+    long getLoads();
+    long getLoadTimeMillis();
+    int getEntryCount();
+    long getEstimatedBytes();
+    long getEvictionCount();
+    void reset();
+}
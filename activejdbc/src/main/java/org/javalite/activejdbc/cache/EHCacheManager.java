@@ -64,4 +64,12 @@ public class EHCacheManager extends CacheManager {
             cacheManager.removeCache(event.getGroup());
         }
     }
+
+    @Override
+    protected void doFlushEntry(CacheEvent event) {
+        Cache c = cacheManager.getCache(event.getGroup());
+        if (c != null) {
+            c.remove(event.getKey());
+        }
+    }
 }
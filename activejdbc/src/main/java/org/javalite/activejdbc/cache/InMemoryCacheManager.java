@@ -0,0 +1,319 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import org.javalite.activejdbc.MetaModel;
+import org.javalite.activejdbc.Model;
+import org.javalite.activejdbc.Registry;
+import org.javalite.activejdbc.annotations.Cached;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache manager which keeps caches in memory of the JVM, without external dependencies. To use, add this line
+ * to <code>activejdbc.properties</code>:
+ * <pre>
+ * cache.manager=org.javalite.activejdbc.cache.InMemoryCacheManager
+ * </pre>
+ * Every group (table) has its own region, configured by the {@link Cached} annotation of its model:
+ * <pre>
+ * &#064;Cached(maxEntries = 500, ttl = 60)
+ * public class Country extends Model {}
+ * </pre>
+ * A region is split into segments with their own locks, and every segment evicts least recently used entries once
+ * it exceeds its share of the number of entries or of the estimated size. Purging a group or all caches only
+ * increments a generation counter; segments drop entries of an old generation the next time they are used.
+ *
+ * @author Igor Polevoy
+ */
+public class InMemoryCacheManager extends CacheManager {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    private static final int SEGMENTS = 16;
+
+    private final ConcurrentMap<String, Region> regions = new ConcurrentHashMap<String, Region>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final int defaultMaxEntries;
+
+    public InMemoryCacheManager() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param defaultMaxEntries maximum number of entries in a region, unless configured by {@link Cached#maxEntries()}.
+     */
+    public InMemoryCacheManager(int defaultMaxEntries) {
+        if (defaultMaxEntries < 1) throw new IllegalArgumentException("maximum number of entries must be positive");
+        this.defaultMaxEntries = defaultMaxEntries;
+    }
+
+    public Object getCache(String group, String key) {
+        Region region = regions.get(group);
+        return region == null ? null : region.segment(key).get(key, System.currentTimeMillis());
+    }
+
+    public void addCache(String group, String key, Object cache) {
+        Region region = region(group);
+        region.segment(key).put(key, cache, region.maxBytes > 0 ? estimateSize(cache) : 0,
+                region.ttl > 0 ? System.currentTimeMillis() + region.ttl : Long.MAX_VALUE);
+    }
+
+    @Override
+    public void doFlush(CacheEvent event) {
+        if (event.getType().equals(CacheEvent.CacheEventType.ALL)) {
+            generation.incrementAndGet();
+        } else if (event.getType().equals(CacheEvent.CacheEventType.GROUP)) {
+            Region region = regions.get(event.getGroup());
+            if (region != null) {
+                region.generation.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    protected void doFlushEntry(CacheEvent event) {
+        Region region = regions.get(event.getGroup());
+        if (region != null) {
+            region.segment(event.getKey()).remove(event.getKey());
+        }
+    }
+
+    /**
+     * @param group name of group (table).
+     * @return number of entries currently cached for the group.
+     */
+    public int size(String group) {
+        Region region = regions.get(group);
+        if (region == null) {
+            return 0;
+        }
+        int size = 0;
+        for (Segment segment : region.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int getEntryCount(String group) {
+        return size(group);
+    }
+
+    /**
+     * @param group name of group (table).
+     * @return estimated size of entries, -1 if the region of the group is not limited by {@link Cached#maxBytes()}.
+     */
+    @Override
+    public long getEstimatedBytes(String group) {
+        Region region = regions.get(group);
+        if (region == null) {
+            return 0;
+        }
+        if (region.maxBytes <= 0) {
+            return -1;
+        }
+        long bytes = 0;
+        for (Segment segment : region.segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getEvictionCount(String group) {
+        Region region = regions.get(group);
+        return region == null ? 0 : region.evictions.get();
+    }
+
+    private Region region(String group) {
+        Region region = regions.get(group);
+        if (region == null) {
+            Cached settings = settings(group);
+            int maxEntries = settings != null && settings.maxEntries() > 0 ? settings.maxEntries() : defaultMaxEntries;
+            long maxBytes = settings != null ? settings.maxBytes() : 0;
+            long ttl = settings != null ? settings.ttl() * 1000 : 0;
+            region = new Region(maxEntries, maxBytes, ttl);
+            Region existing = regions.putIfAbsent(group, region);
+            if (existing != null) {
+                region = existing;
+            }
+        }
+        return region;
+    }
+
+    /**
+     * @param group name of group (table).
+     * @return annotation of a model of the table, null if not found.
+     */
+    protected Cached settings(String group) {
+        MetaModel metaModel = Registry.instance().getMetaModel(QueryCache.tableOf(group));
+        return metaModel == null ? null : (Cached) metaModel.getModelClass().getAnnotation(Cached.class);
+    }
+
+    /**
+     * Roughly estimates memory taken by a cached object, used only for regions limited by {@link Cached#maxBytes()}.
+     * Override to provide a better estimate for specific objects.
+     *
+     * @param object cached object.
+     * @return estimated size in bytes.
+     */
+    protected int estimateSize(Object object) {
+        if (object == null) {
+            return 4;
+        } else if (object instanceof String) {
+            return 40 + 2 * ((String) object).length();
+        } else if (object instanceof Number || object instanceof Boolean) {
+            return 16;
+        } else if (object instanceof Model) {
+            return 48 + estimateSize(((Model) object).toMap());
+        } else if (object instanceof Collection) {
+            int size = 24;
+            for (Object item : (Collection) object) {
+                size += 4 + estimateSize(item);
+            }
+            return size;
+        } else if (object instanceof Map) {
+            int size = 48;
+            for (Object entry : ((Map) object).entrySet()) {
+                size += 32 + estimateSize(((Map.Entry) entry).getKey()) + estimateSize(((Map.Entry) entry).getValue());
+            }
+            return size;
+        } else {
+            return 32;
+        }
+    }
+
+    private final class Region {
+        private final AtomicInteger generation = new AtomicInteger();
+        private final AtomicLong evictions = new AtomicLong();
+        private final long maxBytes, ttl;
+        private final Segment[] segments;
+
+        private Region(int maxEntries, long maxBytes, long ttl) {
+            this.maxBytes = maxBytes;
+            this.ttl = ttl;
+            //small regions use one segment, so that they are not allowed to grow larger than configured
+            int count = maxEntries >= SEGMENTS * 4 ? SEGMENTS : 1;
+            segments = new Segment[count];
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(this, (maxEntries + count - 1) / count, maxBytes / count);
+            }
+        }
+
+        private Segment segment(String key) {
+            int h = key.hashCode();
+            return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final int size;
+        private final long expiresAt;
+
+        private Entry(Object value, int size, long expiresAt) {
+            this.value = value;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+        private final Region region;
+        private final int maxEntries;
+        private final long maxBytes;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        private int seenGeneration, seenRegionGeneration;
+        private long bytes;
+
+        private Segment(Region region, int maxEntries, long maxBytes) {
+            this.region = region;
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            seenGeneration = generation.get();
+        }
+
+        synchronized Object get(String key, long now) {
+            checkGeneration();
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= now) {
+                entries.remove(key);
+                bytes -= entry.size;
+                region.evictions.incrementAndGet();
+                return null;
+            }
+            return entry.value;
+        }
+
+        synchronized void put(String key, Object value, int size, long expiresAt) {
+            checkGeneration();
+            Entry old = entries.put(key, new Entry(value, size, expiresAt));
+            if (old != null) {
+                bytes -= old.size;
+            }
+            bytes += size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > 1 && (entries.size() > maxEntries || (maxBytes > 0 && bytes > maxBytes))) {
+                bytes -= eldest.next().size;
+                eldest.remove();
+                region.evictions.incrementAndGet();
+            }
+        }
+
+        synchronized void remove(String key) {
+            checkGeneration();
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                bytes -= entry.size;
+            }
+        }
+
+        synchronized long bytes() {
+            checkGeneration();
+            return bytes;
+        }
+
+        synchronized int size() {
+            checkGeneration();
+            return entries.size();
+        }
+
+        /**
+         * Drops all entries if a group or all caches were purged since last use of this segment.
+         */
+        private void checkGeneration() {
+            int current = generation.get(), currentRegion = region.generation.get();
+            if (current != seenGeneration || currentRegion != seenRegionGeneration) {
+                entries.clear();
+                bytes = 0;
+                seenGeneration = current;
+                seenRegionGeneration = currentRegion;
+            }
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import org.javalite.activejdbc.LogFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Propagates purges of caches between nodes of a cluster, so that any {@link CacheManager}, including in-process ones,
+ * can be used in a cluster. Purges of a cache manager are sent to other nodes, and purges received from other nodes
+ * are applied to the cache manager. Start a bus on every node:
+ * <pre>
+ * InvalidationBus bus = new InvalidationBus(QueryCache.instance().getCacheManager(),
+ *         new UdpTransport(7000, new InetSocketAddress("node1", 7000), new InetSocketAddress("node2", 7000)));
+ * bus.start();
+ * </pre>
+ * Purges are sent with a small delay, and a burst of purges is sent as few messages: repeated purges of the same
+ * group are sent once, and purges of items of a purged group or after a purge of all caches are dropped.
+ * <p/>
+ * Every message has a sequence number of its node. Duplicate messages are ignored. If a message of a node is
+ * missing, a purge could have been lost, and all caches of this node are purged. Nodes also send heartbeats with
+ * the number of their last message, so that a lost last message of a burst is noticed within two heartbeat
+ * intervals, rather than when the node purges again. Messages a node sent before it was first heard from are
+ * treated as lost as well, so a node which starts after others purges its caches once.
+ *
+ * @author Igor Polevoy
+ */
+public class InvalidationBus implements CacheEventListener {
+    private final static Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    public static final long DEFAULT_BATCH_DELAY = 10;
+    public static final long DEFAULT_HEARTBEAT_INTERVAL = 1000;
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 1 + 8 + 8 + 2;
+    //duplicates are detected among this many last messages of a node
+    private static final int WINDOW = 64;
+
+    private final CacheManager cacheManager;
+    private final InvalidationTransport transport;
+    private final long batchDelay, heartbeatInterval;
+    private final long nodeId = new Random().nextLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadLocal<Boolean> applying = new ThreadLocal<Boolean>();
+    private final Map<Long, Peer> peers = new HashMap<Long, Peer>();
+    private final AtomicLong sentCount = new AtomicLong(), receivedCount = new AtomicLong(),
+            duplicateCount = new AtomicLong(), lostCount = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    //number of last message sent before previous heartbeat, used by scheduler thread only
+    private long heartbeatSequence;
+
+    //pending purges, guarded by this
+    private boolean allPending, scheduled;
+    private final Set<String> pendingGroups = new LinkedHashSet<String>();
+    private final Map<String, Set<String>> pendingEntries = new LinkedHashMap<String, Set<String>>();
+
+    /**
+     * @param cacheManager cache manager of this node.
+     * @param transport transport to other nodes.
+     */
+    public InvalidationBus(CacheManager cacheManager, InvalidationTransport transport) {
+        this(cacheManager, transport, DEFAULT_BATCH_DELAY);
+    }
+
+    /**
+     * @param cacheManager cache manager of this node.
+     * @param transport transport to other nodes.
+     * @param batchDelay time in milliseconds purges are collected before they are sent.
+     */
+    public InvalidationBus(CacheManager cacheManager, InvalidationTransport transport, long batchDelay) {
+        this(cacheManager, transport, batchDelay, DEFAULT_HEARTBEAT_INTERVAL);
+    }
+
+    /**
+     * @param cacheManager cache manager of this node.
+     * @param transport transport to other nodes.
+     * @param batchDelay time in milliseconds purges are collected before they are sent.
+     * @param heartbeatInterval time in milliseconds between heartbeats, 0 to send no heartbeats.
+     */
+    public InvalidationBus(CacheManager cacheManager, InvalidationTransport transport, long batchDelay, long heartbeatInterval) {
+        if (cacheManager == null || transport == null) {
+            throw new IllegalArgumentException("cache manager and transport cannot be null");
+        }
+        if (batchDelay < 0 || heartbeatInterval < 0) {
+            throw new IllegalArgumentException("batch delay and heartbeat interval cannot be negative");
+        }
+        this.cacheManager = cacheManager;
+        this.transport = transport;
+        this.batchDelay = batchDelay;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Starts receiving purges from other nodes and sending purges of this node.
+     */
+    public void start() throws IOException {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "activejdbc-invalidation-bus");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        transport.start(new InvalidationTransport.Receiver() {
+            public void receive(byte[] message) {
+                InvalidationBus.this.receive(message);
+            }
+        });
+        cacheManager.addCacheEventListener(this);
+        if (queryCache() != null) {
+            queryCache().setInvalidationBus(this);
+        }
+        if (heartbeatInterval > 0) {
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    sendHeartbeat();
+                }
+            }, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends pending purges and stops the bus.
+     */
+    public void close() {
+        cacheManager.removeCacheEventListener(this);
+        if (queryCache() != null) {
+            queryCache().setInvalidationBus(null);
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        send();
+        transport.close();
+    }
+
+    public void onFlush(CacheEvent event) {
+        publish(event);
+    }
+
+    /**
+     * Schedules a purge to be sent to other nodes. Purges applied from other nodes are not sent back.
+     *
+     * @param event purge.
+     */
+    void publish(CacheEvent event) {
+        if (applying.get() != null) {
+            return;
+        }
+        synchronized (this) {
+            if (allPending) {
+                return;
+            }
+            switch (event.getType()) {
+                case ALL:
+                    allPending = true;
+                    pendingGroups.clear();
+                    pendingEntries.clear();
+                    break;
+                case GROUP:
+                    pendingGroups.add(event.getGroup());
+                    pendingEntries.remove(event.getGroup());
+                    break;
+                case ENTRY:
+                    if (!pendingGroups.contains(event.getGroup())) {
+                        Set<String> keys = pendingEntries.get(event.getGroup());
+                        if (keys == null) {
+                            keys = new LinkedHashSet<String>();
+                            pendingEntries.put(event.getGroup(), keys);
+                        }
+                        keys.add(event.getKey());
+                    }
+                    break;
+            }
+            if (!scheduled && scheduler != null && !scheduler.isShutdown()) {
+                scheduled = true;
+                scheduler.schedule(new Runnable() {
+                    public void run() {
+                        send();
+                    }
+                }, batchDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void send() {
+        List<CacheEvent> events = new ArrayList<CacheEvent>();
+        synchronized (this) {
+            scheduled = false;
+            if (allPending) {
+                events.add(CacheEvent.ALL);
+            }
+            for (String group : pendingGroups) {
+                events.add(new CacheEvent(group, null));
+            }
+            for (Map.Entry<String, Set<String>> entry : pendingEntries.entrySet()) {
+                for (String key : entry.getValue()) {
+                    events.add(new CacheEvent(entry.getKey(), key, null));
+                }
+            }
+            allPending = false;
+            pendingGroups.clear();
+            pendingEntries.clear();
+        }
+        try {
+            int maxSize = transport.getMaxMessageSize();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int count = 0;
+            for (CacheEvent event : events) {
+                byte[] encoded = encode(event);
+                if (HEADER_SIZE + encoded.length > maxSize) {
+                    //too long to be sent, other nodes purge the whole group instead
+                    encoded = event.getType() == CacheEvent.CacheEventType.ENTRY
+                            ? encode(new CacheEvent(event.getGroup(), null)) : encode(CacheEvent.ALL);
+                }
+                if (HEADER_SIZE + body.size() + encoded.length > maxSize || count == Short.MAX_VALUE) {
+                    sendMessage(body.toByteArray(), count);
+                    body.reset();
+                    count = 0;
+                }
+                body.write(encoded);
+                count++;
+            }
+            if (count > 0) {
+                sendMessage(body.toByteArray(), count);
+            }
+        } catch (Exception e) {
+            logger.warn("failed to send cache purges to other nodes", e);
+        }
+    }
+
+    private void sendMessage(byte[] body, int count) throws IOException {
+        transport.send(message(sequence.incrementAndGet(), body, count));
+        sentCount.incrementAndGet();
+    }
+
+    /**
+     * Sends a message without purges, carrying the number of the last message sent before the previous heartbeat.
+     * Messages sent since then can still be on their way, so they are announced by the next heartbeat.
+     */
+    private void sendHeartbeat() {
+        long announced = heartbeatSequence;
+        heartbeatSequence = sequence.get();
+        try {
+            transport.send(message(announced, new byte[0], 0));
+        } catch (Exception e) {
+            logger.warn("failed to send cache purge heartbeat to other nodes", e);
+        }
+    }
+
+    /**
+     * @param count number of purges in body, 0 for a heartbeat.
+     */
+    private byte[] message(long number, byte[] body, int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + body.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeLong(nodeId);
+        out.writeLong(number);
+        out.writeShort(count);
+        out.write(body);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encode(CacheEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(event.getType().ordinal());
+        if (event.getType() != CacheEvent.CacheEventType.ALL) {
+            out.writeUTF(event.getGroup());
+        }
+        if (event.getType() == CacheEvent.CacheEventType.ENTRY) {
+            out.writeUTF(event.getKey());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Applies purges received from another node.
+     *
+     * @param message message sent by another node.
+     */
+    void receive(byte[] message) {
+        List<CacheEvent> events = new ArrayList<CacheEvent>();
+        long sender, number;
+        int count;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+            if (in.readByte() != VERSION) {
+                logger.warn("ignored cache purge message of unknown version");
+                return;
+            }
+            sender = in.readLong();
+            number = in.readLong();
+            if (sender == nodeId) {
+                return;
+            }
+            count = in.readUnsignedShort();
+            String source = "node " + Long.toHexString(sender);
+            for (int i = 0; i < count; i++) {
+                CacheEvent.CacheEventType type = CacheEvent.CacheEventType.values()[in.readByte()];
+                if (type == CacheEvent.CacheEventType.ALL) {
+                    events.add(new CacheEvent(source));
+                } else if (type == CacheEvent.CacheEventType.GROUP) {
+                    events.add(new CacheEvent(in.readUTF(), source));
+                } else {
+                    String group = in.readUTF();
+                    events.add(new CacheEvent(group, in.readUTF(), source));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("ignored malformed cache purge message", e);
+            return;
+        }
+        if (count == 0) {
+            receiveHeartbeat(sender, number);
+            return;
+        }
+        receivedCount.incrementAndGet();
+
+        long lost;
+        synchronized (peers) {
+            Peer peer = peer(sender);
+            if (!peer.accept(number)) {
+                duplicateCount.incrementAndGet();
+                return;
+            }
+            lost = peer.lost;
+            peer.lost = 0;
+        }
+
+        applying.set(Boolean.TRUE);
+        try {
+            purgeLost(sender, lost);
+            for (CacheEvent event : events) {
+                LogFilter.log(logger, "Applying cache purge from another node: " + event);
+                if (queryCache() != null) {
+                    queryCache().applyRemote(event);
+                } else {
+                    cacheManager.flush(event);
+                }
+            }
+        } finally {
+            applying.remove();
+        }
+    }
+
+    /**
+     * @param number number of last message sent by the node before its previous heartbeat.
+     */
+    private void receiveHeartbeat(long sender, long number) {
+        long lost;
+        synchronized (peers) {
+            lost = peer(sender).announce(number);
+        }
+        applying.set(Boolean.TRUE);
+        try {
+            purgeLost(sender, lost);
+        } finally {
+            applying.remove();
+        }
+    }
+
+    /**
+     * Messages are numbered from 1, so if the first message received from a node has a greater number, or the node
+     * announces any number in its first heartbeat, earlier messages were lost.
+     *
+     * @return sequence numbers received from a node, called under lock of peers.
+     */
+    private Peer peer(long sender) {
+        Peer peer = peers.get(sender);
+        if (peer == null) {
+            peer = new Peer(0, 1);
+            peers.put(sender, peer);
+        }
+        return peer;
+    }
+
+    private void purgeLost(long sender, long lost) {
+        if (lost > 0) {
+            lostCount.addAndGet(lost);
+            logger.warn(lost + " cache purge message(s) from node " + Long.toHexString(sender) + " lost, purging all caches");
+            cacheManager.flush(new CacheEvent("node " + Long.toHexString(sender)));
+        }
+    }
+
+    /**
+     * @return query cache if it uses the cache manager of this bus, null otherwise.
+     */
+    private QueryCache queryCache() {
+        QueryCache queryCache = QueryCache.instance();
+        return queryCache.getCacheManager() == cacheManager ? queryCache : null;
+    }
+
+    /**
+     * @return number of messages sent to other nodes.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return number of messages received from other nodes, including duplicates.
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return number of duplicate messages ignored.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * @return number of messages of other nodes which were never received.
+     */
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    /**
+     * Sequence numbers of messages received from a node.
+     */
+    private static final class Peer {
+        private long highest;
+        //bit i is set if message highest - i was received
+        private long received;
+        //messages skipped since last accepted message, reported once
+        private long lost;
+
+        private Peer(long highest, long received) {
+            this.highest = highest;
+            this.received = received;
+        }
+
+        /**
+         * @param number sequence number of a received message.
+         * @return false if the message was already received.
+         */
+        private boolean accept(long number) {
+            if (number > highest) {
+                long shift = number - highest;
+                lost = shift - 1;
+                received = shift >= WINDOW ? 1 : (received << shift) | 1;
+                highest = number;
+                return true;
+            }
+            long age = highest - number;
+            if (age >= WINDOW) {
+                //too old to tell, purging again is harmless
+                return true;
+            }
+            if ((received & (1L << age)) != 0) {
+                return false;
+            }
+            received |= 1L << age;
+            return true;
+        }
+
+        /**
+         * @param number number of a message the node has sent, from a heartbeat.
+         * @return number of messages up to it which were never received.
+         */
+        private long announce(long number) {
+            if (number <= highest) {
+                return 0;
+            }
+            long shift = number - highest;
+            //if missing messages arrive after all, they are applied, purging again is harmless
+            received = shift >= WINDOW ? 0 : received << shift;
+            highest = number;
+            return shift;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import java.io.IOException;
+
+/**
+ * Delivers messages of {@link InvalidationBus} between nodes of a cluster. Delivery does not need to be reliable
+ * or ordered, the bus detects lost and duplicate messages.
+ *
+ * @author Igor Polevoy
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Receives messages sent by other nodes.
+     */
+    interface Receiver {
+        void receive(byte[] message);
+    }
+
+    /**
+     * Starts receiving messages.
+     *
+     * @param receiver receiver of messages from other nodes.
+     */
+    void start(Receiver receiver) throws IOException;
+
+    /**
+     * Sends a message to all other nodes. Can also deliver it back to this node, such messages are ignored.
+     *
+     * @param message message, not larger than {@link #getMaxMessageSize()}.
+     */
+    void send(byte[] message) throws IOException;
+
+    /**
+     * @return maximum size of a message in bytes.
+     */
+    int getMaxMessageSize();
+
+    /**
+     * Stops receiving messages and releases resources.
+     */
+    void close();
+}
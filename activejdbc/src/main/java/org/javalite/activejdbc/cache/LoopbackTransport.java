@@ -0,0 +1,90 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transport which delivers messages to other transports of the same channel in this JVM, synchronously. Used to test
+ * clusters within one process.
+ *
+ * @author Igor Polevoy
+ */
+public class LoopbackTransport implements InvalidationTransport {
+    private final static Logger logger = LoggerFactory.getLogger(LoopbackTransport.class);
+
+    private static final ConcurrentMap<String, List<LoopbackTransport>> channels = new ConcurrentHashMap<String, List<LoopbackTransport>>();
+
+    private final String channel;
+    private volatile Receiver receiver;
+
+    /**
+     * @param channel name of channel, transports with the same name deliver messages to each other.
+     */
+    public LoopbackTransport(String channel) {
+        this.channel = channel;
+    }
+
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        List<LoopbackTransport> members = channels.get(channel);
+        if (members == null) {
+            members = new CopyOnWriteArrayList<LoopbackTransport>();
+            List<LoopbackTransport> existing = channels.putIfAbsent(channel, members);
+            if (existing != null) {
+                members = existing;
+            }
+        }
+        members.add(this);
+    }
+
+    public void send(byte[] message) {
+        List<LoopbackTransport> members = channels.get(channel);
+        if (members == null) {
+            return;
+        }
+        for (LoopbackTransport member : members) {
+            Receiver memberReceiver = member.receiver;
+            if (member != this && memberReceiver != null) {
+                try {
+                    memberReceiver.receive(message.clone());
+                } catch (Exception e) {
+                    logger.warn("failed to deliver message to a member of channel: " + channel, e);
+                }
+            }
+        }
+    }
+
+    public int getMaxMessageSize() {
+        return 64 * 1024;
+    }
+
+    public void close() {
+        List<LoopbackTransport> members = channels.get(channel);
+        if (members != null) {
+            members.remove(this);
+        }
+        receiver = null;
+    }
+}
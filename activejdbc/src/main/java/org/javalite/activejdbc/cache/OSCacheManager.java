@@ -61,4 +61,9 @@ public class OSCacheManager extends CacheManager{
             administrator.flushGroup(event.getGroup());
         }
     }
+
+    @Override
+    protected void doFlushEntry(CacheEvent event) {
+        administrator.flushEntry(event.getKey());
+    }
 }
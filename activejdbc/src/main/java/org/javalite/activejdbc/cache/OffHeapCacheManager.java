@@ -0,0 +1,289 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import org.javalite.activejdbc.ModelCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache manager which keeps cached items outside of heap, in direct byte buffers. To use, add this line
+ * to <code>activejdbc.properties</code>:
+ * <pre>
+ * cache.manager=org.javalite.activejdbc.cache.OffHeapCacheManager
+ * </pre>
+ * Models and lists of models are stored in a compact binary format of {@link ModelCodec}, and models of a list
+ * are decoded only when accessed. Other items are stored with Java serialization, items which are not serializable
+ * are not cached.
+ * <p/>
+ * Memory is split into slabs which are filled one after another. Once all slabs are used, the oldest slab is
+ * reused and items stored in it are evicted. Replaced and purged items take space until their slab is reused.
+ * To change capacity, subclass and call {@link #OffHeapCacheManager(long, int)}. Only keys and locations of items
+ * are kept in heap.
+ *
+ * @author Igor Polevoy
+ */
+public class OffHeapCacheManager extends CacheManager {
+    private final static Logger logger = LoggerFactory.getLogger(OffHeapCacheManager.class);
+
+    public static final long DEFAULT_CAPACITY = 256L * 1024 * 1024;
+    public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+    private static final byte CODEC = 'C', SERIALIZED = 'J';
+
+    private final ConcurrentMap<String, Location> index = new ConcurrentHashMap<String, Location>();
+    private final ConcurrentMap<String, AtomicInteger> groupGenerations = new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Slab[] slabs;
+    private final int slabSize;
+
+    //guarded by this
+    private int writeSlab, writePosition;
+
+    public OffHeapCacheManager() {
+        this(DEFAULT_CAPACITY, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param capacity total size of memory in bytes, allocated as slabs are needed.
+     * @param slabSize size of one slab in bytes, also maximum size of one item.
+     */
+    public OffHeapCacheManager(long capacity, int slabSize) {
+        if (slabSize < 1 || capacity < slabSize) {
+            throw new IllegalArgumentException("slab size must be positive and not greater than capacity");
+        }
+        this.slabSize = slabSize;
+        slabs = new Slab[(int) Math.min(Integer.MAX_VALUE, capacity / slabSize)];
+        for (int i = 0; i < slabs.length; i++) {
+            slabs[i] = new Slab(i);
+        }
+    }
+
+    public Object getCache(String group, String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        if (location.generation != generation.get() || location.groupGeneration != groupGeneration(group).get()) {
+            index.remove(key, location);
+            return null;
+        }
+        byte[] bytes = slabs[location.slab].read(location);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            if (bytes[0] == CODEC) {
+                byte[] encoded = new byte[bytes.length - 1];
+                System.arraycopy(bytes, 1, encoded, 0, encoded.length);
+                return ModelCodec.decode(encoded);
+            } else {
+                return new ObjectInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1)).readObject();
+            }
+        } catch (Exception e) {
+            logger.warn("failed to read cached item, key: " + key, e);
+            index.remove(key, location);
+            return null;
+        }
+    }
+
+    public void addCache(String group, String key, Object cache) {
+        byte[] bytes = toBytes(cache);
+        if (bytes == null) {
+            return;
+        }
+        if (bytes.length > slabSize) {
+            logger.debug("item is larger than slab size, not cached, key: " + key);
+            return;
+        }
+        int groupGeneration = groupGeneration(group).get();
+        int currentGeneration = generation.get();
+        synchronized (this) {
+            if (writePosition + bytes.length > slabSize || slabs[writeSlab].buffer == null) {
+                if (slabs[writeSlab].buffer != null) {
+                    writeSlab = (writeSlab + 1) % slabs.length;
+                }
+                slabs[writeSlab].reset();
+                writePosition = 0;
+            }
+            Slab slab = slabs[writeSlab];
+            Location location = slab.write(key, bytes, writePosition, currentGeneration, groupGeneration);
+            writePosition += bytes.length;
+            index.put(key, location);
+        }
+    }
+
+    @Override
+    public void doFlush(CacheEvent event) {
+        if (event.getType().equals(CacheEvent.CacheEventType.ALL)) {
+            generation.incrementAndGet();
+            index.clear();
+        } else if (event.getType().equals(CacheEvent.CacheEventType.GROUP)) {
+            groupGeneration(event.getGroup()).incrementAndGet();
+        }
+    }
+
+    @Override
+    protected void doFlushEntry(CacheEvent event) {
+        index.remove(event.getKey());
+    }
+
+    /**
+     * @return number of items in cache, including items of purged groups which were not accessed since.
+     */
+    public int getEntryCount() {
+        return index.size();
+    }
+
+    /**
+     * @return number of bytes allocated for slabs.
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (Slab slab : slabs) {
+            if (slab.buffer != null) {
+                bytes += slabSize;
+            }
+        }
+        return bytes;
+    }
+
+    private AtomicInteger groupGeneration(String group) {
+        AtomicInteger groupGeneration = groupGenerations.get(group);
+        if (groupGeneration == null) {
+            groupGeneration = new AtomicInteger();
+            AtomicInteger existing = groupGenerations.putIfAbsent(group, groupGeneration);
+            if (existing != null) {
+                groupGeneration = existing;
+            }
+        }
+        return groupGeneration;
+    }
+
+    private byte[] toBytes(Object cache) {
+        try {
+            if (ModelCodec.canEncode(cache)) {
+                byte[] encoded = ModelCodec.encode(cache);
+                byte[] bytes = new byte[encoded.length + 1];
+                bytes[0] = CODEC;
+                System.arraycopy(encoded, 0, bytes, 1, encoded.length);
+                return bytes;
+            } else if (cache instanceof Serializable) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                bytes.write(SERIALIZED);
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(cache);
+                out.close();
+                return bytes.toByteArray();
+            } else {
+                logger.debug("item is not serializable, not cached: " + cache);
+                return null;
+            }
+        } catch (Exception e) {
+            logger.warn("failed to cache item: " + cache, e);
+            return null;
+        }
+    }
+
+    private final class Slab {
+        private final int id;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        //keys of items written to this slab, guarded by OffHeapCacheManager.this
+        private final List<String> keys = new ArrayList<String>();
+        private volatile ByteBuffer buffer;
+        private volatile int epoch;
+
+        private Slab(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Prepares the slab for writing from the start, evicting items written to it before.
+         */
+        private void reset() {
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(slabSize);
+                return;
+            }
+            int evictedEpoch;
+            lock.writeLock().lock();
+            try {
+                evictedEpoch = epoch++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (String key : keys) {
+                Location location = index.get(key);
+                if (location != null && location.slab == id && location.epoch == evictedEpoch) {
+                    index.remove(key, location);
+                }
+            }
+            keys.clear();
+        }
+
+        private Location write(String key, byte[] bytes, int position, int generation, int groupGeneration) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(position);
+            target.put(bytes);
+            keys.add(key);
+            return new Location(id, epoch, position, bytes.length, generation, groupGeneration);
+        }
+
+        /**
+         * @return bytes of an item, null if the slab was reused since the item was written.
+         */
+        private byte[] read(Location location) {
+            lock.readLock().lock();
+            try {
+                if (location.epoch != epoch) {
+                    return null;
+                }
+                byte[] bytes = new byte[location.length];
+                ByteBuffer source = buffer.duplicate();
+                source.position(location.offset);
+                source.get(bytes);
+                return bytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private static final class Location {
+        private final int slab, epoch, offset, length, generation, groupGeneration;
+
+        private Location(int slab, int epoch, int offset, int length, int generation, int groupGeneration) {
+            this.slab = slab;
+            this.epoch = epoch;
+            this.offset = offset;
+            this.length = length;
+            this.generation = generation;
+            this.groupGeneration = groupGeneration;
+        }
+    }
+}
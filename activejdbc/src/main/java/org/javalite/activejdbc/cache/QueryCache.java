@@ -18,16 +18,55 @@ limitations under the License.
 package org.javalite.activejdbc.cache;
 
 
+import org.javalite.activejdbc.ConnectionSpec;
+import org.javalite.activejdbc.DB;
 import org.javalite.activejdbc.LogFilter;
+import org.javalite.activejdbc.MetaModel;
 import org.javalite.activejdbc.Registry;
+import org.javalite.activejdbc.annotations.Cached;
 import org.javalite.common.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is a main cache facade. It could be architected in the future to add more cache implementations besides OSCache.
+ * <p/>
+ * Items are kept in groups of a {@link CacheManager}:
+ * <ul>
+ *     <li><code>table</code> - results of queries which read only this table</li>
+ *     <li><code>table#</code> - single rows found by ID, they are purged one by one when rows are written</li>
+ *     <li><code>table#other1,other2</code> - results of queries which also read other tables, such as lists with
+ *     includes or many to many associations, they are purged when any of these tables is written</li>
+ * </ul>
+ * Results of tables with {@link Cached#softTtl()} are not purged from these groups, but marked stale and refreshed,
+ * see {@link #setBackgroundRefresh(String, java.util.concurrent.ExecutorService, org.javalite.activejdbc.ConnectionSpec)}.
+ * <p/>
+ * Purges caused by writes inside a transaction are applied when it is committed, and dropped when it is rolled back.
+ * Once a thread writes in a transaction, its reads from the same database bypass cache until the transaction ends,
+ * so that uncommitted data is never cached.
  *
  * @author Igor Polevoy
  */
@@ -41,6 +80,34 @@ public class QueryCache {
 
     private CacheManager cacheManager;
 
+    //dependency table -> groups of cached queries which read it
+    private final ConcurrentMap<String, Set<String>> dependentGroups = new ConcurrentHashMap<String, Set<String>>();
+
+    //key -> load of a missing item in progress
+    private final ConcurrentMap<String, Load> loads = new ConcurrentHashMap<String, Load>();
+    private final long loadTimeout = Registry.instance().getConfiguration().getCacheLoadTimeout();
+    private final AtomicLong loadCount = new AtomicLong(), coalescedCount = new AtomicLong(), fallThroughCount = new AtomicLong();
+
+    //group -> time of last purge of a group of a table with soft TTL, results loaded before it are stale
+    private final ConcurrentMap<String, Long> staleBefore = new ConcurrentHashMap<String, Long>();
+    //database name -> background refresh
+    private final ConcurrentMap<String, Refresh> refreshes = new ConcurrentHashMap<String, Refresh>();
+    //keys being refreshed in background
+    private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<String, Boolean>();
+    private final AtomicLong refreshCount = new AtomicLong();
+    //table -> TTLs of its cached items, resolved from the Cached annotation of its model once
+    private final ConcurrentMap<String, Ttl> ttls = new ConcurrentHashMap<String, Ttl>();
+
+    //database name -> transaction open by current thread
+    private final ThreadLocal<Map<String, Transaction>> transactions = new ThreadLocal<Map<String, Transaction>>();
+
+    //sends purges to other nodes of a cluster, see InvalidationBus
+    private volatile InvalidationBus bus;
+
+    //lower case table name -> statistics
+    private final ConcurrentMap<String, CacheStatistics> statistics = new ConcurrentHashMap<String, CacheStatistics>();
+    private volatile boolean registerMBeans = Registry.instance().getConfiguration().cacheMBeansEnabled();
+
     //singleton
 
     private QueryCache() {
@@ -66,9 +133,47 @@ public class QueryCache {
      * @param cache     object to cache.
      */
     public void addItem(String tableName, String query, Object[] params, Object cache) {
-        if (enabled) {
-            cacheManager.addCache(tableName, getKey(tableName, query, params), cache);
+        addItem(tableName, query, params, cache, null);
+    }
+
+    /**
+     * Adds an item which depends on other tables besides its own. It is purged when any of these tables is written,
+     * and is not affected by writes to tables it does not depend on.
+     *
+     * @param tableName    name of table.
+     * @param query        query text
+     * @param params       list of parameters for a query.
+     * @param cache        object to cache.
+     * @param dependencies names of other tables read by the query, can be null.
+     */
+    public void addItem(String tableName, String query, Object[] params, Object cache, Collection<String> dependencies) {
+        if (enabled && !dirty(tableName)) {
+            String group = getGroup(tableName, dependencies);
+            put(tableName, group, getKey(group, query, params), cache, dependencies, System.currentTimeMillis());
+        }
+    }
+
+    private void put(String tableName, String group, String key, Object item, Collection<String> dependencies, long loadedAt) {
+        //rows are purged by their own group and are not registered
+        if (dependencies != null && !group.equals(tableName)) {
+            register(tableName.toLowerCase(), group);
+            for (String dependency : dependencies) {
+                register(dependency.toLowerCase(), group);
+            }
         }
+        cacheManager.addCache(group, key, softTtl(tableName) > 0 ? new Stamped(item, loadedAt) : item);
+        statistics(tableName).puts.increment();
+    }
+
+    /**
+     * @return cached item, or null if it is stale or expired.
+     */
+    private Object fresh(String tableName, String group, Object cached, long now) {
+        if (cached instanceof Stamped) {
+            Stamped stamped = (Stamped) cached;
+            return expired(tableName, stamped, now) || stale(tableName, group, stamped, now) ? null : stamped.item;
+        }
+        return cached;
     }
 
     /**
@@ -80,13 +185,29 @@ public class QueryCache {
      * @return cache object or null if nothing found.
      */
     public Object getItem(String tableName, String query, Object[] params) {
+        return getItem(tableName, query, params, null);
+    }
+
+    /**
+     * Returns an item added by {@link #addItem(String, String, Object[], Object, java.util.Collection)}, or null if nothing found.
+     *
+     * @param tableName    name of table.
+     * @param query        query text.
+     * @param params       list of query parameters, can be null if no parameters are provided.
+     * @param dependencies names of other tables read by the query, can be null.
+     * @return cache object or null if nothing found.
+     */
+    public Object getItem(String tableName, String query, Object[] params, Collection<String> dependencies) {
 
-        if (enabled) {
-            String key = getKey(tableName, query, params);
-            Object item = cacheManager.getCache(tableName, key);
+        if (enabled && !dirty(tableName)) {
+            String group = getGroup(tableName, dependencies);
+            String key = getKey(group, query, params);
+            Object item = fresh(tableName, group, cacheManager.getCache(group, key), System.currentTimeMillis());
             if (item == null) {
+                statistics(tableName).misses.increment();
                 logAccess(query, params, "MISS");
             } else {
+                statistics(tableName).hits.increment();
                 logAccess(query, params, "HIT");
             }
             return item;
@@ -95,7 +216,255 @@ public class QueryCache {
         }
     }
 
+    /**
+     * Returns an item from cache, or loads it if missing. Only one thread loads a missing item, other threads which
+     * ask for the same item at the same time wait for its result instead of running the same query. If the loading
+     * thread fails, or does not finish within <code>cacheLoadTimeout</code> (see
+     * {@link org.javalite.activejdbc.Configuration#getCacheLoadTimeout()}), waiting threads load the item themselves.
+     * Stale items of tables with {@link Cached#softTtl()} are returned at once, while the loader is run in background.
+     *
+     * @param tableName    name of table.
+     * @param query        query text.
+     * @param params       list of query parameters, can be null if no parameters are provided.
+     * @param dependencies names of other tables read by the query, can be null.
+     * @param loader       loads the item if it is not in cache.
+     * @return cached or loaded item.
+     */
+    public Object getItem(String tableName, String query, Object[] params, Collection<String> dependencies, ItemLoader loader) {
+        if (!enabled || dirty(tableName)) {
+            return loader.load();
+        }
+        String group = getGroup(tableName, dependencies);
+        String key = getKey(group, query, params);
+        long now = System.currentTimeMillis();
+        CacheStatistics tableStatistics = statistics(tableName);
+        Object cached = cacheManager.getCache(group, key);
+        if (cached instanceof Stamped) {
+            Stamped stamped = (Stamped) cached;
+            if (!expired(tableName, stamped, now)) {
+                if (!stale(tableName, group, stamped, now)) {
+                    tableStatistics.hits.increment();
+                    logAccess(query, params, "HIT");
+                    return stamped.item;
+                }
+                if (refreshInBackground(tableName, group, key, loader)) {
+                    tableStatistics.staleHits.increment();
+                    logAccess(query, params, "STALE");
+                    return stamped.item;
+                }
+            }
+        } else if (cached != null) {
+            tableStatistics.hits.increment();
+            logAccess(query, params, "HIT");
+            return cached;
+        }
+        tableStatistics.misses.increment();
+        logAccess(query, params, "MISS");
+
+        Load load = new Load();
+        Load current = loads.putIfAbsent(key, load);
+        if (current == null) {
+            try {
+                //another thread could have loaded it just before this one started
+                Object item = fresh(tableName, group, cacheManager.getCache(group, key), System.currentTimeMillis());
+                if (item == null) {
+                    loadCount.incrementAndGet();
+                    long started = System.currentTimeMillis();
+                    long startedNanos = System.nanoTime();
+                    item = loader.load();
+                    tableStatistics.loads.increment();
+                    tableStatistics.loadTime.add(System.nanoTime() - startedNanos);
+                    if (item != null) {
+                        put(tableName, group, key, item, dependencies, started);
+                    }
+                }
+                load.item = item;
+                return item;
+            } finally {
+                loads.remove(key);
+                load.done.countDown();
+            }
+        }
+
+        try {
+            if (current.done.await(loadTimeout, TimeUnit.MILLISECONDS) && current.item != null) {
+                coalescedCount.incrementAndGet();
+                logAccess(query, params, "WAITED");
+                return current.item;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fallThroughCount.incrementAndGet();
+        return loader.load();
+    }
+
+    /**
+     * Configures background refresh of stale results of tables with {@link Cached#softTtl()} set, see
+     * {@link #getItem(String, String, Object[], java.util.Collection, ItemLoader)}. Queries are run by the executor,
+     * each on its own connection opened with the spec and closed after the query.
+     *
+     * @param dbName name of database whose tables are refreshed, such as <code>"default"</code>.
+     * @param executor executor to run queries, null to stop background refresh, in which case stale results are
+     * reloaded by threads which ask for them.
+     * @param connectionSpec specification of connections to use for refresh.
+     */
+    public void setBackgroundRefresh(String dbName, ExecutorService executor, ConnectionSpec connectionSpec) {
+        if (executor == null) {
+            refreshes.remove(dbName);
+        } else {
+            if (connectionSpec == null) throw new IllegalArgumentException("connection spec cannot be null");
+            refreshes.put(dbName, new Refresh(executor, connectionSpec));
+        }
+    }
+
+    /**
+     * Submits a refresh of a stale item, unless it is already being refreshed.
+     *
+     * @return false if background refresh is not configured or not available for the table.
+     */
+    private boolean refreshInBackground(final String tableName, final String group, final String key, final ItemLoader loader) {
+        final MetaModel metaModel = Registry.instance().getMetaModel(tableName);
+        final Refresh refresh = metaModel == null ? null : refreshes.get(metaModel.getDbName());
+        if (refresh == null) {
+            return false;
+        }
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            return true;
+        }
+        try {
+            refresh.executor.execute(new Runnable() {
+                public void run() {
+                    DB db = new DB(metaModel.getDbName());
+                    try {
+                        db.open(refresh.connectionSpec);
+                        try {
+                            long started = System.currentTimeMillis();
+                            Object item = loader.load();
+                            if (item != null) {
+                                cacheManager.addCache(group, key, new Stamped(item, started));
+                                refreshCount.incrementAndGet();
+                            }
+                        } finally {
+                            db.close();
+                        }
+                    } catch (Exception e) {
+                        logger.warn("failed to refresh cache of table: " + tableName, e);
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            return false;
+        }
+    }
+
+    private boolean stale(String tableName, String group, Stamped stamped, long now) {
+        Long purged = staleBefore.get(group);
+        return (purged != null && stamped.loadedAt <= purged) || now - stamped.loadedAt >= softTtl(tableName) * 1000;
+    }
+
+    private boolean expired(String tableName, Stamped stamped, long now) {
+        long ttl = ttl(tableName).ttl;
+        return ttl > 0 && now - stamped.loadedAt >= ttl * 1000;
+    }
+
+    private long softTtl(String tableName) {
+        return ttl(tableName).softTtl;
+    }
+
+    private Ttl ttl(String tableName) {
+        Ttl ttl = ttls.get(tableName);
+        if (ttl == null) {
+            MetaModel metaModel = Registry.instance().getMetaModel(tableName);
+            if (metaModel == null) {
+                return Ttl.NONE;
+            }
+            Cached cached = (Cached) metaModel.getModelClass().getAnnotation(Cached.class);
+            ttl = cached == null ? Ttl.NONE : new Ttl(cached.ttl(), cached.softTtl());
+            ttls.put(tableName, ttl);
+        }
+        return ttl;
+    }
+
+    /**
+     * @return number of stale items replaced by background refresh.
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return number of missing items loaded by {@link #getItem(String, String, Object[], java.util.Collection, ItemLoader)}.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return number of queries saved because threads waited for an item loaded by another thread.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return number of times a thread waited for an item loaded by another thread, but then had to load it itself,
+     * because the other thread failed or did not finish in time.
+     */
+    public long getFallThroughCount() {
+        return fallThroughCount.get();
+    }
+
+    private static class Refresh {
+        private final ExecutorService executor;
+        private final ConnectionSpec connectionSpec;
+
+        private Refresh(ExecutorService executor, ConnectionSpec connectionSpec) {
+            this.executor = executor;
+            this.connectionSpec = connectionSpec;
+        }
+    }
+
+    /**
+     * Cached item of a table with soft TTL, with time when its query started.
+     */
+    private static class Stamped implements Serializable {
+        private final Object item;
+        private final long loadedAt;
+
+        private Stamped(Object item, long loadedAt) {
+            this.item = item;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * TTLs of a table in seconds, see {@link Cached}.
+     */
+    private static class Ttl {
+        private static final Ttl NONE = new Ttl(0, 0);
+        private final long ttl;
+        private final long softTtl;
+
+        private Ttl(long ttl, long softTtl) {
+            this.ttl = ttl;
+            this.softTtl = softTtl;
+        }
+    }
+
+    private static class Load {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Object item;
+    }
+
     static void logAccess(String query, Object[] params, String access) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         StringBuffer log = new StringBuffer(access).append(", ").append("\"").append(query).append("\"");
         if (params != null && params.length != 0)
             log.append(", with parameters: ").append("<").append(Util.join(Arrays.asList(params), ">, <")).append(">");
@@ -104,22 +473,424 @@ public class QueryCache {
     }
 
 
-    private String getKey(String tableName, String query, Object[] params) {
-        return new StringBuffer(tableName).append(query).append(params == null ? null : Arrays.asList(params).toString()).toString();
+    /**
+     * Adds a single row found by ID. Unlike query results, rows are purged one at a time by {@link #purgeRowCache(String, Object)}.
+     *
+     * @param tableName name of table.
+     * @param id        ID of row.
+     * @param row       model to cache.
+     */
+    public void addRow(String tableName, Object id, Object row) {
+        if (enabled && !dirty(tableName)) {
+            String group = tableName + '#';
+            put(tableName, group, group + id, row, null, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Returns a row added by {@link #addRow(String, Object, Object)}, or null if nothing found.
+     *
+     * @param tableName name of table.
+     * @param id        ID of row.
+     * @return cached model or null if nothing found.
+     */
+    public Object getRow(String tableName, Object id) {
+        if (enabled && !dirty(tableName)) {
+            String group = tableName + '#';
+            Object row = fresh(tableName, group, cacheManager.getCache(group, group + id), System.currentTimeMillis());
+            if (row == null) {
+                statistics(tableName).misses.increment();
+            } else {
+                statistics(tableName).hits.increment();
+            }
+            if (logger.isInfoEnabled()) {
+                LogFilter.log(logger, (row == null ? "MISS" : "HIT") + ", row of " + tableName + " with ID: " + id);
+            }
+            return row;
+        } else {
+            return null;
+        }
+    }
+
+    private String getKey(String group, String query, Object[] params) {
+        return new StringBuffer(group).append(query).append(params == null ? null : Arrays.asList(params).toString()).toString();
+    }
+
+    private String getGroup(String tableName, Collection<String> dependencies) {
+        if (dependencies == null || dependencies.isEmpty()) {
+            return tableName;
+        }
+        Set<String> sorted = new TreeSet<String>();
+        for (String dependency : dependencies) {
+            if (!dependency.equalsIgnoreCase(tableName)) {
+                sorted.add(dependency.toLowerCase());
+            }
+        }
+        return sorted.isEmpty() ? tableName : tableName + '#' + Util.join(sorted, ",");
+    }
+
+    private void register(String dependency, String group) {
+        Set<String> groups = dependentGroups.get(dependency);
+        if (groups == null) {
+            groups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            Set<String> existing = dependentGroups.putIfAbsent(dependency, groups);
+            if (existing != null) {
+                groups = existing;
+            }
+        }
+        groups.add(group);
+    }
+
+    /**
+     * @param group name of a group used by this class.
+     * @return name of table whose items are kept in the group.
+     */
+    static String tableOf(String group) {
+        int index = group.indexOf('#');
+        return index == -1 ? group : group.substring(0, index);
     }
 
     /**
      * This method purges (removes) all caches associated with a table, if caching is enabled and
-     * a corresponding model is marked cached.
+     * a corresponding model is marked cached. Use it after writes which can affect many rows.
      *
      * @param tableName table name whose caches are to be purged.
      */
     public void purgeTableCache(String tableName) {
-        if(enabled  && Registry.instance().getMetaModel(tableName).cached()){
-            cacheManager.flush(new CacheEvent(tableName, getClass().getName()));
+        if(enabled && cached(tableName) && !defer(new Purge(Purge.TABLE, tableName, null))){
+            purgeTable(tableName);
         }
     }
 
+    private void purgeTable(String tableName) {
+        statistics(tableName).purges.increment();
+        flushGroup(tableName);
+        flushGroup(tableName + '#');
+        flushOwnGroups(tableName);
+    }
+
+    /**
+     * Purges caches affected by a write of a single row of a table: the row itself and results of queries of the table.
+     * Rows with other IDs stay in cache.
+     *
+     * @param tableName name of table.
+     * @param id ID of written row, can be null for new rows.
+     */
+    public void purgeRowCache(String tableName, Object id) {
+        if(enabled && cached(tableName) && !defer(new Purge(Purge.ROW, tableName, id))){
+            purgeRow(tableName, id);
+        }
+    }
+
+    private void purgeRow(String tableName, Object id) {
+        if(id != null){
+            String group = tableName + '#';
+            cacheManager.flush(new CacheEvent(group, group + id, getClass().getName()));
+        }
+        statistics(tableName).purges.increment();
+        flushGroup(tableName);
+        flushOwnGroups(tableName);
+    }
+
+    /**
+     * Purges cached results of queries of other tables which read this table, such as lists with includes
+     * or many to many associations. Nothing is purged if no such queries were cached.
+     *
+     * @param tableName name of written table, it does not need to be cached.
+     */
+    public void purgeDependents(String tableName) {
+        if(enabled && !defer(new Purge(Purge.DEPENDENTS, tableName, null))){
+            purgeDependentGroups(tableName);
+        }
+    }
+
+    private void purgeDependentGroups(String tableName) {
+        InvalidationBus currentBus = bus;
+        if(currentBus != null){
+            //other nodes can have cached dependent queries which this node did not
+            currentBus.publish(new CacheEvent(tableName, getClass().getName()));
+        }
+        Set<String> groups = dependentGroups.get(tableName.toLowerCase());
+        if(groups != null){
+            Set<String> purgedTables = new HashSet<String>();
+            for (String group : groups) {
+                if(!tableOf(group).equalsIgnoreCase(tableName)){
+                    flushGroup(group);
+                    purgedTables.add(tableOf(group));
+                }
+            }
+            for (String purgedTable : purgedTables) {
+                statistics(purgedTable).purges.increment();
+            }
+        }
+    }
+
+    private void flushOwnGroups(String tableName) {
+        Set<String> groups = dependentGroups.get(tableName.toLowerCase());
+        if(groups != null){
+            for (String group : groups) {
+                if(tableOf(group).equalsIgnoreCase(tableName)){
+                    flushGroup(group);
+                }
+            }
+        }
+    }
+
+    private void flushGroup(String group) {
+        //rows are reloaded one by one and cheaply, so they are always purged
+        if (!group.endsWith("#") && softTtl(tableOf(group)) > 0) {
+            staleBefore.put(group, System.currentTimeMillis());
+            LogFilter.log(logger, "Cache marked stale: " + group);
+            InvalidationBus currentBus = bus;
+            if(currentBus != null){
+                currentBus.publish(new CacheEvent(group, getClass().getName()));
+            }
+        } else {
+            cacheManager.flush(new CacheEvent(group, getClass().getName()));
+        }
+    }
+
+    /**
+     * Starts buffering purges of tables of a database for current thread. Called by
+     * {@link DB#openTransaction()}, applications do not need to call it.
+     *
+     * @param dbName name of database.
+     */
+    public void openTransaction(String dbName) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Transaction> open = transactions.get();
+        if (open == null) {
+            open = new HashMap<String, Transaction>();
+            transactions.set(open);
+        }
+        if (!open.containsKey(dbName)) {
+            open.put(dbName, new Transaction());
+        }
+    }
+
+    /**
+     * Applies purges buffered since a transaction was opened, each one once. Called by {@link DB#commitTransaction()}.
+     *
+     * @param dbName name of database.
+     */
+    public void commitTransaction(String dbName) {
+        Transaction transaction = endTransaction(dbName);
+        if (transaction != null) {
+            for (Purge purge : transaction.purges) {
+                if (purge.kind == Purge.TABLE) {
+                    purgeTable(purge.table);
+                } else if (purge.kind == Purge.ROW) {
+                    purgeRow(purge.table, purge.id);
+                } else {
+                    purgeDependentGroups(purge.table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops purges buffered since a transaction was opened, cache was not affected by the transaction.
+     * Called by {@link DB#rollbackTransaction()} and {@link DB#close()}.
+     *
+     * @param dbName name of database.
+     */
+    public void rollbackTransaction(String dbName) {
+        endTransaction(dbName);
+    }
+
+    private Transaction endTransaction(String dbName) {
+        Map<String, Transaction> open = transactions.get();
+        if (open == null) {
+            return null;
+        }
+        Transaction transaction = open.remove(dbName);
+        if (open.isEmpty()) {
+            transactions.remove();
+        }
+        return transaction;
+    }
+
+    /**
+     * @return transaction of current thread in the database of the table, or any transaction of current thread
+     * if the table has no model.
+     */
+    private Transaction transaction(String tableName) {
+        Map<String, Transaction> open = transactions.get();
+        if (open == null) {
+            return null;
+        }
+        MetaModel metaModel = Registry.instance().getMetaModel(tableName);
+        if (metaModel != null) {
+            return open.get(metaModel.getDbName());
+        }
+        return open.isEmpty() ? null : open.values().iterator().next();
+    }
+
+    private boolean defer(Purge purge) {
+        Transaction transaction = transaction(purge.table);
+        if (transaction == null) {
+            return false;
+        }
+        transaction.purges.add(purge);
+        return true;
+    }
+
+    /**
+     * @return true if current thread wrote to the database of the table in a transaction which is not finished yet.
+     */
+    private boolean dirty(String tableName) {
+        if (transactions.get() == null) {
+            return false;
+        }
+        Transaction transaction = transaction(tableName);
+        return transaction != null && !transaction.purges.isEmpty();
+    }
+
+    private static class Transaction {
+        private final Set<Purge> purges = new LinkedHashSet<Purge>();
+    }
+
+    private static class Purge {
+        private static final int TABLE = 0, ROW = 1, DEPENDENTS = 2;
+
+        private final int kind;
+        private final String table;
+        private final Object id;
+
+        private Purge(int kind, String table, Object id) {
+            this.kind = kind;
+            this.table = table;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Purge)) {
+                return false;
+            }
+            Purge other = (Purge) o;
+            return kind == other.kind && table.equalsIgnoreCase(other.table) && String.valueOf(id).equals(String.valueOf(other.id));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * kind + table.toLowerCase().hashCode()) + String.valueOf(id).hashCode();
+        }
+    }
+
+    /**
+     * @param tableName name of table.
+     * @return statistics of cache of the table, counted since start or last reset.
+     */
+    public CacheStatistics getStatistics(String tableName) {
+        return statistics(tableName);
+    }
+
+    /**
+     * @return statistics of all tables which used cache so far, keyed by lower case table names.
+     */
+    public Map<String, CacheStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new TreeMap<String, CacheStatistics>(statistics));
+    }
+
+    /**
+     * Registers statistics of all tables as JMX MBeans named
+     * <code>org.javalite.activejdbc:type=QueryCache,table=&lt;table&gt;</code>, including tables which start using
+     * cache later. Done at startup if property <code>cacheMBeans</code> is <code>true</code>.
+     */
+    public void registerMBeans() {
+        registerMBeans = true;
+        for (CacheStatistics tableStatistics : statistics.values()) {
+            registerMBean(tableStatistics);
+        }
+    }
+
+    private CacheStatistics statistics(String tableName) {
+        String table = tableName.toLowerCase();
+        CacheStatistics tableStatistics = statistics.get(table);
+        if (tableStatistics == null) {
+            //groups are named by the table name as declared, which is what cache managers are asked about
+            MetaModel metaModel = Registry.instance().getMetaModel(tableName);
+            tableStatistics = new CacheStatistics(metaModel == null ? tableName : metaModel.getTableName(), this);
+            CacheStatistics existing = statistics.putIfAbsent(table, tableStatistics);
+            if (existing != null) {
+                return existing;
+            }
+            if (registerMBeans) {
+                registerMBean(tableStatistics);
+            }
+        }
+        return tableStatistics;
+    }
+
+    private void registerMBean(CacheStatistics tableStatistics) {
+        try {
+            ObjectName name = new ObjectName("org.javalite.activejdbc:type=QueryCache,table=" + tableStatistics.getTable());
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(tableStatistics, name);
+            }
+        } catch (InstanceAlreadyExistsException ignore) {
+            //registered by another thread
+        } catch (Exception e) {
+            logger.warn("failed to register MBean of cache statistics of table: " + tableStatistics.getTable(), e);
+        }
+    }
+
+    /**
+     * @param tableName name of table.
+     * @return groups which hold cached items of the table.
+     */
+    Collection<String> groupsOf(String tableName) {
+        Set<String> groups = new LinkedHashSet<String>();
+        groups.add(tableName);
+        groups.add(tableName + '#');
+        //groups of queries with includes are kept by tables they depend on
+        for (Set<String> dependents : dependentGroups.values()) {
+            for (String group : dependents) {
+                if (tableOf(group).equalsIgnoreCase(tableName)) {
+                    groups.add(group);
+                }
+            }
+        }
+        return groups;
+    }
+
+    void setInvalidationBus(InvalidationBus bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Applies a purge received from another node of a cluster. Groups of tables with soft TTL are marked stale, like
+     * purges of this node. A purge of a table also purges queries of this node which depend on it, because the other
+     * node could have no such queries cached.
+     *
+     * @param event purge received from another node.
+     */
+    void applyRemote(CacheEvent event) {
+        if(!enabled){
+            return;
+        }
+        if(event.getType() != CacheEvent.CacheEventType.GROUP){
+            cacheManager.flush(event);
+            return;
+        }
+        String group = event.getGroup();
+        statistics(tableOf(group)).purges.increment();
+        flushGroup(group);
+        if(group.indexOf('#') == -1){
+            flushOwnGroups(group);
+            purgeDependentGroups(group);
+        }
+    }
+
+    private boolean cached(String tableName) {
+        MetaModel metaModel = Registry.instance().getMetaModel(tableName);
+        return metaModel != null && metaModel.cached();
+    }
+
     public CacheManager getCacheManager(){
         return cacheManager;
     }
@@ -0,0 +1,57 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter updated by many threads. Threads update different cells, so that they do not contend for the same
+ * cache line, and reads sum all cells.
+ *
+ * @author Igor Polevoy
+ */
+final class StripedCounter {
+    private static final int STRIPES = 16;
+    //cells are 8 longs (64 bytes) apart, to be on different cache lines
+    private static final int SPACING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * SPACING);
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long value) {
+        long id = Thread.currentThread().getId();
+        cells.addAndGet((int) ((id ^ (id >>> 4)) & (STRIPES - 1)) * SPACING, value);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * SPACING);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * SPACING, 0);
+        }
+    }
+}
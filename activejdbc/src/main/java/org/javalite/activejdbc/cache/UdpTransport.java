@@ -0,0 +1,121 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transport which sends every message as a UDP datagram to each of a configured list of peers. Several nodes
+ * can run on one machine with different ports.
+ *
+ * @author Igor Polevoy
+ */
+public class UdpTransport implements InvalidationTransport {
+    private final static Logger logger = LoggerFactory.getLogger(UdpTransport.class);
+
+    //fits into one packet of a typical network, so that a lost fragment does not lose the whole message
+    private static final int MAX_MESSAGE_SIZE = 1400;
+
+    private final int port;
+    private final List<InetSocketAddress> peers;
+    private volatile DatagramSocket socket;
+
+    /**
+     * @param port local port to receive messages, 0 to pick any free port, see {@link #getLocalPort()}.
+     * @param peers addresses of other nodes, can include the address of this node.
+     */
+    public UdpTransport(int port, InetSocketAddress... peers) {
+        this(port, Arrays.asList(peers));
+    }
+
+    /**
+     * @param port local port to receive messages, 0 to pick any free port, see {@link #getLocalPort()}.
+     * @param peers addresses of other nodes, can include the address of this node.
+     */
+    public UdpTransport(int port, List<InetSocketAddress> peers) {
+        this.port = port;
+        this.peers = new ArrayList<InetSocketAddress>(peers);
+    }
+
+    public void start(final Receiver receiver) throws IOException {
+        final DatagramSocket datagramSocket = new DatagramSocket(port);
+        socket = datagramSocket;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                byte[] buffer = new byte[64 * 1024];
+                while (!datagramSocket.isClosed()) {
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    try {
+                        datagramSocket.receive(packet);
+                        receiver.receive(Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength()));
+                    } catch (Exception e) {
+                        if (!datagramSocket.isClosed()) {
+                            logger.warn("failed to receive message", e);
+                        }
+                    }
+                }
+            }
+        }, "activejdbc-udp-invalidation-" + datagramSocket.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void send(byte[] message) throws IOException {
+        DatagramSocket datagramSocket = socket;
+        if (datagramSocket == null) {
+            throw new IllegalStateException("transport is not started");
+        }
+        //a peer which cannot be reached must not keep others from receiving the message
+        for (SocketAddress peer : peers) {
+            try {
+                datagramSocket.send(new DatagramPacket(message, message.length, peer));
+            } catch (IOException e) {
+                logger.warn("failed to send message to " + peer, e);
+            }
+        }
+    }
+
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE;
+    }
+
+    /**
+     * @return port this transport receives messages on, -1 if not started.
+     */
+    public int getLocalPort() {
+        DatagramSocket datagramSocket = socket;
+        return datagramSocket == null ? -1 : datagramSocket.getLocalPort();
+    }
+
+    public void close() {
+        DatagramSocket datagramSocket = socket;
+        if (datagramSocket != null) {
+            datagramSocket.close();
+        }
+    }
+}
@@ -20,6 +20,10 @@ package org.javalite.activejdbc.dialects;
 import org.javalite.activejdbc.MetaModel;
 import org.javalite.common.Util;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -91,8 +95,24 @@ public class DefaultDialect {
     }
 
    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+        return formSelect(tableName, null, subQuery, orderBys, limit, offset);
+   }
 
-        String fullQuery = "SELECT * FROM " + tableName;
+    /**
+     * Generates a select query, adding order bys, limit and offset in a database-specific way.
+     *
+     * @param tableName name of table. If table name is null, then the subQuery parameter is considered to be a full query,
+     * and all that needs to be done is to add limit, offset and order bys.
+     * @param columns columns to select, null to select all columns. Ignored for full queries.
+     * @param subQuery sub-query, something like: "name = ? and ssn = ?". It can be blank: "" or null.
+     * @param orderBys collection of order bys, such as: "dob desc".
+     * @param limit limit value, -1 if not needed.
+     * @param offset offset value, -1 if not needed.
+     * @return select query.
+     */
+   public String formSelect(String tableName, String[] columns, String subQuery, List<String> orderBys, long limit, long offset) {
+
+        String fullQuery = "SELECT " + columnList(columns) + " FROM " + tableName;
 
         if(!Util.blank(subQuery)){
             String where = " WHERE ";
@@ -110,7 +130,126 @@ public class DefaultDialect {
         return fullQuery;
     }
    
+    /**
+     * Produces a condition selecting rows that follow a given row in order of key columns, used for keyset
+     * (seek) pagination. For instance, for columns <code>last_name, id</code> in ascending order it generates:
+     * <pre>
+     * (last_name >= ? AND (last_name > ? OR (last_name = ? AND id > ?)))
+     * </pre>
+     * The redundant leading comparison lets databases use an index on the first key column.
+     *
+     * @param columns key columns, as they appear in the order by clause.
+     * @param descending true for columns sorted in descending order.
+     * @param values values of key columns of the last row of a previous page, cannot be null.
+     * @param params bind parameters of the generated condition are added to this list.
+     * @return condition with bind parameters.
+     */
+    public String keysetCondition(String[] columns, boolean[] descending, Object[] values, List<Object> params) {
+        return expandedKeysetCondition(columns, descending, values, params);
+    }
+
+    /**
+     * Keyset condition with comparisons of single columns only, supported by all databases.
+     */
+    protected final String expandedKeysetCondition(String[] columns, boolean[] descending, Object[] values, List<Object> params) {
+        StringBuilder sb = new StringBuilder("(").append(columns[0]).append(descending[0] ? " <= ?" : " >= ?").append(" AND (");
+        params.add(values[0]);
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sb.append(" OR ");
+            }
+            sb.append('(');
+            for (int j = 0; j < i; j++) {
+                sb.append(columns[j]).append(" = ? AND ");
+                params.add(values[j]);
+            }
+            sb.append(columns[i]).append(descending[i] ? " < ?" : " > ?").append(')');
+            params.add(values[i]);
+        }
+        return sb.append("))").toString();
+    }
+
+    /**
+     * @param columns columns to select, can be null.
+     * @return comma-separated list of columns, or <code>*</code> if columns are null.
+     */
+    protected String columnList(String[] columns) {
+        return columns == null ? "*" : Util.join(columns, ", ");
+    }
+
+    /**
+     * Tells if a database supports window functions, such as <code>COUNT(*) OVER()</code>.
+     *
+     * @return true if window functions are supported.
+     */
+    public boolean supportsWindowFunctions() {
+        return false;
+    }
+
+    /**
+     * Generates a select of all columns of a table, where every row also has a total count of selected rows.
+     * Used only if {@link #supportsWindowFunctions()} returns true.
+     *
+     * @param table name of table.
+     * @param subQuery sub-query, something like: "name = ? and ssn = ?". It can be null to select all rows.
+     * @param countLabel label of a column with the total count.
+     * @return select query.
+     */
+    public String selectStarWithTotalCount(String table, String subQuery, String countLabel) {
+        String sql = "SELECT " + table + ".*, COUNT(*) OVER() AS " + countLabel + " FROM " + table;
+        return Util.blank(subQuery) ? sql : sql + " WHERE " + subQuery;
+    }
+
    public Object overrideDriverTypeConversion(MetaModel mm, String attributeName, Object value) {
 	   return value;
    }
+
+    /**
+     * Creates a prepared statement for a select query whose result set may be too large to keep in memory.
+     * Dialects override {@link #setStreamingFetchSize(Statement, int)} to make their drivers read rows from
+     * the database as they are needed instead of buffering the whole result set.
+     *
+     * @param connection connection to use.
+     * @param query select query.
+     * @param fetchSize fetch size configured by property <code>fetchSize</code>, 0 if not configured.
+     * @return new prepared statement.
+     * @throws SQLException if driver fails to create a statement.
+     */
+    public PreparedStatement createStreamingPreparedStatement(Connection connection, String query, int fetchSize) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(query);
+        setStreamingFetchSize(ps, fetchSize);
+        return ps;
+    }
+
+    /**
+     * Same as {@link #createStreamingPreparedStatement(Connection, String, int)}, but for queries without parameters.
+     */
+    public Statement createStreamingStatement(Connection connection, int fetchSize) throws SQLException {
+        Statement s = connection.createStatement();
+        setStreamingFetchSize(s, fetchSize);
+        return s;
+    }
+
+    /**
+     * Tells if a connection can execute other statements while a result set of a streaming statement is open.
+     * If not, {@link org.javalite.activejdbc.LazyList#cursor()} cannot load includes.
+     *
+     * @return true if other statements can be executed while streaming.
+     */
+    public boolean supportsQueriesWhileStreaming() {
+        return true;
+    }
+
+    /**
+     * Sets a fetch size on a statement used for streaming. By default only sets configured fetch size, if any.
+     *
+     * @param statement statement to configure.
+     * @param fetchSize configured fetch size, 0 if not configured.
+     * @throws SQLException if driver does not accept this fetch size.
+     */
+    protected void setStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+    }
 }
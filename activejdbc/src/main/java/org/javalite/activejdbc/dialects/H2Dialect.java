@@ -3,6 +3,10 @@
  */
 package org.javalite.activejdbc.dialects;
 
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
 /**
  * Supports features of the h2 sql dialect.
  * 
@@ -14,4 +18,29 @@ package org.javalite.activejdbc.dialects;
  */
 public class H2Dialect extends PostgreSQLDialect {
 
+    /**
+     * H2 does not need cursor settings of PostgreSQL, uses configured fetch size only.
+     */
+    @Override
+    protected void setStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+        if (fetchSize > 0) {
+            statement.setFetchSize(fetchSize);
+        }
+    }
+
+    /**
+     * H2 does not support row value comparisons, uses condition of {@link DefaultDialect}.
+     */
+    @Override
+    public String keysetCondition(String[] columns, boolean[] descending, Object[] values, List<Object> params) {
+        return expandedKeysetCondition(columns, descending, values, params);
+    }
+
+    /**
+     * Window functions are only available in recent versions of H2.
+     */
+    @Override
+    public boolean supportsWindowFunctions() {
+        return false;
+    }
 }
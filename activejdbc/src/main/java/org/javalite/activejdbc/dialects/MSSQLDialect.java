@@ -15,6 +15,7 @@ public class MSSQLDialect extends DefaultDialect {
      *
      * @param tableName name of table. If table name is null, then the subQuery parameter is considered to be a full query, and all that needs to be done is to
      * add limit, offset and order bys
+     * @param columns columns to select, null to select all columns
      * @param subQuery sub-query or a full query
      * @param orderBys
      * @param limit
@@ -22,7 +23,7 @@ public class MSSQLDialect extends DefaultDialect {
      * @return query with
      */
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String[] columns, String subQuery, List<String> orderBys, long limit, long offset) {
         boolean needLimit = limit != -1;
         boolean needOffset = offset != -1;
         
@@ -33,7 +34,7 @@ public class MSSQLDialect extends DefaultDialect {
         limit = (offset == -1 ? limit : offset + limit);
         offset += 1; //T-SQL offset starts with 1, not like MySQL with 0;
 
-        String fullQuery = createBaseQuery(tableName, subQuery, needOffset);
+        String fullQuery = createBaseQuery(tableName, columns, subQuery, needOffset);
 
         fullQuery = addOderBys(orderBys, needOffset, fullQuery);
 
@@ -57,13 +58,13 @@ public class MSSQLDialect extends DefaultDialect {
     	}
     }
 
-    private String createBaseQuery(String tableName, String subQuery,
+    private String createBaseQuery(String tableName, String[] columns, String subQuery,
 			boolean needOffset) {
 		String fullQuery;
 		if (tableName == null) {//table is in the sub-query already
             fullQuery = subQuery;
         } else {
-            fullQuery = needOffset ? " * FROM " + tableName + " " : "SELECT {LIMIT} * FROM " + tableName;
+            fullQuery = needOffset ? " " + columnList(columns) + " FROM " + tableName + " " : "SELECT {LIMIT} " + columnList(columns) + " FROM " + tableName;
             fullQuery = addSubQuery(subQuery, fullQuery);
         }
 		return fullQuery;
@@ -107,4 +108,8 @@ public class MSSQLDialect extends DefaultDialect {
 		return fullQuery;
 	}
 
+    @Override
+    public boolean supportsWindowFunctions() {
+        return true;
+    }
 }
@@ -17,19 +17,72 @@ limitations under the License.
 
 package org.javalite.activejdbc.dialects;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 /**
  * @author Igor Polevoy
  */
 public class MySQLDialect extends PostgreSQLDialect{
+
+    /**
+     * MySQL driver streams rows one by one only for forward only, read only statements with fetch size of
+     * <code>Integer.MIN_VALUE</code>, any other fetch size is ignored and the whole result set is loaded into memory.
+     */
+    @Override
+    public PreparedStatement createStreamingPreparedStatement(Connection connection, String query, int fetchSize) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        setStreamingFetchSize(ps, fetchSize);
+        return ps;
+    }
+
+    @Override
+    public Statement createStreamingStatement(Connection connection, int fetchSize) throws SQLException {
+        Statement s = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        setStreamingFetchSize(s, fetchSize);
+        return s;
+    }
+
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    protected void setStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+        statement.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * MySQL driver refuses any statement on a connection until a streaming result set is read to the end or closed.
+     */
+    @Override
+    public boolean supportsQueriesWhileStreaming() {
+        return false;
+    }
+
+    @Override
+    public String formSelect(String tableName, String[] columns, String subQuery, List<String> orderBys, long limit, long offset) {
 
         if(limit == -1 && offset != -1){
             throw new IllegalArgumentException("MySQL does not support OFFSET without LIMIT. OFFSET is a parameter of LIMIT function");
         }
 
-        return super.formSelect(tableName, subQuery, orderBys, limit, offset);
+        return super.formSelect(tableName, columns, subQuery, orderBys, limit, offset);
+    }
+
+    /**
+     * MySQL does not use indexes for row value comparisons in older versions, uses condition of {@link DefaultDialect}.
+     */
+    @Override
+    public String keysetCondition(String[] columns, boolean[] descending, Object[] values, List<Object> params) {
+        return expandedKeysetCondition(columns, descending, values, params);
+    }
+
+    /**
+     * Window functions are only available since MySQL 8.
+     */
+    @Override
+    public boolean supportsWindowFunctions() {
+        return false;
     }
 }
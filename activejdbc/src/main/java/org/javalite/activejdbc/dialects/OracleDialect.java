@@ -19,6 +19,8 @@ package org.javalite.activejdbc.dialects;
 
 import org.javalite.common.Util;
 
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 /**
@@ -26,6 +28,14 @@ import java.util.List;
  */
 public class OracleDialect extends DefaultDialect {
 
+    //Oracle driver fetches only 10 rows per round trip by default
+    private static final int DEFAULT_FETCH_SIZE = 500;
+
+    @Override
+    protected void setStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+        statement.setFetchSize(fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
+    }
+
     /**
      * Example of a query we are building here:
      *
@@ -35,6 +45,7 @@ public class OracleDialect extends DefaultDialect {
      *
      * @param tableName name of table. If table name is null, then the subQuery parameter is considered to be a full query, and all that needs to be done is to
      * add limit, offset and order bys
+     * @param columns columns to select, null to select all columns.
      * @param subQuery sub query, something like: "name = ? and ssn = ?". It can be blank: "" or null;
      * @param orderBys collection of order by: "dob desc" - one example
      * @param limit limit value, -1 if not needed.
@@ -44,7 +55,7 @@ public class OracleDialect extends DefaultDialect {
      * <code>SELECT * FROM ( SELECT t2.*, ROWNUM as rn FROM ( SELECT t.* FROM PAGES t  WHERE <conditions> order by id ) t2) WHERE rn >= 20 AND rownum <= 10;</code>
      * Can't think of an uglier thing. Shame on you, Oracle.
      */
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String[] columns, String subQuery, List<String> orderBys, long limit, long offset) {
 
         boolean needLimit = limit != -1;
         boolean needOffset = offset != -1;
@@ -55,7 +66,7 @@ public class OracleDialect extends DefaultDialect {
         if (tableName == null) {//table is in teh sub-query already
             fullQuery = subQuery;
         } else {
-            fullQuery = needLimit || needOffset ? "SELECT t.* FROM " + tableName + " t " : "SELECT * FROM " + tableName;
+            fullQuery = needLimit || needOffset ? "SELECT " + (columns == null ? "t.*" : columnList(columns)) + " FROM " + tableName + " t " : "SELECT " + columnList(columns) + " FROM " + tableName;
             if (!Util.blank(subQuery)) {
                 String where = " WHERE ";
                 //this is only to support findFirst("order by..."), might need to revisit later
@@ -87,4 +98,9 @@ public class OracleDialect extends DefaultDialect {
 
         return fullQuery;
     }
+
+    @Override
+    public boolean supportsWindowFunctions() {
+        return true;
+    }
 }
@@ -2,16 +2,50 @@ package org.javalite.activejdbc.dialects;
 
 import org.javalite.common.Util;
 
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 
 public class PostgreSQLDialect extends DefaultDialect {
 
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * PostgreSQL driver reads rows with a server side cursor only if fetch size is positive, statement is forward
+     * only and connection is not in auto commit mode, otherwise the whole result set is loaded into memory.
+     * Use a transaction, for instance {@link org.javalite.activejdbc.Base#openTransaction()}, to stream large results.
+     */
+    @Override
+    protected void setStreamingFetchSize(Statement statement, int fetchSize) throws SQLException {
+        statement.setFetchSize(fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Uses a row value comparison, such as <code>(last_name, id) > (?, ?)</code>, if all key columns are sorted in
+     * the same direction. PostgreSQL can seek a composite index for this condition directly.
+     */
+    @Override
+    public String keysetCondition(String[] columns, boolean[] descending, Object[] values, List<Object> params) {
+        for (boolean desc : descending) {
+            if (desc != descending[0]) {
+                return super.keysetCondition(columns, descending, values, params);
+            }
+        }
+        String[] questions = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            questions[i] = "?";
+            params.add(values[i]);
+        }
+        return "(" + Util.join(columns, ", ") + ")" + (descending[0] ? " < " : " > ") + "(" + Util.join(questions, ", ") + ")";
+    }
+
     /**
      * Generates adds limit, offset and order bys to a sub-query
      *
      * @param tableName name of table. If table name is null, then the subQuery parameter is considered to be a full query, and all that needs to be done is to
      * add limit, offset and order bys
+     * @param columns columns to select, null to select all columns
      * @param subQuery sub-query or a full query
      * @param orderBys
      * @param limit
@@ -19,13 +53,13 @@ public class PostgreSQLDialect extends DefaultDialect {
      * @return query with
      */
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String[] columns, String subQuery, List<String> orderBys, long limit, long offset) {
       
         String fullQuery;
         if (tableName == null){
             fullQuery = subQuery;
         } else {
-            fullQuery = "SELECT  * FROM " + tableName;
+            fullQuery = "SELECT  " + columnList(columns) + " FROM " + tableName;
             if (!Util.blank(subQuery)) {
                 String where = " WHERE ";
 
@@ -51,4 +85,9 @@ public class PostgreSQLDialect extends DefaultDialect {
 
         return fullQuery;
     }
+
+    @Override
+    public boolean supportsWindowFunctions() {
+        return true;
+    }
 }
@@ -21,6 +21,7 @@ import org.javalite.activejdbc.Base;
 import org.javalite.activejdbc.RowListenerAdapter;
 import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.List;
 
@@ -94,4 +95,28 @@ public class BaseTest extends ActiveJDBCTest {
     public void testCount(){
         a(Base.count("people")).shouldBeEqual(4);
     }
+
+    @Test
+    public void testFindWithIndexedRowListener(){
+
+        final List<Object> names = new ArrayList<Object>();
+        Base.find("select id, NAME, last_name from people where id > ? order by id", 1).with(new IndexedRowListener() {
+            public boolean next(IndexedRow row) {
+                a(row.size()).shouldBeEqual(3);
+                a(row.getLabel(1)).shouldBeEqual("name");
+                a(row.get(1)).shouldBeEqual(row.get("NAME"));
+                a(row.toMap().get("last_name")).shouldBeEqual(row.get(2));
+                names.add(row.get(1));
+                return names.size() < 2;
+            }
+        });
+        a(names.size()).shouldBeEqual(2);
+        a(names.get(0)).shouldBeEqual("Leylah");
+    }
+
+    @Test
+    public void testFirstCell(){
+        a(Base.firstCell("select name from people where id = ?", 1)).shouldBeEqual("John");
+        a(Base.firstCell("select name from people where id = ?", 100)).shouldBeNull();
+    }
 }
@@ -0,0 +1,75 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.CacheStatistics;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * @author Igor Polevoy
+ */
+public class CacheStatisticsTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldCountHitsMissesAndPurges() {
+        deleteAndPopulateTable("people");
+        Person.purgeCache();
+        CacheStatistics statistics = QueryCache.instance().getStatistics("people");
+        a(statistics.getTable()).shouldBeEqual(Person.getTableName());
+        statistics.reset();
+
+        a(Person.findAll().size()).shouldBeEqual(4);
+        a(statistics.getMisses()).shouldBeEqual(1L);
+        a(statistics.getLoads()).shouldBeEqual(1L);
+        a(statistics.getPuts()).shouldBeEqual(1L);
+        a(statistics.getHits()).shouldBeEqual(0L);
+
+        a(Person.findAll().size()).shouldBeEqual(4);
+        a(Person.findAll().size()).shouldBeEqual(4);
+        a(statistics.getHits()).shouldBeEqual(2L);
+        a(statistics.getMisses()).shouldBeEqual(1L);
+        a(statistics.getHitRatio() > 0.6).shouldBeTrue();
+
+        Person.purgeCache();
+        a(statistics.getPurges()).shouldBeEqual(1L);
+        a(Person.findAll().size()).shouldBeEqual(4);
+        a(statistics.getMisses()).shouldBeEqual(2L);
+
+        a(QueryCache.instance().getStatistics().get("people")).shouldBeTheSameAs(statistics);
+        statistics.reset();
+        a(statistics.getHits()).shouldBeEqual(0L);
+    }
+
+    @Test
+    public void shouldRegisterMBeans() throws Exception {
+        Person.findAll().size();
+        QueryCache.instance().registerMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.javalite.activejdbc:type=QueryCache,table=people");
+        a(server.isRegistered(name)).shouldBeTrue();
+        a(server.getAttribute(name, "Table")).shouldBeEqual("people");
+        a(server.getAttribute(name, "Hits") instanceof Long).shouldBeTrue();
+    }
+}
@@ -26,6 +26,8 @@ import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.javalite.activejdbc.test_models.*;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -87,14 +89,58 @@ public class CacheTest extends ActiveJDBCTest {
 
         a(p1).shouldBeTheSameAs(Person.findById(1));
 
-        //now, let's save a new person - this will blow away cache. 
+        //rows are purged one by one, a new person does not affect cached rows
         new Person().set("name", "Ron").set("last_name", "Smith").set("dob", "1946-11-04").saveIt();
+        a(p1).shouldBeTheSameAs(Person.findById(1));
+
+        //neither does an update of another person
+        Person p2 = Person.findById(2);
+        p2.set("last_name", "Smithers").saveIt();
+        a(p1).shouldBeTheSameAs(Person.findById(1));
+        a(p2).shouldNotBeTheSameAs(Person.findById(2));
+
+        //update of this person purges it
+        Person.findById(1).set("last_name", "Johnson").saveIt();
         a(p1).shouldNotBeTheSameAs(Person.findById(1));
+        a(Person.findById(1).get("last_name")).shouldBeEqual("Johnson");
 
         //cleanup:
         Person.delete("last_name = ? and name = ?", "Smith", "Ron");
     }
 
+    @Test
+    public void shouldPurgeListsWhenRowIsWritten(){
+        List<Person> people = Person.where("name like ?", "%3%");
+        people.size();
+        List<Person> people1 = Person.where("name like ?", "%3%");
+        a(people1.get(0)).shouldBeTheSameAs(people.get(0));
+
+        Person.findById(1).set("last_name", "Johnson").saveIt();
+
+        List<Person> people2 = Person.where("name like ?", "%3%");
+        a(people2.get(0)).shouldNotBeTheSameAs(people.get(0));
+    }
+
+    @Test
+    public void shouldPurgeOnlyQueriesDependingOnWrittenTable(){
+        deleteAndPopulateTables("libraries", "books");
+        List<Library> libraries = Library.findAll();
+        libraries.size();
+        List<Library> librariesWithBooks = Library.findAll().include(Book.class);
+        librariesWithBooks.size();
+
+        a(Library.findAll().get(0)).shouldBeTheSameAs(libraries.get(0));
+        a(Library.findAll().include(Book.class).get(0)).shouldBeTheSameAs(librariesWithBooks.get(0));
+
+        //books are not cached, but lists of libraries which include them depend on them
+        Book.createIt("title", "Ulysses", "author", "James Joyce", "isbn", "12345", "lib_id", libraries.get(0).getId());
+
+        a(Library.findAll().get(0)).shouldBeTheSameAs(libraries.get(0));
+        List<Library> librariesWithBooks1 = Library.findAll().include(Book.class);
+        a(librariesWithBooks1.get(0)).shouldNotBeTheSameAs(librariesWithBooks.get(0));
+        a(librariesWithBooks1.get(0).getAll(Book.class).size()).shouldBeEqual(librariesWithBooks.get(0).getAll(Book.class).size() + 1);
+    }
+
     @Test
     public void testCount(){
 
@@ -124,8 +170,13 @@ public class CacheTest extends ActiveJDBCTest {
 
         a(l1 == b.parent(Library.class)).shouldBeTrue();
 
-        //let's blow away cache
+        //a new library does not affect cached parent
         new Library().set("address", "123 Pirate Street").set("city", "Bloomington").set("state", "CA").saveIt();
+        a(l1 == b.parent(Library.class)).shouldBeTrue();
+        a(l1 == Library.findById(b.get("lib_id"))).shouldBeTrue();
+
+        //update of the parent purges it
+        l1.set("city", "Bloomington Heights").saveIt();
         a(l1 == b.parent(Library.class)).shouldBeFalse();
     }
 
@@ -153,24 +204,27 @@ public class CacheTest extends ActiveJDBCTest {
         a(queryStats.get(0).getCount()).shouldEqual(1);
     }
 
-    int count = 0;
     @Test
     public void shouldNotPropagateCacheEventForNonCachedModels(){
 
+        final List<String> groups = new ArrayList<String>();
         CacheEventListener cl = new CacheEventListener() {
             public void onFlush(CacheEvent event) {
-                count++;
+                groups.add(event.getGroup());
             }
         };
 
         QueryCache.instance().getCacheManager().addCacheEventListener(cl);
         Person.deleteAll();
-        a(count).shouldBeEqual(1);
+        //groups of people and of its rows, other groups are queries cached by other tests which read people
+        a(Collections.frequency(groups, "people")).shouldBeEqual(1);
+        a(Collections.frequency(groups, "people#")).shouldBeEqual(1);
+        int personEvents = groups.size();
 
 
         Account.deleteAll();
 
-        a(count).shouldBeEqual(1);
+        a(groups.size()).shouldBeEqual(personEvents);
 
     }
 
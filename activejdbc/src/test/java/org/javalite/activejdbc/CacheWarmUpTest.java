@@ -0,0 +1,97 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+
+/**
+ * @author Igor Polevoy
+ */
+public class CacheWarmUpTest extends ActiveJDBCTest {
+
+    private static CacheWarmUp warmUp() {
+        return new CacheWarmUp(new ConnectionJdbcSpec(driver(), url(), user(), password()))
+                .add(Person.findAll().orderBy("id"))
+                .add(Person.where("name = ?", "John"));
+    }
+
+    private static Object cached(LazyList<Person> list) {
+        return QueryCache.instance().getItem("people", list.toSql(false), list.getParams(), list.dependencies());
+    }
+
+    @Test
+    public void shouldWarmUpFromDatabaseAndSnapshot() throws SQLException, InterruptedException, IOException {
+        deleteAndPopulateTable("people");
+        //warm up uses other connections
+        Base.connection().commit();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        File snapshot = File.createTempFile("cache", ".snapshot");
+        snapshot.delete();
+        try {
+            Person.purgeCache();
+            CacheWarmUp warmUp = warmUp();
+            warmUp.warmUp(snapshot, executor);
+            a(warmUp.getLoadedCount()).shouldBeEqual(2);
+            a(warmUp.getRestoredCount()).shouldBeEqual(0);
+            a(((List) cached(Person.findAll().orderBy("id"))).size()).shouldBeEqual(4);
+
+            warmUp.save(snapshot);
+            a(snapshot.exists()).shouldBeTrue();
+
+            //restart with unchanged table
+            Person.purgeCache();
+            a(cached(Person.findAll().orderBy("id"))).shouldBeNull();
+            warmUp = warmUp();
+            warmUp.warmUp(snapshot, executor);
+            a(warmUp.getRestoredCount()).shouldBeEqual(2);
+            a(warmUp.getLoadedCount()).shouldBeEqual(0);
+            List<Person> people = (List<Person>) cached(Person.findAll().orderBy("id"));
+            a(people.size()).shouldBeEqual(4);
+            a(people.get(0).get("name")).shouldBeEqual("John");
+
+            //restart after table changed
+            Person.createIt("name", "Matt", "last_name", "Diamont", "dob", "1962-01-01");
+            Base.connection().commit();
+            Person.purgeCache();
+            warmUp = warmUp();
+            warmUp.warmUp(snapshot, executor);
+            a(warmUp.getRestoredCount()).shouldBeEqual(0);
+            a(warmUp.getLoadedCount()).shouldBeEqual(2);
+            a(((List) cached(Person.findAll().orderBy("id"))).size()).shouldBeEqual(5);
+        } finally {
+            executor.shutdown();
+            snapshot.delete();
+            //committed rows are not rolled back after the test
+            deleteFromTable("people");
+            Base.connection().commit();
+            Person.purgeCache();
+        }
+    }
+}
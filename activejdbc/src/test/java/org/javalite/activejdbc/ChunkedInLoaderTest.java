@@ -0,0 +1,75 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Igor Polevoy
+ */
+public class ChunkedInLoaderTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldPadChunksToPowerOfTwo() {
+        a(ChunkedInLoader.arity(1, 500)).shouldBeEqual(1);
+        a(ChunkedInLoader.arity(3, 500)).shouldBeEqual(4);
+        a(ChunkedInLoader.arity(300, 500)).shouldBeEqual(500);
+
+        List<Object[]> chunks = ChunkedInLoader.chunks(Arrays.asList(1, 2, 2, null, 3, 4, 5), 4);
+        a(chunks.size()).shouldBeEqual(2);
+        a(Arrays.asList(chunks.get(0))).shouldBeEqual(Arrays.asList(1, 2, 3, 4));
+        a(Arrays.asList(chunks.get(1))).shouldBeEqual(Arrays.asList(5));
+
+        a(ChunkedInLoader.placeholders(3)).shouldBeEqual("(?, ?, ?)");
+    }
+
+    @Test
+    public void shouldLoadAllChunksWithBindParameters() {
+        deleteAndPopulateTable("people");
+        List<Object> ids = new ArrayList<Object>();
+        List<Person> all = Person.findAll();
+        for (Person p : all) {
+            ids.add(p.getId());
+        }
+        final List<String> queries = new ArrayList<String>();
+        List<Person> people = new ChunkedInLoader("default", 3, null, null).load(ids, new ChunkedInLoader.ChunkQuery<Person>() {
+            public List<Person> run(String in, Object[] keys) {
+                queries.add(in);
+                return new ArrayList<Person>(Person.<Person>where("id IN " + in, keys));
+            }
+        });
+        a(people.size()).shouldBeEqual(ids.size());
+        a(queries).shouldBeEqual(Arrays.asList("(?, ?, ?)", "(?)"));
+    }
+
+    @Test
+    public void shouldLoadNothingForNoKeys() {
+        List<Person> people = new ChunkedInLoader("default", 3, null, null).load(new ArrayList(), new ChunkedInLoader.ChunkQuery<Person>() {
+            public List<Person> run(String in, Object[] keys) {
+                throw new IllegalStateException("must not run");
+            }
+        });
+        a(people.size()).shouldBeEqual(0);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.javalite.common.Collections.list;
+
+public class CompactAttributesTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldBehaveLikeHashMap() {
+        CompactAttributes attributes = new CompactAttributes(new CompactAttributes.Layout(list("id", "name", "last_name")));
+        Map<String, Object> expected = new HashMap<String, Object>();
+        for (Map<String, Object> map : Arrays.<Map<String, Object>>asList(attributes, expected)) {
+            map.put("id", 1);
+            map.put("name", null);
+            map.put("NAME", "John");
+            map.put("dob", "1934-12-01");
+        }
+        a(attributes).shouldBeEqual(expected);
+        a(attributes.size()).shouldBeEqual(4);
+        a(attributes.containsKey("name")).shouldBeTrue();
+        a(attributes.containsKey("last_name")).shouldBeFalse();
+        a(attributes.get("NAME")).shouldBeEqual("John");
+        a(attributes.hashCode()).shouldBeEqual(expected.hashCode());
+
+        a(attributes.remove("id")).shouldBeEqual(1);
+        a(attributes.remove("id")).shouldBeNull();
+        a(attributes.size()).shouldBeEqual(3);
+        a(attributes.keySet()).shouldBeEqual(new HashSet<String>(list("name", "NAME", "dob")));
+
+        Iterator<String> keys = attributes.keySet().iterator();
+        while (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+        a(attributes.isEmpty()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldUseCompactAttributesForLoadedModels() {
+        deleteAndPopulateTable("people");
+        Person p = (Person) Person.findById(1);
+        a(p.getAttributes() instanceof CompactAttributes).shouldBeTrue();
+        a(p.get("name")).shouldBeEqual("John");
+
+        p.set("name", "Jim");
+        a(p.get("name")).shouldBeEqual("Jim");
+        a(p.errors().size()).shouldBeEqual(0);
+        a(p.toMap().get("last_name")).shouldBeEqual("Smith");
+    }
+}
@@ -0,0 +1,58 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class HydrationPlanTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldHydrateSameAsFromMap() {
+        deleteAndPopulateTable("people");
+        List<Person> people = Person.findAll().orderBy("id");
+        List<Map> rows = Base.findAll("SELECT * FROM people ORDER BY id");
+
+        a(people.size()).shouldBeEqual(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Model fromMap = Model.instance(rows.get(i), Person.getMetaModel());
+            a(people.get(i).toMap()).shouldBeEqual(fromMap.toMap());
+        }
+    }
+
+    @Test
+    public void shouldSetMissingAttributesToNull() {
+        deleteAndPopulateTable("people");
+        Person p = (Person) Person.findBySQL("SELECT id, name FROM people WHERE id = ?", 1).get(0);
+        a(p.get("name")).shouldBeEqual("John");
+        a(p.get("last_name")).shouldBeNull();
+        a(p.getAttributes().containsKey("last_name")).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldReusePlanForSameColumns() {
+        MetaModel metaModel = Person.getMetaModel();
+        HydrationPlan plan = metaModel.getHydrationPlan(new String[]{"id", "name"});
+        a(metaModel.getHydrationPlan(new String[]{"id", "name"})).shouldBeTheSameAs(plan);
+        a(metaModel.getHydrationPlan(new String[]{"id", "last_name"})).shouldNotBeTheSameAs(plan);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.annotations.Cached;
+import org.javalite.activejdbc.cache.CacheEvent;
+import org.javalite.activejdbc.cache.InMemoryCacheManager;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+
+import static org.javalite.test.jspec.JSpec.a;
+
+/**
+ * @author Igor Polevoy
+ */
+public class InMemoryCacheManagerTest {
+
+    private static InMemoryCacheManager manager(final int maxEntries, final long ttl) {
+        return new InMemoryCacheManager() {
+            @Override
+            protected Cached settings(String group) {
+                return new Cached() {
+                    public int maxEntries() { return maxEntries; }
+                    public long maxBytes() { return 0; }
+                    public long ttl() { return ttl; }
+                    public long softTtl() { return 0; }
+                    public Class<? extends Annotation> annotationType() { return Cached.class; }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void shouldFlushGroupsAndAll() {
+        InMemoryCacheManager manager = manager(100, 0);
+        manager.addCache("people", "q1", "people1");
+        manager.addCache("addresses", "q1", "addresses1");
+        a(manager.getCache("people", "q1")).shouldBeEqual("people1");
+
+        manager.flush(new CacheEvent("people", "test"));
+        a(manager.getCache("people", "q1")).shouldBeNull();
+        a(manager.getCache("addresses", "q1")).shouldBeEqual("addresses1");
+
+        manager.addCache("people", "q1", "people2");
+        a(manager.getCache("people", "q1")).shouldBeEqual("people2");
+
+        manager.flush(CacheEvent.ALL);
+        a(manager.getCache("people", "q1")).shouldBeNull();
+        a(manager.getCache("addresses", "q1")).shouldBeNull();
+        a(manager.size("addresses")).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        InMemoryCacheManager manager = manager(3, 0);
+        manager.addCache("people", "q1", 1);
+        manager.addCache("people", "q2", 2);
+        manager.addCache("people", "q3", 3);
+        manager.getCache("people", "q1");
+        manager.addCache("people", "q4", 4);
+
+        a(manager.size("people")).shouldBeEqual(3);
+        a(manager.getCache("people", "q2")).shouldBeNull();
+        a(manager.getCache("people", "q1")).shouldBeEqual(1);
+        a(manager.getCache("people", "q4")).shouldBeEqual(4);
+        a(manager.getEntryCount("people")).shouldBeEqual(3);
+        a(manager.getEvictionCount("people")).shouldBeEqual(1L);
+        a(manager.getEstimatedBytes("people")).shouldBeEqual(-1L);
+    }
+
+    @Test
+    public void shouldExpireEntries() throws InterruptedException {
+        InMemoryCacheManager manager = manager(100, 1);
+        manager.addCache("people", "q1", 1);
+        a(manager.getCache("people", "q1")).shouldBeEqual(1);
+        Thread.sleep(1100);
+        a(manager.getCache("people", "q1")).shouldBeNull();
+    }
+}
@@ -170,4 +170,52 @@ public class IncludesTest extends ActiveJDBCTest{
     public void shouldRejectClassWithNoAssociation(){
         Ingredient.findAll().include(Article.class);
     }
+
+    @Test
+    public void shouldIncludeChildrenOfChildren(){
+        deleteAndPopulateTables("libraries", "books", "readers");
+        List<Library> libraries = Library.findAll().orderBy("id").include(Include.model(Book.class).with(Reader.class));
+
+        List<Book> books = libraries.get(0).getAll(Book.class);
+        a(books.size()).shouldBeEqual(2);
+
+        List<Reader> readers = books.get(0).getAll(Reader.class);
+        a(readers.size()).shouldBeEqual(2);
+        a(readers.get(0).get("last_name")).shouldBeEqual("Smith");
+        a(books.get(1).getAll(Reader.class).get(0).get("last_name")).shouldBeEqual("Polevoy");
+
+        //ensure cached:
+        a(readers).shouldBeTheSameAs(books.get(0).getAll(Reader.class));
+    }
+
+    @Test
+    public void shouldIncludeParentsOfParents(){
+        deleteAndPopulateTables("libraries", "books", "readers");
+        List<Reader> readers = Reader.findAll().orderBy("id").include(Include.model(Book.class).with(Library.class));
+
+        Book book = readers.get(0).parent(Book.class);
+        a(book).shouldBeTheSameAs(readers.get(0).parent(Book.class));
+
+        Library library = book.parent(Library.class);
+        a(library.get("address")).shouldBeEqual("124 Pine Street");
+        a(library).shouldBeTheSameAs(book.parent(Library.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNestedClassWithNoAssociation(){
+        Library.findAll().include(Include.model(Book.class).with(Article.class));
+    }
+
+    @Test
+    public void shouldBatchParentLookups(){
+        deleteAndPopulateTables("users", "addresses");
+        List<Address> addresses = Address.findAll().orderBy("id").batchParents();
+
+        User user = addresses.get(0).parent(User.class);
+        a(user.get("first_name")).shouldBeEqual("Marilyn");
+
+        //loaded by the first lookup, shared by siblings:
+        a(addresses.get(1).parent(User.class)).shouldBeTheSameAs(user);
+        a(addresses.get(6).parent(User.class).get("first_name")).shouldBeEqual("John");
+    }
 }
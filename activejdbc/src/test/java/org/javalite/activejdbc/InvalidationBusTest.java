@@ -0,0 +1,287 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.javalite.test.jspec.JSpec.a;
+
+/**
+ * @author Igor Polevoy
+ */
+public class InvalidationBusTest {
+
+    private static CacheManager manager() {
+        return new OffHeapCacheManager(1024 * 1024, 64 * 1024);
+    }
+
+    private static void waitFor(CacheManager manager, String group, String key) throws InterruptedException {
+        for (int i = 0; i < 200 && manager.getCache(group, key) != null; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Keeps messages to deliver them explicitly.
+     */
+    private static class RecordingTransport implements InvalidationTransport {
+        private final List<byte[]> messages = new ArrayList<byte[]>();
+        private Receiver receiver;
+
+        public void start(Receiver receiver) {
+            this.receiver = receiver;
+        }
+
+        public synchronized void send(byte[] message) {
+            messages.add(message);
+        }
+
+        public int getMaxMessageSize() {
+            return 1400;
+        }
+
+        public void close() {}
+
+        synchronized List<byte[]> messages() {
+            return new ArrayList<byte[]>(messages);
+        }
+    }
+
+    @Test
+    public void shouldPropagatePurges() throws IOException, InterruptedException {
+        CacheManager managerA = manager(), managerB = manager();
+        InvalidationBus busA = new InvalidationBus(managerA, new LoopbackTransport("propagate"), 0);
+        InvalidationBus busB = new InvalidationBus(managerB, new LoopbackTransport("propagate"), 0);
+        busA.start();
+        busB.start();
+        try {
+            managerB.addCache("people", "q1", "people1");
+            managerB.addCache("people#", "people#1", "row1");
+            managerB.addCache("addresses", "q2", "addresses1");
+
+            managerA.flush(new CacheEvent("people#", "people#1", "test"));
+            waitFor(managerB, "people#", "people#1");
+            a(managerB.getCache("people#", "people#1")).shouldBeNull();
+            a(managerB.getCache("people", "q1")).shouldBeEqual("people1");
+
+            managerA.flush(new CacheEvent("people", "test"));
+            waitFor(managerB, "people", "q1");
+            a(managerB.getCache("people", "q1")).shouldBeNull();
+            a(managerB.getCache("addresses", "q2")).shouldBeEqual("addresses1");
+
+            managerA.flush(CacheEvent.ALL);
+            waitFor(managerB, "addresses", "q2");
+            a(managerB.getCache("addresses", "q2")).shouldBeNull();
+
+            //purges applied from another node are not sent back
+            Thread.sleep(50);
+            a(busB.getSentCount()).shouldBeEqual(0L);
+        } finally {
+            busA.close();
+            busB.close();
+        }
+    }
+
+    @Test
+    public void shouldCoalesceBurstsOfPurges() throws IOException, InterruptedException {
+        CacheManager manager = manager();
+        RecordingTransport transport = new RecordingTransport();
+        InvalidationBus bus = new InvalidationBus(manager, transport, 100, 0);
+        bus.start();
+        for (int i = 0; i < 100; i++) {
+            manager.flush(new CacheEvent("people", "test"));
+            manager.flush(new CacheEvent("people#", "people#" + i, "test"));
+        }
+        //purges of rows are dropped, since the whole group is purged
+        manager.flush(new CacheEvent("people#", "test"));
+        bus.close();
+
+        a(bus.getSentCount()).shouldBeEqual(1L);
+        a(transport.messages().size()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldIgnoreDuplicatesAndPurgeAllOnLostMessages() throws IOException, InterruptedException {
+        CacheManager managerA = manager(), managerB = manager();
+        RecordingTransport transportA = new RecordingTransport(), transportB = new RecordingTransport();
+        InvalidationBus busA = new InvalidationBus(managerA, transportA, 0, 0);
+        InvalidationBus busB = new InvalidationBus(managerB, transportB, 0, 0);
+        busA.start();
+        busB.start();
+        for (int i = 1; i <= 3; i++) {
+            managerA.flush(new CacheEvent("people" + i, "test"));
+            for (int j = 0; j < 200 && transportA.messages().size() < i; j++) {
+                Thread.sleep(10);
+            }
+        }
+        List<byte[]> messages = transportA.messages();
+        a(messages.size()).shouldBeEqual(3);
+
+        managerB.addCache("addresses", "q1", "addresses1");
+        transportB.receiver.receive(messages.get(0));
+        transportB.receiver.receive(messages.get(0));
+        a(busB.getDuplicateCount()).shouldBeEqual(1L);
+        a(managerB.getCache("addresses", "q1")).shouldBeEqual("addresses1");
+
+        //second message is lost
+        transportB.receiver.receive(messages.get(2));
+        a(busB.getLostCount()).shouldBeEqual(1L);
+        a(managerB.getCache("addresses", "q1")).shouldBeNull();
+
+        busA.close();
+        busB.close();
+    }
+
+    @Test
+    public void shouldDetectLostLastMessageByHeartbeat() throws IOException, InterruptedException {
+        CacheManager managerA = manager(), managerB = manager();
+        RecordingTransport transportA = new RecordingTransport(), transportB = new RecordingTransport();
+        InvalidationBus busA = new InvalidationBus(managerA, transportA, 0, 20);
+        InvalidationBus busB = new InvalidationBus(managerB, transportB, 0, 0);
+        busA.start();
+        busB.start();
+        try {
+            List<byte[]> purges = new ArrayList<byte[]>();
+            for (int i = 1; i <= 2; i++) {
+                managerA.flush(new CacheEvent("people" + i, "test"));
+                for (int j = 0; j < 200 && purges(transportA.messages()).size() < i; j++) {
+                    Thread.sleep(10);
+                }
+                purges = purges(transportA.messages());
+            }
+            a(purges.size()).shouldBeEqual(2);
+            int sent = transportA.messages().size();
+
+            managerB.addCache("addresses", "q1", "addresses1");
+            transportB.receiver.receive(purges.get(0));
+            a(managerB.getCache("addresses", "q1")).shouldBeEqual("addresses1");
+
+            //second message is lost, and nothing else is purged on node A
+            for (int i = 0; i < 200 && busB.getLostCount() == 0; i++) {
+                Thread.sleep(10);
+                List<byte[]> messages = transportA.messages();
+                for (; sent < messages.size(); sent++) {
+                    transportB.receiver.receive(messages.get(sent));
+                }
+            }
+            a(busB.getLostCount()).shouldBeEqual(1L);
+            a(managerB.getCache("addresses", "q1")).shouldBeNull();
+            //heartbeats are not counted as messages with purges
+            a(busA.getSentCount()).shouldBeEqual(2L);
+        } finally {
+            busA.close();
+            busB.close();
+        }
+    }
+
+    @Test
+    public void shouldPurgeAllIfFirstMessagesOfNodeWereLost() throws IOException, InterruptedException {
+        CacheManager managerA = manager(), managerB = manager(), managerC = manager();
+        RecordingTransport transportA = new RecordingTransport(), transportB = new RecordingTransport(),
+                transportC = new RecordingTransport();
+        InvalidationBus busA = new InvalidationBus(managerA, transportA, 0, 20);
+        InvalidationBus busB = new InvalidationBus(managerB, transportB, 0, 0);
+        InvalidationBus busC = new InvalidationBus(managerC, transportC, 0, 0);
+        busA.start();
+        busB.start();
+        busC.start();
+        try {
+            for (int i = 1; i <= 2; i++) {
+                managerA.flush(new CacheEvent("people" + i, "test"));
+                for (int j = 0; j < 200 && purges(transportA.messages()).size() < i; j++) {
+                    Thread.sleep(10);
+                }
+            }
+            List<byte[]> purges = purges(transportA.messages());
+            a(purges.size()).shouldBeEqual(2);
+
+            //node B never received the first message
+            managerB.addCache("addresses", "q1", "addresses1");
+            transportB.receiver.receive(purges.get(1));
+            a(busB.getLostCount()).shouldBeEqual(1L);
+            a(managerB.getCache("addresses", "q1")).shouldBeNull();
+
+            //node C hears from node A by a heartbeat first
+            managerC.addCache("addresses", "q1", "addresses1");
+            int sent = 0;
+            for (int i = 0; i < 200 && busC.getLostCount() < 2; i++) {
+                Thread.sleep(10);
+                List<byte[]> messages = transportA.messages();
+                for (; sent < messages.size(); sent++) {
+                    if (messages.get(sent).length == 1 + 8 + 8 + 2) {
+                        transportC.receiver.receive(messages.get(sent));
+                    }
+                }
+            }
+            a(busC.getLostCount()).shouldBeEqual(2L);
+            a(managerC.getCache("addresses", "q1")).shouldBeNull();
+        } finally {
+            busA.close();
+            busB.close();
+            busC.close();
+        }
+    }
+
+    /**
+     * @return messages with purges, without heartbeats, which have a header only.
+     */
+    private static List<byte[]> purges(List<byte[]> messages) {
+        List<byte[]> purges = new ArrayList<byte[]>();
+        for (byte[] message : messages) {
+            if (message.length > 1 + 8 + 8 + 2) {
+                purges.add(message);
+            }
+        }
+        return purges;
+    }
+
+    @Test
+    public void shouldPropagatePurgesOverUdp() throws IOException, InterruptedException {
+        int portA = freePort(), portB = freePort();
+        InetSocketAddress addressA = new InetSocketAddress("127.0.0.1", portA), addressB = new InetSocketAddress("127.0.0.1", portB);
+        CacheManager managerA = manager(), managerB = manager();
+        InvalidationBus busA = new InvalidationBus(managerA, new UdpTransport(portA, addressA, addressB));
+        InvalidationBus busB = new InvalidationBus(managerB, new UdpTransport(portB, addressA, addressB));
+        busA.start();
+        busB.start();
+        try {
+            managerB.addCache("people", "q1", "people1");
+            managerA.flush(new CacheEvent("people", "test"));
+            waitFor(managerB, "people", "q1");
+            a(managerB.getCache("people", "q1")).shouldBeNull();
+            a(busA.getReceivedCount()).shouldBeEqual(0L);
+        } finally {
+            busA.close();
+            busB.close();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        DatagramSocket socket = new DatagramSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        return port;
+    }
+}
@@ -1,9 +1,14 @@
 package org.javalite.activejdbc;
 
 import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Item;
 import org.javalite.activejdbc.test_models.Person;
+import org.javalite.common.Convert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 /**
  * @author Igor Polevoy: 3/23/12 3:40 PM
  */
@@ -13,4 +18,23 @@ public class LazyListTest extends ActiveJDBCTest {
     public void shouldGenerateSql(){
         System.out.println(Person.where("name = ?", "John").offset(200).limit(20).orderBy("name").toSql(true));
     }
+
+    @Test
+    public void shouldPushAggregatesToDatabase(){
+        deleteAndPopulateTable("items");
+        for (int i = 1; i <= 10; i++) {
+            Item.createIt("item_number", i, "item_description", "item " + (i % 3));
+        }
+        LazyList<Item> items = Item.where("item_number > ?", 5);
+        a(items.count()).shouldBeEqual(5L);
+        a(Convert.toLong(items.sum("item_number"))).shouldBeEqual(40L);
+        a(Convert.toDouble(items.avg("item_number"))).shouldBeEqual(8.0);
+        a(Convert.toLong(items.min("item_number"))).shouldBeEqual(6L);
+        a(Convert.toLong(items.max("item_number"))).shouldBeEqual(10L);
+        a(new HashSet(items.distinct("item_description")).size()).shouldBeEqual(3);
+
+        a(Item.findAll().orderBy("item_number desc").limit(3).pluck("item_number")).shouldBeEqual(Arrays.asList(10, 9, 8));
+        a(Item.findAll().orderBy("item_number").offset(2).limit(3).count()).shouldBeEqual(3L);
+        a(Item.where("item_number > ?", 100).sum("item_number")).shouldBeNull();
+    }
 }
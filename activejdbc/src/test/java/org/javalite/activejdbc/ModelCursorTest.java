@@ -0,0 +1,108 @@
+/*
+Copyright 2009-2010 Igor Polevoy 
+
+Licensed under the Apache License, Version 2.0 (the "License"); 
+you may not use this file except in compliance with the License. 
+You may obtain a copy of the License at 
+
+http://www.apache.org/licenses/LICENSE-2.0 
+
+Unless required by applicable law or agreed to in writing, software 
+distributed under the License is distributed on an "AS IS" BASIS, 
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+See the License for the specific language governing permissions and 
+limitations under the License. 
+*/
+
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.dialects.H2Dialect;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.Person;
+import org.javalite.activejdbc.test_models.User;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ModelCursorTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldIterateOverModelsInOrder() {
+        deleteAndPopulateTable("people");
+        List<String> names = new ArrayList<String>();
+        ModelCursor<Person> cursor = Person.where("id > ?", 1).orderBy("id").cursor();
+        for (Person p : cursor) {
+            names.add(p.getString("name"));
+        }
+        a(names.size()).shouldBeEqual(3);
+        a(names.get(0)).shouldBeEqual("Leylah");
+        a(names.get(2)).shouldBeEqual("Joe");
+        a(cursor.hasNext()).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldStopEarlyAndClose() {
+        deleteAndPopulateTable("people");
+        ModelCursor<Person> cursor = Person.findAll().orderBy("id").cursor();
+        a(cursor.next().getString("name")).shouldBeEqual("John");
+        cursor.close();
+        cursor.close();
+        a(cursor.hasNext()).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldLoadIncludesForStreamedModels() {
+        if (!Registry.instance().getMetaModel(User.class).getDialect().supportsQueriesWhileStreaming()) {
+            return;//see shouldRejectIncludesIfDatabaseCannotQueryWhileStreaming()
+        }
+        deleteAndPopulateTables("users", "addresses");
+        ModelCursor<User> cursor = User.findAll().orderBy("id").include(Address.class).cursor();
+        User user = cursor.next();
+        cursor.close();
+        List<Map> addresses = (List<Map>) user.toMap().get("addresses");
+        a(addresses.size()).shouldBeEqual(3);
+        a(addresses.get(0).get("address1")).shouldBeEqual("123 Pine St.");
+    }
+
+    @Test
+    public void shouldRejectIncludesIfDatabaseCannotQueryWhileStreaming() throws IOException {
+        deleteAndPopulateTables("users", "addresses");
+        MetaModel metaModel = Registry.instance().getMetaModel(User.class);
+        Configuration config = Registry.instance().getConfiguration();
+        DefaultDialect previous = config.setDialect(metaModel.getDbType(), new BusyWhileStreamingDialect());
+        try {
+            try {
+                User.findAll().include(Address.class).cursor();
+                a(false).shouldBeTrue();
+            } catch (DBException e) {
+                a(e.getMessage().contains("includes")).shouldBeTrue();
+            }
+
+            //exports load the list instead of streaming it
+            StringWriter writer = new StringWriter();
+            User.findAll().orderBy("id").include(Address.class).toJson(writer, false);
+            a(writer.toString()).shouldBeEqual(User.findAll().orderBy("id").include(Address.class).toJson(false));
+            a(writer.toString().contains("123 Pine St.")).shouldBeTrue();
+        } finally {
+            config.setDialect(metaModel.getDbType(), previous);
+        }
+    }
+
+    /**
+     * Behaves like MySQL, which cannot run include queries while a streaming result set is open.
+     */
+    private static class BusyWhileStreamingDialect extends H2Dialect {
+        @Override
+        public boolean supportsQueriesWhileStreaming() {
+            return false;
+        }
+    }
+}
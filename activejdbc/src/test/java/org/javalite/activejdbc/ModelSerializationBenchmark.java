@@ -0,0 +1,83 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.javalite.activejdbc.ModelSerializationTest.deserialize;
+import static org.javalite.activejdbc.ModelSerializationTest.serialize;
+
+/**
+ * Compares size and throughput of compact serialization format of models with serialization of their attributes
+ * as maps. This is not a unit test and is not run by the build, run it with the test classpath against the same
+ * database as tests, optionally with a number of iterations as an argument.
+ */
+public class ModelSerializationBenchmark extends ActiveJDBCTest {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        ModelSerializationBenchmark benchmark = new ModelSerializationBenchmark();
+        benchmark.before();
+        try {
+            benchmark.run(iterations);
+        } finally {
+            benchmark.after();
+        }
+    }
+
+    private void run(int iterations) throws Exception {
+        deleteAndPopulateTable("people");
+        List<Person> source = Person.findAll().orderBy("id");
+        List<Person> people = new ArrayList<Person>();
+        List<Map<String, Object>> maps = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 2000; i++) {
+            Person p = Model.instance(source.get(i % source.size()).toMap(), Person.getMetaModel());
+            people.add(p);
+            maps.add(new HashMap<String, Object>(p.getAttributes()));
+        }
+        for (int i = 0; i < 20; i++) {//warm up
+            deserialize(serialize(people));
+            deserialize(serialize(maps));
+        }
+
+        long start = System.nanoTime();
+        byte[] compact = null;
+        for (int i = 0; i < iterations; i++) {
+            compact = serialize(people);
+            deserialize(compact);
+        }
+        long compactTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        byte[] mapFormat = null;
+        for (int i = 0; i < iterations; i++) {
+            mapFormat = serialize(maps);
+            deserialize(mapFormat);
+        }
+        long mapTime = System.nanoTime() - start;
+
+        System.out.println(people.size() + " models x " + iterations + ": compact format: " + compact.length + " bytes, "
+                + compactTime / 1000000 + " ms, map format: " + mapFormat.length + " bytes, " + mapTime / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.Person;
+import org.javalite.activejdbc.test_models.User;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact Java serialization format of models and lists.
+ */
+public class ModelSerializationTest extends ActiveJDBCTest {
+
+    static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);
+        out.writeObject(object);
+        out.close();
+        return bout.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+
+    @Test
+    public void shouldSerializeListWithIncludes() throws IOException, ClassNotFoundException {
+        deleteAndPopulateTables("users", "addresses");
+        LazyList<User> users = User.findAll().orderBy("id").include(Address.class);
+
+        List<User> users1 = (List<User>) deserialize(serialize(users));
+
+        a(users1 instanceof SuperLazyList).shouldBeTrue();
+        a(users1.size()).shouldBeEqual(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            a(users1.get(i).getClass()).shouldBeEqual(User.class);
+            a(users1.get(i).toMap()).shouldBeEqual(users.get(i).toMap());
+        }
+        a(users1.get(0).getAll(Address.class).size()).shouldBeEqual(users.get(0).getAll(Address.class).size());
+    }
+
+    @Test
+    public void shouldSerializeModelsSharingColumnDictionary() throws IOException, ClassNotFoundException {
+        deleteAndPopulateTable("people");
+        List<Person> people = new ArrayList<Person>(Person.findAll().orderBy("id"));
+
+        List<Person> people1 = (List<Person>) deserialize(serialize(people));
+        a(people1.size()).shouldBeEqual(people.size());
+        for (int i = 0; i < people.size(); i++) {
+            a(people1.get(i).toMap()).shouldBeEqual(people.get(i).toMap());
+        }
+        //names of columns are read once for the stream
+        a(people1.get(0).getAttributes().keySet().iterator().next())
+                .shouldBeTheSameAs(people1.get(1).getAttributes().keySet().iterator().next());
+    }
+
+    @Test
+    public void shouldReadOldFormat() throws IOException, ClassNotFoundException {
+        deleteAndPopulateTable("people");
+        Person p = Person.findById(1);
+
+        //older versions wrote a map of attributes
+        byte[] bytes = serialize(new HashMap<String, Object>(p.getAttributes()));
+        Person p1 = new Person();
+        p1.readExternal(new ObjectInputStream(new ByteArrayInputStream(bytes)));
+
+        a(p1.get("name")).shouldBeEqual(p.get("name"));
+        a(p1.get("dob")).shouldBeEqual(p.get("dob"));
+    }
+
+    @Test
+    public void shouldBeSmallerThanMapFormat() throws IOException, ClassNotFoundException {
+        deleteAndPopulateTable("people");
+        List<Person> source = Person.findAll().orderBy("id");
+        List<Person> people = new ArrayList<Person>();
+        List<Map<String, Object>> maps = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 2000; i++) {
+            Person p = Model.instance(source.get(i % source.size()).toMap(), Person.getMetaModel());
+            people.add(p);
+            maps.add(new HashMap<String, Object>(p.getAttributes()));
+        }
+        byte[] compact = serialize(people);
+        byte[] mapFormat = serialize(maps);
+        a(((List) deserialize(compact)).size()).shouldBeEqual(people.size());
+        a(compact.length < mapFormat.length).shouldBeTrue();
+    }
+}
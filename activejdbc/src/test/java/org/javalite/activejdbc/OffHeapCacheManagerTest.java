@@ -0,0 +1,105 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.CacheEvent;
+import org.javalite.activejdbc.cache.OffHeapCacheManager;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.Person;
+import org.javalite.activejdbc.test_models.User;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author Igor Polevoy
+ */
+public class OffHeapCacheManagerTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldStoreListsOfModels() {
+        deleteAndPopulateTable("people");
+        OffHeapCacheManager manager = new OffHeapCacheManager(1024 * 1024, 64 * 1024);
+        List<Person> people = Person.findAll().orderBy("id");
+        manager.addCache("people", "all", people);
+
+        List<Person> cached = (List<Person>) manager.getCache("people", "all");
+        a(cached.size()).shouldBeEqual(people.size());
+        for (int i = 0; i < people.size(); i++) {
+            a(cached.get(i).getClass()).shouldBeEqual(Person.class);
+            a(cached.get(i).toMap()).shouldBeEqual(people.get(i).toMap());
+        }
+        a(manager.getCache("people", "all")).shouldNotBeTheSameAs(cached);
+    }
+
+    @Test
+    public void shouldStoreIncludedChildren() {
+        deleteAndPopulateTables("users", "addresses");
+        OffHeapCacheManager manager = new OffHeapCacheManager(1024 * 1024, 64 * 1024);
+        List<User> users = User.findAll().orderBy("id").include(Address.class);
+        manager.addCache("users", "all", users);
+
+        List<User> cached = (List<User>) manager.getCache("users", "all");
+        a(cached.get(0).toMap()).shouldBeEqual(users.get(0).toMap());
+        a(cached.get(0).getAll(Address.class).size()).shouldBeEqual(users.get(0).getAll(Address.class).size());
+    }
+
+    @Test
+    public void shouldStoreOtherSerializableItems() {
+        OffHeapCacheManager manager = new OffHeapCacheManager(1024 * 1024, 64 * 1024);
+        manager.addCache("people", "count", 4L);
+        a(manager.getCache("people", "count")).shouldBeEqual(4L);
+    }
+
+    @Test
+    public void shouldFlushGroupsEntriesAndAll() {
+        OffHeapCacheManager manager = new OffHeapCacheManager(1024 * 1024, 64 * 1024);
+        manager.addCache("people", "q1", "people1");
+        manager.addCache("people", "q2", "people2");
+        manager.addCache("addresses", "q3", "addresses1");
+
+        manager.flush(new CacheEvent("people", "q1", "test"));
+        a(manager.getCache("people", "q1")).shouldBeNull();
+        a(manager.getCache("people", "q2")).shouldBeEqual("people2");
+
+        manager.flush(new CacheEvent("people", "test"));
+        a(manager.getCache("people", "q2")).shouldBeNull();
+        a(manager.getCache("addresses", "q3")).shouldBeEqual("addresses1");
+
+        manager.flush(CacheEvent.ALL);
+        a(manager.getCache("addresses", "q3")).shouldBeNull();
+        a(manager.getEntryCount()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldEvictOldestSlab() {
+        OffHeapCacheManager manager = new OffHeapCacheManager(2 * 1024, 1024);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            value.append('x');
+        }
+        for (int i = 0; i < 10; i++) {
+            manager.addCache("people", "q" + i, value.toString() + i);
+        }
+        a(manager.getAllocatedBytes()).shouldBeEqual(2048L);
+        a(manager.getCache("people", "q0")).shouldBeNull();
+        a(manager.getCache("people", "q9")).shouldBeEqual(value.toString() + 9);
+        a(manager.getEntryCount() < 10).shouldBeTrue();
+    }
+}
@@ -17,13 +17,18 @@ limitations under the License.
 
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.dialects.H2Dialect;
 import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.javalite.activejdbc.test_models.Item;
+import org.javalite.common.Util;
 import org.junit.Test;
 
 import java.io.*;
 import java.util.List;
 
+import static org.javalite.activejdbc.test.JdbcProperties.db;
+
 
 /**
  * @author Igor Polevoy
@@ -127,4 +132,116 @@ public class PaginatorTest extends ActiveJDBCTest {
         a(items.get(0).get("item_number")).shouldBeEqual(992);
         a(p.pageCount()).shouldBeEqual(28);
     }
+
+    @Test
+    public void shouldPageThroughAllRecordsWithKeyset(){
+        Paginator p = new Paginator(Item.class, 30, "item_description like ?", "%2%").orderBy("item_number desc");
+        List<Item> page = p.getPageAfter(null);
+        a(page.size()).shouldBeEqual(30);
+        a(page.get(0).get("item_number")).shouldBeEqual(992);
+
+        int count = page.size();
+        Object previous = page.get(page.size() - 1).get("item_number");
+        while (!page.isEmpty()) {
+            page = p.getPageAfter(p.cursorAfter(page.get(page.size() - 1)));
+            if (!page.isEmpty()) {
+                a(((Number) page.get(0).get("item_number")).intValue() < ((Number) previous).intValue()).shouldBeTrue();
+                previous = page.get(page.size() - 1).get("item_number");
+            }
+            count += page.size();
+        }
+        a(count).shouldBeEqual(p.getCount());
+    }
+
+    @Test
+    public void shouldPageWithKeysetAndRawSql(){
+        Paginator p = new Paginator(Item.class, 10, "select * from items where item_description like '%2%'").orderBy("item_number");
+        List<Item> page = p.getPageAfter(null);
+        page = p.getPageAfter(p.cursorAfter(page.get(9)));
+        a(page.get(0).get("item_number")).shouldBeEqual(32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectKeysetCursorOfDifferentOrder(){
+        Paginator p = new Paginator(Item.class, 10, "*").orderBy("item_number");
+        String cursor = p.cursorAfter(p.<Item>getPageAfter(null).get(9));
+        new Paginator(Item.class, 10, "*").orderBy("item_number desc").getPageAfter(cursor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMalformedKeysetCursor(){
+        new Paginator(Item.class, 10, "*").orderBy("item_number").getPageAfter("bm90IGEgY3Vyc29y");
+    }
+
+    @Test
+    public void shouldMemoizeCount() throws InterruptedException {
+        Paginator p = new Paginator(Item.class, 10, "item_description like '%2%'").memoizeCount(0);
+        a(p.pageCount()).shouldBeEqual(28);
+        for (int i = 0; i < 10; i++) {
+            Item.createIt("item_number", 2000 + i, "item_description", "this is item # " + (2000 + i));
+        }
+        a(p.pageCount()).shouldBeEqual(28);
+        a(p.getCount()).shouldBeEqual(281);
+
+        p.memoizeCount(1);
+        a(p.pageCount()).shouldBeEqual(29);
+        for (int i = 0; i < 10; i++) {
+            Item.createIt("item_number", 3020 + i, "item_description", "this is item # " + (3020 + i));
+        }
+        Thread.sleep(10);
+        a(p.pageCount()).shouldBeEqual(30);
+    }
+
+    @Test
+    public void shouldGetPageWithCount(){
+        Paginator p = new Paginator(Item.class, 10, "item_description like ?", "%2%").orderBy("item_number").countWithPage();
+        List<Item> items = p.getPage(28);
+        a(items.size()).shouldBeEqual(1);
+        a(items.get(0).get("item_number")).shouldBeEqual(992);
+        a(items.get(0).toMap().containsKey("paginator_total_count")).shouldBeFalse();
+        a(p.pageCount()).shouldBeEqual(28);
+        a(p.hasNext()).shouldBeFalse();
+        a(p.hasPrevious()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldNotQueryCountSeparatelyWhenCountedWithPage(){
+        MetaModel metaModel = Registry.instance().getMetaModel(Item.class);
+        if (!db().equals("h2") && !metaModel.getDialect().supportsWindowFunctions()) {
+            return;
+        }
+        Configuration config = Registry.instance().getConfiguration();
+        DefaultDialect previous = config.setDialect(metaModel.getDbType(),
+                db().equals("h2") ? new TotalCountH2Dialect() : metaModel.getDialect());
+        try {
+            Paginator p = new Paginator(Item.class, 10, "item_description like '%2%'").orderBy("item_number").countWithPage();
+            List<Item> items = p.getPage(28);
+            a(items.size()).shouldBeEqual(1);
+            a(items.get(0).toMap().containsKey("paginator_total_count")).shouldBeFalse();
+
+            //a separate count query would find nothing now
+            Base.exec("DELETE FROM items");
+            a(p.pageCount()).shouldBeEqual(28);
+            a(p.hasNext()).shouldBeFalse();
+        } finally {
+            config.setDialect(metaModel.getDbType(), previous);
+        }
+    }
+
+    /**
+     * H2 1.3 has no window functions, so this dialect selects a total count with a scalar sub-query instead.
+     */
+    private static class TotalCountH2Dialect extends H2Dialect {
+        @Override
+        public boolean supportsWindowFunctions() {
+            return true;
+        }
+
+        @Override
+        public String selectStarWithTotalCount(String table, String subQuery, String countLabel) {
+            String where = Util.blank(subQuery) ? "" : " WHERE " + subQuery;
+            return "SELECT " + table + ".*, (SELECT COUNT(*) FROM " + table + where + ") AS " + countLabel
+                    + " FROM " + table + where;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.ItemLoader;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent misses of the same cached query must run it only once.
+ */
+public class QueryCacheLoadTest extends ActiveJDBCTest {
+
+    private ConcurrentLinkedQueue<Object> loadConcurrently(int threadCount, final String query, final ItemLoader loader) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final ConcurrentLinkedQueue<Object> results = new ConcurrentLinkedQueue<Object>();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        results.add(QueryCache.instance().getItem("people", query, null, null, loader));
+                    } catch (Exception e) {
+                        results.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        return results;
+    }
+
+    @Test
+    public void shouldLoadMissingItemOnce() throws InterruptedException {
+        QueryCache.instance().purgeTableCache("people");
+        final AtomicInteger loads = new AtomicInteger();
+        long coalesced = QueryCache.instance().getCoalescedCount();
+
+        ConcurrentLinkedQueue<Object> results = loadConcurrently(8, "SELECT 'single load'", new ItemLoader() {
+            public Object load() {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ignore) {}
+                return "loaded";
+            }
+        });
+
+        a(loads.get()).shouldBeEqual(1);
+        a(results.size()).shouldBeEqual(8);
+        for (Object result : results) {
+            a(result).shouldBeEqual("loaded");
+        }
+        a(QueryCache.instance().getCoalescedCount() - coalesced).shouldBeEqual(7L);
+        a(QueryCache.instance().getItem("people", "SELECT 'single load'", null)).shouldBeEqual("loaded");
+    }
+
+    @Test
+    public void shouldLoadByWaitingThreadsIfLoadFails() throws InterruptedException {
+        QueryCache.instance().purgeTableCache("people");
+        final AtomicInteger loads = new AtomicInteger();
+        long fallThrough = QueryCache.instance().getFallThroughCount();
+
+        ConcurrentLinkedQueue<Object> results = loadConcurrently(4, "SELECT 'failed load'", new ItemLoader() {
+            public Object load() {
+                if (loads.incrementAndGet() == 1) {
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException ignore) {}
+                    throw new DBException("first load fails");
+                }
+                return "loaded";
+            }
+        });
+
+        int failures = 0;
+        for (Object result : results) {
+            if (result instanceof DBException) {
+                failures++;
+            } else {
+                a(result).shouldBeEqual("loaded");
+            }
+        }
+        a(failures).shouldBeEqual(1);
+        a(QueryCache.instance().getFallThroughCount() - fallThrough).shouldBeEqual(3L);
+    }
+}
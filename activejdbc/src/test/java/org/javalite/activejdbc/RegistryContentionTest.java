@@ -0,0 +1,105 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Once a database is initialized, metadata lookups must not block each other.
+ */
+public class RegistryContentionTest extends ActiveJDBCTest {
+
+    /**
+     * Checks only that concurrent lookups return correct metamodels, see
+     * {@link #shouldNotLockRegistryOnceInitialized()} for absence of locks.
+     */
+    @Test
+    public void shouldLookupMetaModelsConcurrently() throws InterruptedException {
+        final MetaModel personMetaModel = Person.getMetaModel();
+        final MetaModel addressMetaModel = Address.getMetaModel();
+
+        final int iterations = 20000;
+        int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<String>();
+
+        Runnable r = new Runnable() {
+            public void run() {
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        if (Registry.instance().getMetaModel(Person.class) != personMetaModel
+                                || Registry.instance().getMetaModel(Address.class) != addressMetaModel
+                                || !"people".equals(Registry.instance().getTableName(Person.class))) {
+                            failures.add("wrong metamodel returned");
+                            return;
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.add(e.toString());
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(r).start();
+        }
+        start.countDown();
+        done.await();
+
+        a(failures.size()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldNotLockRegistryOnceInitialized() throws InterruptedException {
+        final MetaModel personMetaModel = Person.getMetaModel();
+        final CountDownLatch done = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<String>();
+        Thread lookup = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    if (Registry.instance().getMetaModel(Person.class) != personMetaModel
+                            || Registry.instance().getMetaModel("people") != personMetaModel
+                            || Registry.instance().getMetaModelByClassName(Person.class.getName()) != personMetaModel) {
+                        failures.add("wrong metamodel returned");
+                    }
+                } catch (Exception e) {
+                    failures.add(e.toString());
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        //initialization is synchronized on the registry, lookups must not wait for it
+        synchronized (Registry.instance()) {
+            lookup.start();
+            a(done.await(10, TimeUnit.SECONDS)).shouldBeTrue();
+        }
+        a(failures.size()).shouldBeEqual(0);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.Item;
+import org.javalite.activejdbc.test_models.Person;
+import org.javalite.activejdbc.test_models.User;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Igor Polevoy
+ */
+public class SelectColumnsTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldSelectOnlyProvidedColumns() {
+        deleteAndPopulateTable("people");
+        LazyList<Person> people = Person.where("name = ?", "John").select("name");
+        a(people.toSql(false).contains("*")).shouldBeFalse();
+
+        Person john = people.get(0);
+        Map<String, Object> map = john.toMap();
+        a(map.size()).shouldBeEqual(2);
+        a(map.get("name")).shouldBeEqual("John");
+        a(map.containsKey("id")).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldLoadUnselectedAttributeOnRead() {
+        deleteAndPopulateTable("people");
+        Person john = Person.where("name = ?", "John").select("name").<Person>load().get(0);
+        john.set("name", "Jack");
+        a(john.get("last_name")).shouldBeEqual("Smith");
+        a(john.get("name")).shouldBeEqual("Jack");
+        a(john.toMap().containsKey("dob")).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldNotOverwriteUnselectedAttributesOnSave() {
+        deleteAndPopulateTable("items");
+        Item.createIt("item_number", 5000, "item_description", "this is item # 5000");
+        Item item = Item.where("item_number = ?", 5000).select("item_number").<Item>load().get(0);
+        item.set("item_number", 5001).saveIt();
+        a(((Model) item).isPartial()).shouldBeTrue();
+
+        a(Item.findFirst("item_number = ?", 5001).get("item_description")).shouldBeEqual("this is item # 5000");
+    }
+
+    @Test
+    public void shouldSelectForeignKeysOfIncludedParents() {
+        deleteAndPopulateTables("users", "addresses");
+        List<Address> addresses = Address.findAll().orderBy("id").select("address1").include(User.class);
+        a(addresses.get(0).get("address1")).shouldBeEqual("123 Pine St.");
+        a(addresses.get(0).parent(User.class).get("first_name")).shouldBeEqual("Marilyn");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownColumn() {
+        Person.findAll().select("no_such_column");
+    }
+}
@@ -0,0 +1,155 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.CacheEvent;
+import org.javalite.activejdbc.cache.CacheEventListener;
+import org.javalite.activejdbc.cache.ItemLoader;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Wage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+
+/**
+ * Wage is cached with softTtl = 1 and ttl = 2 seconds.
+ *
+ * @author Igor Polevoy
+ */
+public class SoftTtlCacheTest extends ActiveJDBCTest {
+
+    private static ItemLoader value(final Object value) {
+        return new ItemLoader() {
+            public Object load() {
+                return value;
+            }
+        };
+    }
+
+    private static Object get(String query, ItemLoader loader) {
+        return QueryCache.instance().getItem("wages", query, null, null, loader);
+    }
+
+    private static void markStale() throws InterruptedException {
+        QueryCache.instance().purgeTableCache("wages");
+        //results loaded in the same millisecond as the purge are stale too
+        Thread.sleep(5);
+    }
+
+    @Test
+    public void shouldServeStaleResultWhileRefreshing() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        QueryCache.instance().setBackgroundRefresh("default", executor, new ConnectionJdbcSpec(driver(), url(), user(), password()));
+        try {
+            markStale();
+            a(get("SELECT 'refresh'", value("v1"))).shouldBeEqual("v1");
+            markStale();
+
+            final CountDownLatch release = new CountDownLatch(1);
+            long refreshes = QueryCache.instance().getRefreshCount();
+            a(get("SELECT 'refresh'", new ItemLoader() {
+                public Object load() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignore) {}
+                    return "v2";
+                }
+            })).shouldBeEqual("v1");
+            //refresh is still running
+            a(get("SELECT 'refresh'", value("v3"))).shouldBeEqual("v1");
+
+            release.countDown();
+            for (int i = 0; i < 200 && QueryCache.instance().getRefreshCount() == refreshes; i++) {
+                Thread.sleep(10);
+            }
+            a(QueryCache.instance().getRefreshCount()).shouldBeEqual(refreshes + 1);
+            a(get("SELECT 'refresh'", value("v4"))).shouldBeEqual("v2");
+        } finally {
+            QueryCache.instance().setBackgroundRefresh("default", null, null);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotServeResultOlderThanTtl() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        QueryCache.instance().setBackgroundRefresh("default", executor, new ConnectionJdbcSpec(driver(), url(), user(), password()));
+        try {
+            markStale();
+            a(get("SELECT 'ttl'", value("v1"))).shouldBeEqual("v1");
+            Thread.sleep(2100);
+            //expired results are loaded by the calling thread, even with background refresh
+            a(get("SELECT 'ttl'", value("v2"))).shouldBeEqual("v2");
+        } finally {
+            QueryCache.instance().setBackgroundRefresh("default", null, null);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldMarkResultsStaleOnWrite() throws InterruptedException {
+        deleteFromTable("wages");
+        markStale();
+        QueryCache.instance().addItem("wages", "SELECT 'write'", null, "v1");
+        a(QueryCache.instance().getItem("wages", "SELECT 'write'", null)).shouldBeEqual("v1");
+
+        final List<String> groups = new ArrayList<String>();
+        CacheEventListener listener = new CacheEventListener() {
+            public void onFlush(CacheEvent event) {
+                groups.add(event.getGroup());
+            }
+        };
+        QueryCache.instance().getCacheManager().addCacheEventListener(listener);
+        try {
+            Wage.createIt("wage", 1000);
+        } finally {
+            QueryCache.instance().getCacheManager().removeCacheEventListener(listener);
+        }
+        //queries are not purged, but their results are not returned as fresh any more
+        a(groups.contains("wages")).shouldBeFalse();
+        a(QueryCache.instance().getItem("wages", "SELECT 'write'", null)).shouldBeNull();
+    }
+
+    @Test
+    public void shouldCacheRows() {
+        //rows have no dependencies, see QueryCache.addRow()
+        QueryCache.instance().addRow("wages", 12345, "row");
+        a(QueryCache.instance().getRow("wages", 12345)).shouldBeEqual("row");
+        QueryCache.instance().addRow("people", 12345, "row");
+        a(QueryCache.instance().getRow("people", 12345)).shouldBeEqual("row");
+    }
+
+    @Test
+    public void shouldReloadStaleResultSynchronouslyWithoutExecutor() throws InterruptedException {
+        QueryCache.instance().setBackgroundRefresh("default", null, null);
+        markStale();
+        a(get("SELECT 'sync'", value("v1"))).shouldBeEqual("v1");
+        markStale();
+        long loads = QueryCache.instance().getLoadCount();
+        a(get("SELECT 'sync'", value("v2"))).shouldBeEqual("v2");
+        a(QueryCache.instance().getLoadCount()).shouldBeEqual(loads + 1);
+        a(get("SELECT 'sync'", value("v3"))).shouldBeEqual("v2");
+    }
+}
@@ -0,0 +1,43 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+/**
+ * Static methods of instrumented models must know their model class without walking the call stack.
+ */
+public class StaticModelClassTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldBindStaticMethodsToModelClass() {
+        deleteAndPopulateTables("people", "addresses");
+        int stackWalks = Model.stackWalks();
+        a(Person.getMetaModel().getModelClass()).shouldBeEqual(Person.class);
+        a(Address.getMetaModel().getModelClass()).shouldBeEqual(Address.class);
+        a(Person.getTableName()).shouldBeEqual("people");
+        a(Address.getTableName()).shouldBeEqual("addresses");
+        a(Person.count()).shouldBeEqual(4L);
+        a(Person.where("name = ?", "John").get(0).getClass()).shouldBeEqual(Person.class);
+        a(Person.findById(1).getClass()).shouldBeEqual(Person.class);
+        a(Model.stackWalks()).shouldBeEqual(stackWalks);
+    }
+}
@@ -23,7 +23,9 @@ import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 
@@ -156,5 +158,28 @@ public class ToJsonSpec extends ActiveJDBCTest {
         Map injected = (Map) map.get("injected");
         a(injected.get("secret_name")).shouldBeEqual("Secret Name");
     }
-}
 
+    @Test
+    public void shouldStreamListToWriter() throws IOException {
+        deleteAndPopulateTables("users", "addresses");
+        String expected = User.findAll().orderBy("id").toJson(true);
+
+        StringWriter writer = new StringWriter();
+        User.findAll().orderBy("id").toJson(writer, true);
+        a(writer.toString()).shouldBeEqual(expected);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        User.findAll().orderBy("id").toJson(out, false);
+        a(mapper.readTree(out.toString("UTF-8")).size()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldEscapeInOnePass() throws IOException {
+        Page p = new Page();
+        p.set("description", "a\\b\"c/d\te\nf\u0001g");
+        StringWriter writer = new StringWriter();
+        p.toJson(writer, false, "description");
+        a(writer.toString()).shouldBeEqual("{\"description\":\"a\\\\b\\\"c\\/d\\te\\nf\\u0001g\"}");
+        a(mapper.readTree(writer.toString()).get("description").getTextValue()).shouldBeEqual("a\\b\"c/d\te\nf\u0001g");
+    }
+}
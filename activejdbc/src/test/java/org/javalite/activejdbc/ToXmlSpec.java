@@ -25,6 +25,7 @@ import org.javalite.common.XmlEntities;
 import org.javalite.test.XPathHelper;
 import org.junit.Test;
 
+import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 
@@ -121,4 +122,15 @@ public class ToXmlSpec extends ActiveJDBCTest {
 
 
     }
+
+    @Test
+    public void shouldStreamListToWriter() throws Exception {
+        deleteAndPopulateTables("users", "addresses");
+        String expected = User.findAll().orderBy("id").toXml(2, true);
+
+        StringWriter writer = new StringWriter();
+        User.findAll().orderBy("id").toXml(writer, 2, true);
+        a(writer.toString()).shouldBeEqual(expected);
+        a(XPathHelper.count("//user", writer.toString())).shouldEqual(2);
+    }
 }
@@ -0,0 +1,76 @@
+/*
+Copyright 2009-2010 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+/**
+ * Writes in a transaction must not affect cache until commit, and uncommitted data must not be cached.
+ */
+public class TransactionCacheTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldBypassCacheAfterWriteAndKeepItOnRollback() {
+        deleteAndPopulateTable("people");
+        Person p1 = Person.findById(1);
+        a(p1).shouldBeTheSameAs(Person.findById(1));
+
+        Base.openTransaction();
+        //no writes yet, cache is used
+        a(p1).shouldBeTheSameAs(Person.findById(1));
+
+        Person.update("last_name = ?", "id = ?", "Uncommitted", 1);
+        Person inTransaction = Person.findById(1);
+        a(inTransaction).shouldNotBeTheSameAs(p1);
+        a(inTransaction.get("last_name")).shouldBeEqual("Uncommitted");
+        //not cached
+        a(inTransaction).shouldNotBeTheSameAs(Person.findById(1));
+
+        Base.rollbackTransaction();
+        a(p1).shouldBeTheSameAs(Person.findById(1));
+        a(Person.findById(1).get("last_name")).shouldNotBeEqual("Uncommitted");
+    }
+
+    @Test
+    public void shouldPurgeOnCommit() throws SQLException {
+        deleteAndPopulateTable("people");
+        Person p1 = Person.findById(1);
+
+        Base.openTransaction();
+        try {
+            Person.update("last_name = ?", "id = ?", "Committed", 1);
+            Person.findById(1).set("name", "Twice").saveIt();
+            Base.commitTransaction();
+
+            Person fresh = Person.findById(1);
+            a(fresh).shouldNotBeTheSameAs(p1);
+            a(fresh.get("last_name")).shouldBeEqual("Committed");
+            a(fresh.get("name")).shouldBeEqual("Twice");
+            a(fresh).shouldBeTheSameAs(Person.findById(1));
+        } finally {
+            //committed rows are not rolled back after the test
+            deleteFromTable("people");
+            Base.connection().commit();
+            Person.purgeCache();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.javalite.activejdbc.dialects;
+
+import static org.javalite.test.jspec.JSpec.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StreamingFetchSizeTest {
+
+    //records fetch sizes set on statements created by a fake connection
+    private final List<Integer> fetchSizes = new ArrayList<Integer>();
+
+    private Connection connection() {
+        final InvocationHandler statementHandler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("setFetchSize")) {
+                    fetchSizes.add((Integer) args[0]);
+                }
+                return null;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                Class type = method.getName().equals("createStatement") ? Statement.class : PreparedStatement.class;
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{type}, statementHandler);
+            }
+        });
+    }
+
+    @Test
+    public void shouldUseConfiguredFetchSizeOrDialectDefault() throws Exception {
+        new DefaultDialect().createStreamingPreparedStatement(connection(), "select 1", 0);
+        new DefaultDialect().createStreamingStatement(connection(), 20);
+        new H2Dialect().createStreamingPreparedStatement(connection(), "select 1", 0);
+        new PostgreSQLDialect().createStreamingPreparedStatement(connection(), "select 1", 0);
+        new PostgreSQLDialect().createStreamingStatement(connection(), 50);
+        new OracleDialect().createStreamingPreparedStatement(connection(), "select 1", 0);
+        new MySQLDialect().createStreamingPreparedStatement(connection(), "select 1", 50);
+
+        a(fetchSizes.size()).shouldBeEqual(5);
+        a(fetchSizes.get(0)).shouldBeEqual(20);
+        a(fetchSizes.get(1)).shouldBeEqual(1000);
+        a(fetchSizes.get(2)).shouldBeEqual(50);
+        a(fetchSizes.get(3)).shouldBeEqual(500);
+        a(fetchSizes.get(4)).shouldBeEqual(Integer.MIN_VALUE);
+    }
+}
@@ -10,6 +10,9 @@ CREATE TABLE temperatures (id  int(11) NOT NULL  auto_increment PRIMARY KEY, tem
 DROP TABLE IF EXISTS salaries;
 CREATE TABLE salaries (id  int(11) NOT NULL  auto_increment PRIMARY KEY, salary DECIMAL(7, 2));
 
+DROP TABLE IF EXISTS wages;
+CREATE TABLE wages (id  int(11) NOT NULL  auto_increment PRIMARY KEY, wage DECIMAL(7, 2));
+
 DROP TABLE IF EXISTS users;
 CREATE TABLE users (id  int(11) NOT NULL  auto_increment PRIMARY KEY, first_name VARCHAR(56), last_name VARCHAR(56), email VARCHAR(56));
 
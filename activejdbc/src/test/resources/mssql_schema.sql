@@ -22,6 +22,12 @@ BEGIN
 END
 CREATE TABLE salaries (id  INT IDENTITY PRIMARY KEY, salary DECIMAL(7, 2));
 
+IF object_id('dbo.wages') IS NOT NULL
+BEGIN
+    DROP TABLE [dbo].[wages]
+END
+CREATE TABLE wages (id  INT IDENTITY PRIMARY KEY, wage DECIMAL(7, 2));
+
 IF object_id('dbo.users') IS NOT NULL
 BEGIN
     DROP TABLE [dbo].[users]
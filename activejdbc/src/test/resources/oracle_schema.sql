@@ -64,6 +64,23 @@ select coalesce(:new.id, salaries_seq.nextval) into :new.id from dual;
 end;
 
 
+-- BREAK
+CREATE TABLE wages (id  NUMBER NOT NULL, wage NUMBER(7, 2))
+-- BREAK
+ALTER TABLE wages ADD CONSTRAINT wages_pk PRIMARY KEY ( id )
+-- BREAK
+CREATE SEQUENCE wages_seq START WITH 1 INCREMENT BY 1
+-- BREAK
+CREATE OR REPLACE TRIGGER wages_trigger
+    BEFORE INSERT ON wages REFERENCING
+    NEW AS new
+    OLD AS old
+    FOR EACH ROW
+    begin
+select coalesce(:new.id, wages_seq.nextval) into :new.id from dual;
+end;
+
+
 
 -- BREAK
 CREATE TABLE users (id  NUMBER NOT NULL, first_name VARCHAR(56), last_name VARCHAR(56), email VARCHAR(56))
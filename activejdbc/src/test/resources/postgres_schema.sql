@@ -10,6 +10,9 @@ CREATE TABLE temperatures (id  serial PRIMARY KEY, temp SMALLINT);
 DROP TABLE IF EXISTS salaries;
 CREATE TABLE salaries (id  serial PRIMARY KEY, salary DECIMAL(7, 2));
 
+DROP TABLE IF EXISTS wages;
+CREATE TABLE wages (id  serial PRIMARY KEY, wage DECIMAL(7, 2));
+
 DROP TABLE IF EXISTS users;
 CREATE TABLE users (id  serial PRIMARY KEY, first_name VARCHAR(56), last_name VARCHAR(56), email VARCHAR(56));
 